@@ -0,0 +1,51 @@
+#!/usr/bin/env bash
+# Reports startup time and resident set size for each startup variant of the application.
+#
+# Build the artifacts first:
+#   mvn -Pfast-startup package           # AOT-processed jar + CDS archive in target/cds
+#   mvn -Pnative native:compile          # optional GraalVM native executable in target/
+#
+# Usage: scripts/startup-report.sh [profile]   (defaults to the "lean" Spring profile)
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+PROFILE="${1:-lean}"
+NAME="LoginDemo-0.0.1-SNAPSHOT"
+JAR="target/${NAME}.jar"
+CDS_JAR="target/cds/${NAME}.jar"
+CDS_ARCHIVE="target/cds/application.jsa"
+NATIVE="target/LoginDemo"
+TIMEOUT_SECONDS=60
+
+measure() {
+  local label="$1"; shift
+  local log
+  log="$(mktemp)"
+  "$@" --spring.profiles.active="${PROFILE}" >"${log}" 2>&1 &
+  local pid=$!
+  local waited=0
+  while ! grep -q "Started LoginDemoApplication" "${log}"; do
+    if ! kill -0 "${pid}" 2>/dev/null || [ "${waited}" -ge $((TIMEOUT_SECONDS * 10)) ]; then
+      printf '%-14s %-10s %-10s\n' "${label}" "failed" "-"
+      kill "${pid}" 2>/dev/null || true
+      rm -f "${log}"
+      return
+    fi
+    sleep 0.1
+    waited=$((waited + 1))
+  done
+  local started rss
+  started="$(grep -o 'Started LoginDemoApplication in [0-9.]* seconds' "${log}" | awk '{print $4}')"
+  rss="$(awk '/VmRSS/ {printf "%.1f", $2 / 1024}' "/proc/${pid}/status")"
+  printf '%-14s %-10s %-10s\n' "${label}" "${started}s" "${rss}MB"
+  kill "${pid}"
+  wait "${pid}" 2>/dev/null || true
+  rm -f "${log}"
+}
+
+printf '%-14s %-10s %-10s\n' "variant" "startup" "rss"
+[ -f "${JAR}" ] && measure "jvm" java -jar "${JAR}"
+[ -f "${CDS_JAR}" ] && measure "jvm+aot" java -Dspring.aot.enabled=true -jar "${CDS_JAR}"
+[ -f "${CDS_ARCHIVE}" ] && measure "jvm+aot+cds" java -XX:SharedArchiveFile="${CDS_ARCHIVE}" -Dspring.aot.enabled=true -jar "${CDS_JAR}"
+[ -x "${NATIVE}" ] && measure "native" "${NATIVE}"
+exit 0
@@ -0,0 +1,88 @@
+package com.example.LoginDemo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured DataSource with a primary/replica router when
+ * {@code app.datasource.routing.enabled=true}. Writes and non-transactional work keep using the
+ * primary configured by {@code spring.datasource.*}.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaRoutingProperties.class)
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceRoutingConfig.class);
+
+    /**
+     * Builds the primary and replica pools and the router between them.
+     *
+     * @param properties the primary datasource properties
+     * @param routing the replica routing properties
+     * @param environment the environment, for binding spring.datasource.hikari.*
+     * @param registry the meter registry for pool and routing metrics
+     * @return the routing data source
+     */
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                             ReplicaRoutingProperties routing,
+                                                             Environment environment,
+                                                             MeterRegistry registry) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < routing.getReplicas().size(); i++) {
+            ReplicaRoutingProperties.Replica replica = routing.getReplicas().get(i);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("replica-" + (i + 1));
+            pool.setJdbcUrl(replica.getUrl());
+            pool.setUsername(replica.getUsername() != null ? replica.getUsername() : properties.determineUsername());
+            pool.setPassword(replica.getPassword() != null ? replica.getPassword() : properties.determinePassword());
+            pool.setMaximumPoolSize(replica.getMaximumPoolSize());
+            pool.setReadOnly(true);
+            pool.setConnectionTimeout(2000);
+            // A replica that is down at startup must not keep the application from starting
+            pool.setInitializationFailTimeout(-1);
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replicas.add(pool);
+        }
+
+        logger.info("Routing read-only transactions across {} replica(s), max lag {}",
+                replicas.size(), routing.getMaxLag());
+        return new ReplicaRoutingDataSource(primary, replicas, routing.getMaxLag(),
+                routing.getHealthCheckInterval(), registry);
+    }
+
+    /**
+     * The application-wide DataSource. Connections are fetched lazily so that the routing
+     * decision sees the read-only flag of the surrounding transaction.
+     *
+     * @param router the routing data source
+     * @return the lazy connection proxy
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource router) {
+        return new LazyConnectionDataSourceProxy(router);
+    }
+}
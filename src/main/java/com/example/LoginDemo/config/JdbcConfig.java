@@ -0,0 +1,43 @@
+package com.example.LoginDemo.config;
+
+import com.example.LoginDemo.dao.ProfilingJdbcTemplate;
+import com.example.LoginDemo.monitoring.QueryProfiler;
+import com.example.LoginDemo.resilience.GuardedDependency;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.JdbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Provides the JdbcTemplate used by the DAOs, instrumented by the {@link QueryProfiler}.
+ */
+@Configuration
+@EnableConfigurationProperties(JdbcProperties.class)
+public class JdbcConfig {
+
+    /**
+     * Creates the profiling JdbcTemplate, honouring the spring.jdbc.template.* settings.
+     *
+     * @param dataSource the application data source
+     * @param profiler the query profiler
+     * @param properties the JDBC template properties
+     * @param database the bulkhead and circuit breaker guarding the statements
+     * @return the JdbcTemplate
+     */
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource, QueryProfiler profiler, JdbcProperties properties,
+                                     @Qualifier("databaseDependency") GuardedDependency database) {
+        JdbcTemplate jdbcTemplate = new ProfilingJdbcTemplate(dataSource, profiler, database);
+        JdbcProperties.Template template = properties.getTemplate();
+        jdbcTemplate.setFetchSize(template.getFetchSize());
+        jdbcTemplate.setMaxRows(template.getMaxRows());
+        if (template.getQueryTimeout() != null) {
+            jdbcTemplate.setQueryTimeout((int) template.getQueryTimeout().getSeconds());
+        }
+        return jdbcTemplate;
+    }
+}
@@ -1,24 +1,70 @@
 package com.example.LoginDemo.config;
 
+import com.example.LoginDemo.exception.InvalidTokenException;
+import com.example.LoginDemo.monitoring.Trace;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
 import java.security.Key;
+import java.time.Instant;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Utility class for handling JWT operations such as generation, validation, and extraction of claims.
+ * Validation goes through {@link #verify(String)}, which parses a token once and reports
+ * rejections as a result rather than an exception.
  */
 @Component
 public class JwtUtil {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtil.class);
     private static final Key SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
 
+    // Shortest possible header.claims.signature is well above this; the cap bounds digest work
+    private static final int MIN_TOKEN_LENGTH = 16;
+    private static final int MAX_TOKEN_LENGTH = 4096;
+    // Base64url of '{"', the start of every JWT header
+    private static final String JSON_OBJECT_PREFIX = "eyJ";
+    private static final int REJECTED_CACHE_SIZE = 4096;
+
+    // Rejected tokens never become valid, so entries need no expiry
+    private final Map<ByteBuffer, TokenVerification.Status> rejectedTokens = new ConcurrentHashMap<>();
+    // Populated once and never modified structurally, so safe to read concurrently
+    private final Map<TokenVerification.Status, LongAdder> rejections = new EnumMap<>(TokenVerification.Status.class);
+    private final LongAdder cachedRejections = new LongAdder();
+    // Immutable and thread-safe, so one parser serves every verification
+    private final JwtParser parser;
+
+    public JwtUtil() {
+        this(Date::new);
+    }
+
+    /**
+     * Creates the utility with the clock that expiry is checked against.
+     *
+     * @param clock the clock
+     */
+    JwtUtil(Clock clock) {
+        this.parser = Jwts.parser()
+                .setSigningKey(SECRET_KEY)
+                .clock(clock)
+                .build();
+        for (TokenVerification.Status status : TokenVerification.Status.values()) {
+            rejections.put(status, new LongAdder());
+        }
+    }
+
     /**
      * Generates a JWT token for a given username and role.
      *
@@ -27,6 +73,7 @@ public class JwtUtil {
      * @return the generated JWT token
      */
     public String generateToken(String username, String role) {
+        long start = System.nanoTime();
         try {
             logger.info("Generating JWT token for username: {} with role: {}", username, role);
             Map<String, Object> claims = new HashMap<>();
@@ -42,26 +89,63 @@ public class JwtUtil {
         } catch (JwtException ex) {
             logger.error("Error generating JWT token: {}", ex.getMessage());
             throw ex;
+        } finally {
+            Trace.record(Trace.Phase.JWT, "generate", start);
         }
     }
 
     /**
-     * Extracts the username from a given JWT token.
+     * Verifies a token once and returns its claims, without throwing.
+     * <p>
+     * Tokens that are not structurally a compact JWS are rejected before any parsing or crypto.
+     * Rejected tokens are remembered by digest, so a token sent again is rejected with a map
+     * lookup. Rejections are counted and logged in aggregate by {@link #logRejections()}.
      *
      * @param token the JWT token
-     * @return the username extracted from the token
+     * @return the verification result
      */
-    public String extractUsername(String token) {
+    public TokenVerification verify(String token) {
+        if (!isWellFormed(token)) {
+            return reject(TokenVerification.Status.MALFORMED);
+        }
+        ByteBuffer digest = ByteBuffer.wrap(TokenDigests.of(token));
+        TokenVerification.Status cached = rejectedTokens.get(digest);
+        if (cached != null) {
+            cachedRejections.increment();
+            return reject(cached);
+        }
+
+        long start = System.nanoTime();
+        TokenVerification.Status status;
         try {
-            logger.debug("Extracting username from JWT token");
-            return getClaims(token).getSubject();
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (claims.getSubject() != null && claims.getIssuedAt() != null) {
+                return TokenVerification.valid(claims.getSubject(), claims.get("role", String.class),
+                        claims.getIssuedAt().toInstant());
+            }
+            status = TokenVerification.Status.MALFORMED;
         } catch (ExpiredJwtException ex) {
-            logger.warn("JWT token has expired: {}", ex.getMessage());
-            throw ex;
-        } catch (JwtException ex) {
-            logger.error("Invalid JWT token: {}", ex.getMessage());
-            throw ex;
+            status = TokenVerification.Status.EXPIRED;
+        } catch (SignatureException ex) {
+            status = TokenVerification.Status.BAD_SIGNATURE;
+        } catch (JwtException | IllegalArgumentException ex) {
+            status = TokenVerification.Status.MALFORMED;
+        } finally {
+            Trace.record(Trace.Phase.JWT, "parse", start);
         }
+        remember(digest, status);
+        return reject(status);
+    }
+
+    /**
+     * Extracts the username from a given JWT token.
+     *
+     * @param token the JWT token
+     * @return the username extracted from the token
+     * @throws InvalidTokenException if the token is rejected
+     */
+    public String extractUsername(String token) {
+        return require(token).subject();
     }
 
     /**
@@ -69,68 +153,100 @@ public class JwtUtil {
      *
      * @param token the JWT token
      * @return the role extracted from the token
+     * @throws InvalidTokenException if the token is rejected
      */
     public String extractRole(String token) {
-        try {
-            logger.debug("Extracting role from JWT token");
-            return getClaims(token).get("role", String.class);
-        } catch (JwtException ex) {
-            logger.error("Error extracting role from JWT token: {}", ex.getMessage());
-            throw ex;
-        }
+        return require(token).role();
+    }
+
+    /**
+     * Extracts the issue time from a given JWT token.
+     *
+     * @param token the JWT token
+     * @return the instant the token was issued
+     * @throws InvalidTokenException if the token is rejected
+     */
+    public Instant extractIssuedAt(String token) {
+        return require(token).issuedAt();
     }
 
     /**
-     * Validates a JWT token by checking its username and expiration.
+     * Validates a JWT token by checking its signature, username and expiration.
      *
      * @param token the JWT token to validate
      * @return true if the token is valid, false otherwise
      */
     public boolean isValidToken(String token) {
-        try {
-            logger.debug("Validating JWT token");
-            return extractUsername(token) != null && !isTokenExpired(token);
-        } catch (JwtException ex) {
-            logger.warn("Invalid JWT token: {}", ex.getMessage());
-            return false;
-        }
+        return verify(token).isValid();
     }
 
     /**
-     * Extracts claims from a JWT token.
-     *
-     * @param token the JWT token
-     * @return the claims extracted from the token
+     * Logs the tokens rejected since the last call as one line, instead of one per request.
      */
-    private Claims getClaims(String token) {
-        try {
-            logger.debug("Extracting claims from JWT token");
-            return Jwts.parser()
-                    .setSigningKey(SECRET_KEY)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-        } catch (JwtException ex) {
-            logger.error("Error extracting claims from JWT token: {}", ex.getMessage());
-            throw ex;
+    @Scheduled(fixedDelayString = "${app.jwt.rejection-log-interval:1m}")
+    public void logRejections() {
+        long total = 0;
+        StringBuilder byStatus = new StringBuilder();
+        for (Map.Entry<TokenVerification.Status, LongAdder> entry : rejections.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                total += count;
+                byStatus.append(byStatus.isEmpty() ? "" : ", ").append(entry.getKey()).append('=').append(count);
+            }
+        }
+        long cached = cachedRejections.sumThenReset();
+        if (total > 0) {
+            logger.warn("Rejected {} token(s) since last report: {} ({} answered from the rejection cache)",
+                    total, byStatus, cached);
+        }
+    }
+
+    private TokenVerification require(String token) {
+        TokenVerification verification = verify(token);
+        if (!verification.isValid()) {
+            throw new InvalidTokenException(verification.status(), "Token rejected: " + verification.status());
         }
+        return verification;
+    }
+
+    private TokenVerification reject(TokenVerification.Status status) {
+        rejections.get(status).increment();
+        return TokenVerification.rejected(status);
+    }
+
+    private void remember(ByteBuffer digest, TokenVerification.Status status) {
+        if (rejectedTokens.size() >= REJECTED_CACHE_SIZE) {
+            // Evict an arbitrary entry; a flood of distinct tokens only cycles the cache
+            Iterator<ByteBuffer> oldest = rejectedTokens.keySet().iterator();
+            if (oldest.hasNext()) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+        rejectedTokens.put(digest, status);
     }
 
     /**
-     * Checks whether a JWT token has expired.
+     * Checks the shape of a compact JWS: three base64url segments, a JSON header and a
+     * non-empty signature.
      *
-     * @param token the JWT token to check
-     * @return true if the token has expired, false otherwise
+     * @param token the token
+     * @return true if the token is worth parsing
      */
-    private boolean isTokenExpired(String token) {
-        try {
-            logger.debug("Checking if JWT token is expired");
-            boolean isExpired = getClaims(token).getExpiration().before(new Date());
-            logger.info("Token expiration check result: {}", isExpired);
-            return isExpired;
-        } catch (ExpiredJwtException ex) {
-            logger.warn("JWT token is expired: {}", ex.getMessage());
-            throw ex;
+    static boolean isWellFormed(String token) {
+        if (token == null || token.length() < MIN_TOKEN_LENGTH || token.length() > MAX_TOKEN_LENGTH
+                || !token.startsWith(JSON_OBJECT_PREFIX)) {
+            return false;
+        }
+        int dots = 0;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                dots++;
+            } else if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return false;
+            }
         }
+        return dots == 2 && token.charAt(token.length() - 1) != '.';
     }
 }
@@ -0,0 +1,22 @@
+package com.example.LoginDemo.config;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a read that must see the latest committed writes, such as the token check right after a
+ * login or a sign-out. It runs in a read-write transaction, which {@link ReplicaRoutingDataSource}
+ * always sends to the primary, so a lagging replica cannot reject a fresh token or accept a
+ * revoked one. Plain reads keep {@code @Transactional(readOnly = true)} and may use a replica.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional
+public @interface PrimaryRead {
+}
@@ -0,0 +1,98 @@
+package com.example.LoginDemo.config;
+
+import com.example.LoginDemo.controller.AuthHandler;
+import io.r2dbc.spi.ConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Web, security and data configuration for the non-blocking "reactive" profile.
+ * Replaces {@link SecurityConfig}, {@link WebConfig} and the annotated controllers
+ * when the application runs on WebFlux and R2DBC.
+ */
+@Configuration
+@Profile("reactive")
+@EnableWebFluxSecurity
+public class ReactiveWebConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveWebConfig.class);
+
+    /**
+     * Routes the /v1/auth endpoints to the functional handlers.
+     *
+     * @param handler the auth handler
+     * @return the router function
+     */
+    @Bean
+    public RouterFunction<ServerResponse> authRoutes(AuthHandler handler) {
+        logger.info("Configuring reactive auth routes");
+        return route(POST("/v1/auth/login"), handler::login)
+                .andRoute(POST("/v1/auth/redeem"), handler::redeem)
+                .andRoute(GET("/v1/auth/validate"), handler::validate)
+                .andRoute(POST("/v1/auth/add-user"), handler::addUser)
+                .andRoute(GET("/v1/auth/users"), handler::getAllUsers)
+                .andRoute(POST("/v1/auth/logout"), handler::logout)
+                .andRoute(POST("/v1/auth/increment"), handler::increment)
+                .andRoute(GET("/"), request -> ServerResponse.temporaryRedirect(URI.create("/index.html")).build());
+    }
+
+    /**
+     * Mirrors the servlet security settings: CSRF disabled and every exchange permitted.
+     *
+     * @param http the ServerHttpSecurity configuration object
+     * @return a SecurityWebFilterChain instance
+     */
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        logger.info("Configuring reactive security filter chain");
+        return http.csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .authorizeExchange(exchanges -> exchanges.anyExchange().permitAll())
+                .build();
+    }
+
+    /**
+     * Applies the same CORS policy as {@link WebConfig}.
+     *
+     * @return the CORS web filter
+     */
+    @Bean
+    public CorsWebFilter corsWebFilter() {
+        CorsConfiguration config = new CorsConfiguration();
+        config.setAllowedOrigins(List.of("*"));
+        config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        config.setAllowedHeaders(List.of("*"));
+
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", config);
+        return new CorsWebFilter(source);
+    }
+
+    /**
+     * Database client used by the reactive DAOs.
+     *
+     * @param connectionFactory the pooled R2DBC connection factory
+     * @return the database client
+     */
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+}
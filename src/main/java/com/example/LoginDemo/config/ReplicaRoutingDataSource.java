@@ -0,0 +1,161 @@
+package com.example.LoginDemo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes read-only transactions to healthy replica pools (round robin) and everything else to
+ * the primary. Replicas are probed on a fixed interval; a replica that fails the probe or lags
+ * more than the configured maximum is skipped, and when no replica is usable reads fall back
+ * to the primary. Reads that must see the latest writes are marked {@link PrimaryRead}, which
+ * makes them read-write transactions and so keeps them on the primary.
+ * <p>
+ * Must be wrapped in a LazyConnectionDataSourceProxy: the read-only flag of a transaction is
+ * only known after the transaction manager has begun it, which is after it asks for a connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    // Replay lag in seconds; zero on a primary or when the replica has replayed everything it received
+    private static final String LAG_QUERY =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+                    "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final HikariDataSource primary;
+    private final List<ReplicaPool> replicas;
+    private final Duration maxLag;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Counter primaryRoutes;
+    private final Counter fallbackRoutes;
+    private final ScheduledExecutorService healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "replica-health");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A replica pool together with its last observed health.
+     */
+    static class ReplicaPool {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private final Counter routes;
+        private volatile boolean healthy;
+        private volatile double lagSeconds;
+
+        ReplicaPool(String name, HikariDataSource dataSource, MeterRegistry registry) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.routes = Counter.builder("app.datasource.routed").tag("pool", name).register(registry);
+            Gauge.builder("app.datasource.replica.lag", this, pool -> pool.lagSeconds)
+                    .tag("pool", name).baseUnit("seconds").register(registry);
+            Gauge.builder("app.datasource.replica.healthy", this, pool -> pool.healthy ? 1 : 0)
+                    .tag("pool", name).register(registry);
+        }
+
+        String getName() { return name; }
+        HikariDataSource getDataSource() { return dataSource; }
+    }
+
+    /**
+     * Creates the routing data source and starts probing the replicas.
+     *
+     * @param primary the primary pool
+     * @param replicas the replica pools
+     * @param maxLag the largest replay lag at which a replica still serves reads
+     * @param healthCheckInterval the probe interval
+     * @param registry the meter registry for routing metrics
+     */
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, Duration maxLag,
+                                    Duration healthCheckInterval, MeterRegistry registry) {
+        this.primary = primary;
+        this.replicas = replicas.stream()
+                .map(dataSource -> new ReplicaPool(dataSource.getPoolName(), dataSource, registry))
+                .toList();
+        this.maxLag = maxLag;
+        this.primaryRoutes = Counter.builder("app.datasource.routed").tag("pool", PRIMARY).register(registry);
+        this.fallbackRoutes = Counter.builder("app.datasource.routed.fallback").register(registry);
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        this.replicas.forEach(pool -> targets.put(pool.getName(), pool.getDataSource()));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        checkReplicas();
+        long intervalMillis = healthCheckInterval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || replicas.isEmpty()) {
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            ReplicaPool pool = replicas.get((start + i) % replicas.size());
+            if (pool.healthy) {
+                pool.routes.increment();
+                return pool.getName();
+            }
+        }
+        fallbackRoutes.increment();
+        primaryRoutes.increment();
+        return PRIMARY;
+    }
+
+    /**
+     * Probes every replica for availability and replay lag.
+     */
+    void checkReplicas() {
+        for (ReplicaPool pool : replicas) {
+            try (Connection connection = pool.getDataSource().getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+                double lag = rs.next() ? rs.getDouble(1) : Double.MAX_VALUE;
+                boolean healthy = lag <= maxLag.toMillis() / 1000.0;
+                if (healthy != pool.healthy) {
+                    logger.info("Replica {} is now {} (lag {}s)", pool.getName(), healthy ? "in rotation" : "lagging", lag);
+                }
+                pool.lagSeconds = lag;
+                pool.healthy = healthy;
+            } catch (SQLException | RuntimeException e) {
+                if (pool.healthy) {
+                    logger.warn("Replica {} failed its health check: {}", pool.getName(), e.getMessage());
+                }
+                pool.healthy = false;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        replicas.forEach(pool -> pool.getDataSource().close());
+        primary.close();
+    }
+}
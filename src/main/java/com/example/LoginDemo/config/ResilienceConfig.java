@@ -0,0 +1,123 @@
+package com.example.LoginDemo.config;
+
+import com.example.LoginDemo.monitoring.ContextPropagatingTaskDecorator;
+import com.example.LoginDemo.resilience.CircuitBreaker;
+import com.example.LoginDemo.resilience.GuardedDependency;
+import com.example.LoginDemo.resilience.SemaphoreBulkhead;
+import com.example.LoginDemo.resilience.ThreadPoolBulkhead;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts SMTP and the database behind their own bulkheads and circuit breakers, so a hanging mail
+ * server or a struggling database fails fast instead of holding every request thread.
+ * <p>
+ * The {@code databaseDependency} guards each statement of the {@code ProfilingJdbcTemplate}. The
+ * application DataSource is wrapped in a {@link LazyConnectionDataSourceProxy}, so connections
+ * are fetched by the first statement of a transaction, inside the guard; an unreachable database
+ * then counts against the breaker, and an open breaker refuses the statement before it waits for
+ * the pool.
+ */
+@Configuration
+@EnableConfigurationProperties(ResilienceProperties.class)
+public class ResilienceConfig {
+
+    public static final String SMTP = "smtp";
+    public static final String DATABASE = "database";
+
+    /**
+     * Guards SMTP sends with a thread pool bulkhead and a timeout.
+     *
+     * @param properties the resilience settings
+     * @param decorator carries the caller's correlation ID and trace to the SMTP threads
+     * @param registry receives the dependency's metrics
+     * @return the guarded SMTP dependency
+     */
+    @Bean(destroyMethod = "close")
+    public GuardedDependency smtpDependency(ResilienceProperties properties, ContextPropagatingTaskDecorator decorator,
+                                            MeterRegistry registry) {
+        ResilienceProperties.Smtp smtp = properties.getSmtp();
+        GuardedDependency dependency = new GuardedDependency(SMTP, breaker(SMTP, smtp.getBreaker()),
+                new ThreadPoolBulkhead(SMTP, smtp.getThreads(), smtp.getQueueCapacity(), smtp.getTimeout(),
+                        decorator::decorate),
+                // A message that cannot be built says nothing about the mail server
+                e -> !(e instanceof MailPreparationException) && !(e instanceof MailParseException));
+        registerMetrics(dependency, registry);
+        return dependency;
+    }
+
+    /**
+     * Guards JDBC statements with a semaphore bulkhead. Only failures to reach the database or
+     * to finish in time count against the breaker, not constraint violations or lock conflicts.
+     *
+     * @param properties the resilience settings
+     * @param registry receives the dependency's metrics
+     * @return the guarded database dependency
+     */
+    @Bean(destroyMethod = "close")
+    public GuardedDependency databaseDependency(ResilienceProperties properties, MeterRegistry registry) {
+        ResilienceProperties.Database database = properties.getDatabase();
+        GuardedDependency dependency = new GuardedDependency(DATABASE, breaker(DATABASE, database.getBreaker()),
+                new SemaphoreBulkhead(DATABASE, database.getMaxConcurrent(), database.getMaxWait()),
+                e -> e instanceof DataAccessResourceFailureException
+                        || e instanceof QueryTimeoutException
+                        || e instanceof TransientDataAccessResourceException
+                        || e instanceof RecoverableDataAccessException);
+        registerMetrics(dependency, registry);
+        return dependency;
+    }
+
+    /**
+     * Wraps the application DataSource so that connections are fetched on first use.
+     *
+     * @return the post-processor
+     */
+    @Bean
+    public static BeanPostProcessor lazyConnectionDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                    return new LazyConnectionDataSourceProxy(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static CircuitBreaker breaker(String name, ResilienceProperties.Breaker settings) {
+        return new CircuitBreaker(name, settings.getWindowSize(), settings.getMinimumCalls(),
+                settings.getFailureRatePercent(), settings.getOpenDuration(), settings.getProbes(), System::nanoTime);
+    }
+
+    private static void registerMetrics(GuardedDependency dependency, MeterRegistry registry) {
+        Gauge.builder("app.resilience.state", dependency, d -> d.getState().ordinal())
+                .tag("dependency", dependency.getName())
+                .description("0 closed, 1 open, 2 half-open")
+                .register(registry);
+        Gauge.builder("app.resilience.bulkhead.available", dependency, GuardedDependency::availableSlots)
+                .tag("dependency", dependency.getName())
+                .register(registry);
+        for (GuardedDependency.Outcome outcome : GuardedDependency.Outcome.values()) {
+            FunctionCounter.builder("app.resilience.calls", dependency, d -> d.count(outcome))
+                    .tag("dependency", dependency.getName())
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.LoginDemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the bulkheads and circuit breakers around SMTP and the database
+ * ("app.resilience.*").
+ */
+@ConfigurationProperties(prefix = "app.resilience")
+public class ResilienceProperties {
+    private Smtp smtp = new Smtp();
+    private Database database = new Database();
+
+    public Smtp getSmtp() { return smtp; }
+    public void setSmtp(Smtp smtp) { this.smtp = smtp; }
+
+    public Database getDatabase() { return database; }
+    public void setDatabase(Database database) { this.database = database; }
+
+    /**
+     * SMTP sends run on their own threads and are abandoned after the timeout.
+     */
+    public static class Smtp {
+        private int threads = 4;
+        private int queueCapacity = 32;
+        private Duration timeout = Duration.ofSeconds(10);
+        private Breaker breaker = new Breaker(20, 5, Duration.ofSeconds(30), 1);
+
+        public int getThreads() { return threads; }
+        public void setThreads(int threads) { this.threads = threads; }
+
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+        public Duration getTimeout() { return timeout; }
+        public void setTimeout(Duration timeout) { this.timeout = timeout; }
+
+        public Breaker getBreaker() { return breaker; }
+        public void setBreaker(Breaker breaker) { this.breaker = breaker; }
+    }
+
+    /**
+     * Statements run on the caller's thread, bounded by a semaphore; their timeout is
+     * spring.jdbc.template.query-timeout.
+     */
+    public static class Database {
+        private int maxConcurrent = 32;
+        private Duration maxWait = Duration.ofMillis(500);
+        private Breaker breaker = new Breaker(100, 20, Duration.ofSeconds(5), 3);
+
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+
+        public Duration getMaxWait() { return maxWait; }
+        public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+
+        public Breaker getBreaker() { return breaker; }
+        public void setBreaker(Breaker breaker) { this.breaker = breaker; }
+    }
+
+    /**
+     * Circuit breaker settings.
+     */
+    public static class Breaker {
+        private int windowSize;
+        private int minimumCalls;
+        private int failureRatePercent = 50;
+        private Duration openDuration;
+        private int probes;
+
+        public Breaker() {
+        }
+
+        Breaker(int windowSize, int minimumCalls, Duration openDuration, int probes) {
+            this.windowSize = windowSize;
+            this.minimumCalls = minimumCalls;
+            this.openDuration = openDuration;
+            this.probes = probes;
+        }
+
+        public int getWindowSize() { return windowSize; }
+        public void setWindowSize(int windowSize) { this.windowSize = windowSize; }
+
+        public int getMinimumCalls() { return minimumCalls; }
+        public void setMinimumCalls(int minimumCalls) { this.minimumCalls = minimumCalls; }
+
+        public int getFailureRatePercent() { return failureRatePercent; }
+        public void setFailureRatePercent(int failureRatePercent) { this.failureRatePercent = failureRatePercent; }
+
+        public Duration getOpenDuration() { return openDuration; }
+        public void setOpenDuration(Duration openDuration) { this.openDuration = openDuration; }
+
+        public int getProbes() { return probes; }
+        public void setProbes(int probes) { this.probes = probes; }
+    }
+}
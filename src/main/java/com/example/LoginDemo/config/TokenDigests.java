@@ -0,0 +1,43 @@
+package com.example.LoginDemo.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 digests of tokens. Only the digest of a user's current token is stored, so the
+ * database holds no bearer credential; a presented token is checked by comparing digests.
+ */
+public final class TokenDigests {
+
+    /** Length of a digest in bytes. */
+    public static final int LENGTH = 32;
+
+    private TokenDigests() {
+    }
+
+    /**
+     * Computes the digest of a token.
+     *
+     * @param token the token
+     * @return the 32-byte digest
+     */
+    public static byte[] of(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Checks a token against a stored digest in constant time.
+     *
+     * @param digest the stored digest, or null if the user has no current token
+     * @param token the presented token
+     * @return true if the token is the one the digest was computed from
+     */
+    public static boolean matches(byte[] digest, String token) {
+        return digest != null && token != null && MessageDigest.isEqual(digest, of(token));
+    }
+}
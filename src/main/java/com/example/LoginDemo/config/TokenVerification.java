@@ -0,0 +1,58 @@
+package com.example.LoginDemo.config;
+
+import java.time.Instant;
+
+/**
+ * Outcome of verifying a JWT. Returned instead of thrown, so rejecting a bad token costs no
+ * exception on the caller's side.
+ *
+ * @param status whether the token was accepted, and why not
+ * @param subject the username, or null if rejected
+ * @param role the role claim, or null if rejected
+ * @param issuedAt the issue time, or null if rejected
+ */
+public record TokenVerification(Status status, String subject, String role, Instant issuedAt) {
+
+    /**
+     * Verification outcomes.
+     */
+    public enum Status {
+        /** Signature and expiry check out. */
+        VALID,
+        /** Not a compact JWS, or its header or claims could not be read. */
+        MALFORMED,
+        /** Well-formed, but not signed with our key. */
+        BAD_SIGNATURE,
+        /** Signed with our key, but past its expiry. */
+        EXPIRED
+    }
+
+    /**
+     * Creates the result for an accepted token.
+     *
+     * @param subject the username
+     * @param role the role claim
+     * @param issuedAt the issue time
+     * @return the result
+     */
+    public static TokenVerification valid(String subject, String role, Instant issuedAt) {
+        return new TokenVerification(Status.VALID, subject, role, issuedAt);
+    }
+
+    /**
+     * Creates the result for a rejected token.
+     *
+     * @param status why the token was rejected
+     * @return the result
+     */
+    public static TokenVerification rejected(Status status) {
+        return new TokenVerification(status, null, null, null);
+    }
+
+    /**
+     * @return true if the token was accepted
+     */
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+}
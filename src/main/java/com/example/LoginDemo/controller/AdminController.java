@@ -0,0 +1,118 @@
+package com.example.LoginDemo.controller;
+
+import com.example.LoginDemo.config.JwtUtil;
+import com.example.LoginDemo.config.TokenVerification;
+import com.example.LoginDemo.event.AuthEvent;
+import com.example.LoginDemo.exception.InvalidTokenException;
+import com.example.LoginDemo.monitoring.QueryProfiler;
+import com.example.LoginDemo.monitoring.RequestTracer;
+import com.example.LoginDemo.service.AuthEventJournal;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Controller for operational endpoints. Only administrators may call them.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/v1/admin")
+@CrossOrigin(origins = "*")
+public class AdminController {
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private QueryProfiler queryProfiler;
+
+    @Autowired
+    private RequestTracer requestTracer;
+
+    @Autowired(required = false)
+    private AuthEventJournal authEventJournal;
+
+    /**
+     * Returns latency histograms per SQL shape, the DAO methods issuing them and the last
+     * captured plan of slow statements, slowest first.
+     *
+     * @param token The JWT token for authentication.
+     * @return ResponseEntity containing the query statistics.
+     * @throws JwtException if the token is invalid or unauthorized.
+     */
+    @GetMapping("/queries")
+    public ResponseEntity<?> getQueryStats(@RequestHeader("Authorization") String token) {
+        requireAdmin(token);
+        return ResponseEntity.ok(queryProfiler.getStats());
+    }
+
+    /**
+     * Returns recently sampled and slow requests with their DB, JWT and SMTP span timings,
+     * newest first.
+     *
+     * @param token The JWT token for authentication.
+     * @param minMillis Only requests that took at least this many milliseconds.
+     * @param limit Maximum number of traces.
+     * @return ResponseEntity containing the traces.
+     * @throws JwtException if the token is invalid or unauthorized.
+     */
+    @GetMapping("/traces")
+    public ResponseEntity<?> getTraces(@RequestHeader("Authorization") String token,
+                                       @RequestParam(defaultValue = "0") long minMillis,
+                                       @RequestParam(defaultValue = "50") int limit) {
+        requireAdmin(token);
+        return ResponseEntity.ok(requestTracer.recent(Duration.ofMillis(minMillis), limit));
+    }
+
+    /**
+     * Returns journaled authentication events for an audit, oldest first.
+     *
+     * @param token The JWT token for authentication.
+     * @param email Only events of this user; all users if omitted.
+     * @param type Only events of this type; all types if omitted.
+     * @param sinceMinutes Only events of the last this many minutes.
+     * @param limit Maximum number of events.
+     * @return ResponseEntity containing the events, or 404 if the journal is disabled.
+     * @throws JwtException if the token is invalid or unauthorized.
+     */
+    @GetMapping("/audit")
+    public ResponseEntity<?> getAuditEvents(@RequestHeader("Authorization") String token,
+                                            @RequestParam(required = false) String email,
+                                            @RequestParam(required = false) AuthEvent.Type type,
+                                            @RequestParam(defaultValue = "1440") long sinceMinutes,
+                                            @RequestParam(defaultValue = "100") int limit) {
+        requireAdmin(token);
+        if (authEventJournal == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Auth event journal is disabled");
+        }
+        Instant since = Instant.now().minus(Duration.ofMinutes(sinceMinutes));
+        return ResponseEntity.ok(authEventJournal.find(email, type, since, limit));
+    }
+
+    /**
+     * Verifies that the Authorization header carries a valid ADMIN token. Rejections are not
+     * logged here; JwtUtil reports them in aggregate.
+     *
+     * @param token the Authorization header value
+     * @throws JwtException if the token is invalid or unauthorized
+     */
+    private void requireAdmin(String token) {
+        if (!token.startsWith("Bearer ")) {
+            throw new InvalidTokenException(TokenVerification.Status.MALFORMED, "Invalid token format");
+        }
+
+        TokenVerification verification = jwtUtil.verify(token.substring(7));
+        if (!verification.isValid() || !"ADMIN".equals(verification.role())) {
+            throw new InvalidTokenException(verification.status(), "Unauthorized access");
+        }
+    }
+}
@@ -1,23 +1,46 @@
 package com.example.LoginDemo.controller;
 
 import com.example.LoginDemo.config.JwtUtil;
-import com.example.LoginDemo.model.User;
+import com.example.LoginDemo.config.TokenVerification;
+import com.example.LoginDemo.exception.InvalidTokenException;
+import com.example.LoginDemo.model.ActiveSession;
+import com.example.LoginDemo.model.BrowserSessionKey;
+import com.example.LoginDemo.model.TokenIntrospection;
+import com.example.LoginDemo.model.UserAuthView;
+import com.example.LoginDemo.model.UserDirectoryEntry;
+import com.example.LoginDemo.model.UserSearchHit;
 import com.example.LoginDemo.service.AuthService;
+import com.example.LoginDemo.service.CounterStreamService;
 import com.example.LoginDemo.service.EmailService;
+import com.example.LoginDemo.service.LeaderboardService;
+import com.example.LoginDemo.service.MagicLinkCodeService;
+import com.example.LoginDemo.service.SessionActivityTracker;
+import com.example.LoginDemo.service.TokenIntrospectionService;
+import com.example.LoginDemo.service.UserDirectoryService;
+import com.example.LoginDemo.service.UserSearchService;
 import io.jsonwebtoken.JwtException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Controller for handling authentication operations using database storage.
  */
 @RestController
+@Profile("!reactive")
 @RequestMapping("/v1/auth")
 @CrossOrigin(origins = "*")
 public class AuthController {
@@ -32,8 +55,38 @@ public class AuthController {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private MagicLinkCodeService magicLinkCodeService;
+
+    @Autowired
+    private UserDirectoryService userDirectoryService;
+
+    @Autowired
+    private SessionActivityTracker sessionActivityTracker;
+
+    @Autowired
+    private CounterStreamService counterStreamService;
+
+    @Autowired
+    private TokenIntrospectionService tokenIntrospectionService;
+
+    @Autowired
+    private UserSearchService userSearchService;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Value("${app.introspect.max-tokens:100}")
+    private int maxIntrospectTokens;
+
+    @Value("${app.introspect.client-secret:}")
+    private String introspectClientSecret;
+
+    @Value("${app.leaderboard.max-size:100}")
+    private int maxLeaderboardSize;
+
     /**
-     * Handles user login and sends a magic link via email.
+     * Handles user login and sends a magic link with a one-time code via email.
      *
      * @param request The login request containing email and browser ID.
      * @return LoginResponse containing status and message.
@@ -45,41 +98,73 @@ public class AuthController {
         logger.info("Login attempt - Email: {}", email);
 
         if (authService.isValidEmail(email)) {
-            User user = authService.getUserByEmail(email);
-            String token = jwtUtil.generateToken(email, user.getRole());
+            UserAuthView user = authService.getAuthView(email);
+            String code = magicLinkCodeService.issue(email);
+            emailService.sendMagicLink(email, code);
 
-            // Update user's token in database
-            authService.updateUserToken(email, token);
-            emailService.sendMagicLink(email, token);
-
-            return new LoginResponse(null, email, null, user.getCounter(),
-                    false, "Email sent successfully", user.getRole());
+            return new LoginResponse(null, email, null, user.counter(),
+                    false, "Email sent successfully", user.role());
         }
 
         logger.warn("Invalid email login attempt: {}", email);
         throw new IllegalArgumentException("Invalid email format.");
     }
 
+    /**
+     * Redeems the one-time code of a magic link for a session token and establishes a browser session.
+     *
+     * @param request The request containing the code and browser ID.
+     * @return LoginResponse containing the new token and user details.
+     * @throws IllegalArgumentException if the code is unknown, already redeemed or expired.
+     */
+    @PostMapping("/redeem")
+    public LoginResponse redeemCode(@RequestBody RedeemRequest request) {
+        String browserId = request.getBrowserId();
+        String email = magicLinkCodeService.redeem(request.getCode()).orElseThrow(() -> {
+            logger.warn("Magic-link code redemption failed - BrowserId: {}", browserId);
+            return new IllegalArgumentException("Invalid or expired login link.");
+        });
+
+        UserAuthView user = authService.getAuthView(email);
+        String token = jwtUtil.generateToken(email, user.role());
+
+        // Update user's token in database
+        authService.updateUserToken(email, token);
+        authService.addUserSession(email, browserId);
+        sessionActivityTracker.touch(email, browserId);
+
+        logger.info("Magic-link code redeemed - Email: {}, BrowserId: {}, Role: {}", email, browserId, user.role());
+        return new LoginResponse(token, email, browserId, user.counter(), false, "Login successful", user.role());
+    }
+
     /**
      * Validates a JWT token and establishes a browser session.
      *
      * @param token The JWT token.
      * @param browserId The browser ID.
      * @return LoginResponse containing user details if valid.
+     * @throws InvalidTokenException if the token is rejected or no longer current.
      */
     @GetMapping("/validate")
     public LoginResponse validateToken(@RequestParam String token, @RequestParam String browserId) {
-        if (token != null && jwtUtil.isValidToken(token)) {
-            String email = jwtUtil.extractUsername(token);
-            User user = authService.getUserByEmail(email);
-
-            if (token.equals(user.getCurrentToken())) {
-                // Add browser session to database
-                if(!authService.isActiveBrowserSession(browserId)){
-                    authService.addUserSession(email, browserId);
+        TokenVerification verification = jwtUtil.verify(token);
+        if (verification.isValid()) {
+            String email = verification.subject();
+            UserAuthView user = authService.getAuthView(email);
+
+            if (user.isCurrentToken(token)) {
+                // A browser signed out remotely cannot come back with the token it was signed out with
+                if (authService.isSignedOutSince(email, browserId, verification.issuedAt())) {
+                    logger.debug("Token validation rejected for signed-out browser - Email: {}, BrowserId: {}",
+                            email, browserId);
+                    throw new InvalidTokenException(verification.status(), "Browser was signed out.");
                 }
 
-                String role = jwtUtil.extractRole(token);
+                // Add browser session to database unless the browser already has one
+                authService.addUserSession(email, browserId);
+                sessionActivityTracker.touch(email, browserId);
+
+                String role = verification.role();
                 logger.info("Token validation successful - Email: {}, BrowserId: {}, Role: {}",
                         email, browserId, role);
 
@@ -87,7 +172,7 @@ public class AuthController {
                         token,
                         email,
                         browserId,
-                        user.getCounter(),
+                        user.counter(),
                         false,
                         "Login successful",
                         role
@@ -95,8 +180,37 @@ public class AuthController {
             }
         }
 
-        logger.warn("Token validation failed for token: {}", token);
-        throw new IllegalArgumentException("Invalid token.");
+        // Rejected tokens are logged in aggregate by JwtUtil
+        throw new InvalidTokenException(verification.status(), "Invalid token.");
+    }
+
+    /**
+     * Introspects a batch of tokens for internal services: every token is verified and checked
+     * against its user's current token, with one user lookup for the whole batch. Callers
+     * authenticate with the shared {@code app.introspect.client-secret}; without one configured
+     * the endpoint rejects every call.
+     *
+     * @param request The request containing the tokens.
+     * @param secret The X-Introspect-Secret header.
+     * @return ResponseEntity with one result per token, in request order; 400 if the batch is
+     *         empty or larger than {@code app.introspect.max-tokens}.
+     * @throws JwtException if the caller's secret is missing or wrong.
+     */
+    @PostMapping("/introspect")
+    public ResponseEntity<?> introspect(@RequestBody IntrospectRequest request,
+                                        @RequestHeader(value = "X-Introspect-Secret", required = false) String secret) {
+        if (introspectClientSecret.isEmpty() || secret == null || !MessageDigest.isEqual(
+                introspectClientSecret.getBytes(StandardCharsets.UTF_8), secret.getBytes(StandardCharsets.UTF_8))) {
+            logger.warn("Rejected introspection call without a valid client secret");
+            throw new JwtException("Unauthorized access");
+        }
+        List<String> tokens = request.getTokens();
+        if (tokens == null || tokens.isEmpty() || tokens.size() > maxIntrospectTokens) {
+            logger.warn("Rejected introspection batch of {} token(s)", tokens == null ? 0 : tokens.size());
+            return ResponseEntity.badRequest()
+                    .body(new IntrospectResponse(List.of(), "Between 1 and " + maxIntrospectTokens + " tokens required."));
+        }
+        return ResponseEntity.ok(new IntrospectResponse(tokenIntrospectionService.introspect(tokens), null));
     }
 
     /**
@@ -110,27 +224,15 @@ public class AuthController {
     @PostMapping("/add-user")
     public ResponseEntity<?> addUser(@RequestBody AddUserRequest request,
                                      @RequestHeader("Authorization") String token) {
-        try {
-            if (!token.startsWith("Bearer ")) {
-                throw new JwtException("Invalid token format");
-            }
-
-            String jwtToken = token.substring(7);
-            if (!jwtUtil.isValidToken(jwtToken) ||
-                    !"ADMIN".equals(jwtUtil.extractRole(jwtToken))) {
-                throw new JwtException("Unauthorized access");
-            }
-
-            authService.addUser(request.getEmail(), request.getUsername(), "USER");
-            return ResponseEntity.ok("User added successfully");
-        } catch (Exception e) {
-            logger.error("Error adding user: {}", e.getMessage());
-            throw e;
-        }
+        requireAdmin(token);
+        authService.addUser(request.getEmail(), request.getUsername(), "USER");
+        return ResponseEntity.ok("User added successfully");
     }
 
     /**
      * Retrieves a list of all non-admin users in the system.
+     * The body is served from a pre-serialized snapshot with ETag and Last-Modified headers,
+     * so conditional polls are answered with 304 while the users table is unchanged.
      *
      * @param token The JWT token for authentication.
      * @return ResponseEntity containing a list of non-admin users.
@@ -138,33 +240,63 @@ public class AuthController {
      */
     @GetMapping("/users")
     public ResponseEntity<?> getAllUsers(@RequestHeader("Authorization") String token) {
-        try {
-            if (!token.startsWith("Bearer ")) {
-                throw new JwtException("Invalid token format");
-            }
+        requireAdmin(token);
+        UserDirectoryService.Snapshot directory = userDirectoryService.getDirectory();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(directory.etag())
+                .lastModified(directory.lastModified())
+                .body(directory.body());
+    }
 
-            String jwtToken = token.substring(7);
-            if (!jwtUtil.isValidToken(jwtToken) ||
-                    !"ADMIN".equals(jwtUtil.extractRole(jwtToken))) {
-                throw new JwtException("Unauthorized access");
-            }
+    /**
+     * Searches the non-admin users by email or username prefix, tolerating typos. Only
+     * administrators are allowed to perform this action.
+     *
+     * @param token The JWT token for authentication.
+     * @param q The query, 2 to 64 characters.
+     * @param limit The maximum number of results, 1 to 100.
+     * @param offset The number of best results to skip, at most 1000.
+     * @return ResponseEntity with the results, best first; 400 if a parameter is out of range.
+     * @throws JwtException if the token is invalid or unauthorized.
+     */
+    @GetMapping("/users/search")
+    public ResponseEntity<?> searchUsers(@RequestHeader("Authorization") String token,
+                                         @RequestParam String q,
+                                         @RequestParam(defaultValue = "20") int limit,
+                                         @RequestParam(defaultValue = "0") int offset) {
+        requireAdmin(token);
+
+        int length = q.strip().length();
+        if (length < 2 || length > 64 || limit < 1 || limit > 100 || offset < 0 || offset > 1000) {
+            return ResponseEntity.badRequest().body(new UserSearchResponse(List.of(), false,
+                    "Query of 2 to 64 characters, limit of 1 to 100 and offset of at most 1000 required."));
+        }
 
-            Map<String, Map<String, Object>> userDetails = new HashMap<>();
-            authService.getAllUsers().forEach(user -> {
-                if (!"ADMIN".equalsIgnoreCase(user.getRole())) {
-                    Map<String, Object> details = new HashMap<>();
-                    details.put("username", user.getUsername());
-                    details.put("role", user.getRole());
-                    details.put("counter", user.getCounter());
-                    userDetails.put(user.getEmail(), details);
-                }
-            });
+        UserSearchService.Page page = userSearchService.search(q, limit, offset);
+        return ResponseEntity.ok(new UserSearchResponse(page.hits(), page.hasMore(), null));
+    }
 
-            return ResponseEntity.ok(userDetails);
-        } catch (Exception e) {
-            logger.error("Error fetching users: {}", e.getMessage());
-            throw e;
+    /**
+     * Returns the users with the highest counters. Served from memory, so it never queries the
+     * database. Only administrators are allowed to perform this action.
+     *
+     * @param token The JWT token for authentication.
+     * @param limit The number of users, 1 to {@code app.leaderboard.max-size}.
+     * @return ResponseEntity with the users, highest counter first; 400 if the limit is out of range.
+     * @throws JwtException if the token is invalid or unauthorized.
+     */
+    @GetMapping("/leaderboard")
+    public ResponseEntity<?> getLeaderboard(@RequestHeader("Authorization") String token,
+                                            @RequestParam(defaultValue = "10") int limit) {
+        requireAdmin(token);
+
+        if (limit < 1 || limit > maxLeaderboardSize) {
+            return ResponseEntity.badRequest()
+                    .body(new LeaderboardResponse(List.of(), "Limit of 1 to " + maxLeaderboardSize + " required."));
         }
+        return ResponseEntity.ok(new LeaderboardResponse(leaderboardService.getTop(limit), null));
     }
 
     /**
@@ -191,28 +323,171 @@ public class AuthController {
 
 
     /**
-     * Increments the user's counter if the provided JWT token is valid.
+     * Increments the user's counter if the provided JWT token is valid and the browser is
+     * still signed in.
      *
-     * @param request The request object containing the user's JWT token.
+     * @param request The request object containing the user's JWT token and browser ID.
      * @return CounterResponse containing the updated counter value and success status.
-     * @throws IllegalArgumentException if the token is invalid.
+     * @throws InvalidTokenException if the token is rejected, no longer current, or the browser
+     *         was signed out.
      */
     @PostMapping("/increment")
     public CounterResponse incrementCounter(@RequestBody IncrementRequest request) {
         String token = request.getToken();
-        if (token != null && jwtUtil.isValidToken(token)) {
-            String email = jwtUtil.extractUsername(token);
-            User user = authService.getUserByEmail(email);
+        TokenVerification verification = jwtUtil.verify(token);
+        if (verification.isValid()) {
+            String email = verification.subject();
+            UserAuthView user = authService.getAuthView(email);
 
-            if (token.equals(user.getCurrentToken())) {
+            String browserId = request.getBrowserId();
+            if (user.isCurrentToken(token) && authService.hasActiveSession(email, browserId)) {
                 int newCount = authService.incrementCounter(email);
+                sessionActivityTracker.touch(email, browserId);
                 logger.info("Counter incremented - User: {}, New Count: {}", email, newCount);
                 return new CounterResponse(newCount, true);
             }
         }
 
-        logger.warn("Counter increment failed for token: {}", token);
-        throw new IllegalArgumentException("Invalid token for counter increment.");
+        throw new InvalidTokenException(verification.status(), "Invalid token for counter increment.");
+    }
+
+    /**
+     * Issues a short-lived, single-use ticket that opens the counter stream of a signed-in
+     * browser, so the session token never appears in a URL.
+     *
+     * @param token The JWT token for authentication.
+     * @param browserId The calling browser's ID, which must be signed in.
+     * @return the ticket, valid for {@code app.counter-stream.ticket-ttl}.
+     * @throws JwtException if the token is invalid, no longer current, or the browser was signed out.
+     */
+    @PostMapping("/counter/stream/ticket")
+    public StreamTicketResponse issueStreamTicket(@RequestHeader("Authorization") String token,
+                                                  @RequestParam String browserId) {
+        String email = requireCurrentUser(token, browserId);
+        return new StreamTicketResponse(counterStreamService.issueTicket(email, browserId));
+    }
+
+    /**
+     * Opens a server-sent event stream of the user's counter for a signed-in browser session.
+     * Sends a {@code counter} event with the current value, then one per change made from any
+     * browser, and {@code signedOut} when the session ends.
+     *
+     * @param ticket A ticket from {@code /counter/stream/ticket} (a query parameter, as
+     *               EventSource cannot set headers).
+     * @return the event stream.
+     * @throws InvalidTokenException if the ticket is unknown, used or expired, or the browser is
+     *         no longer signed in.
+     */
+    @GetMapping(value = "/counter/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCounter(@RequestParam String ticket) {
+        Optional<BrowserSessionKey> session = counterStreamService.redeemTicket(ticket);
+        if (session.isPresent()) {
+            String email = session.get().email();
+            String browserId = session.get().browserId();
+            if (authService.hasActiveSession(email, browserId)) {
+                sessionActivityTracker.touch(email, browserId);
+                return counterStreamService.subscribe(email, browserId, authService.getAuthView(email).counter());
+            }
+        }
+
+        logger.debug("Counter stream rejected for an unknown, used or expired ticket");
+        throw new InvalidTokenException(TokenVerification.Status.VALID, "Invalid ticket for counter stream.");
+    }
+
+    /**
+     * Lists the active browser sessions of the authenticated user.
+     *
+     * @param token The JWT token for authentication.
+     * @param browserId The calling browser's ID, which must be signed in.
+     * @return the active sessions with browser ID, created and last-seen times.
+     * @throws JwtException if the token is invalid, no longer current, or the browser was signed out.
+     */
+    @GetMapping("/sessions")
+    public List<ActiveSession> getSessions(@RequestHeader("Authorization") String token,
+                                           @RequestParam String browserId) {
+        String email = requireCurrentUser(token, browserId);
+        sessionActivityTracker.touch(email, browserId);
+        return authService.getActiveSessions(email);
+    }
+
+    /**
+     * Signs out one of the authenticated user's browser sessions remotely.
+     *
+     * @param token The JWT token for authentication.
+     * @param sessionId The ID of the session to revoke.
+     * @param browserId The calling browser's ID, which must be signed in.
+     * @return ResponseEntity containing the revocation result; 404 if there is no such active session.
+     * @throws JwtException if the token is invalid, no longer current, or the browser was signed out.
+     */
+    @DeleteMapping("/sessions/{sessionId}")
+    public ResponseEntity<LogoutResponse> revokeSession(@RequestHeader("Authorization") String token,
+                                                        @PathVariable long sessionId,
+                                                        @RequestParam String browserId) {
+        String email = requireCurrentUser(token, browserId);
+        if (!authService.revokeSession(email, sessionId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new LogoutResponse(false, "Session not found."));
+        }
+        logger.info("User {} revoked session {}", email, sessionId);
+        return ResponseEntity.ok(new LogoutResponse(true, "Session signed out."));
+    }
+
+    /**
+     * Verifies that the Authorization header carries a valid ADMIN token. Rejections are not
+     * logged here; JwtUtil reports them in aggregate.
+     *
+     * @param token the Authorization header value
+     * @throws InvalidTokenException if the token is invalid or not an administrator's
+     */
+    private void requireAdmin(String token) {
+        if (!token.startsWith("Bearer ")) {
+            throw new InvalidTokenException(TokenVerification.Status.MALFORMED, "Invalid token format");
+        }
+
+        TokenVerification verification = jwtUtil.verify(token.substring(7));
+        if (!verification.isValid() || !"ADMIN".equals(verification.role())) {
+            throw new InvalidTokenException(verification.status(), "Unauthorized access");
+        }
+    }
+
+    /**
+     * Verifies that the Authorization header carries the user's current token and that the
+     * calling browser is still signed in. The token is shared by the user's browsers, so a
+     * browser signed out remotely is only told apart by its session.
+     *
+     * @param token the Authorization header value
+     * @param browserId the calling browser's ID
+     * @return the email of the authenticated user
+     * @throws JwtException if the token is invalid, no longer current, or the browser was signed out
+     */
+    private String requireCurrentUser(String token, String browserId) {
+        if (!token.startsWith("Bearer ")) {
+            throw new InvalidTokenException(TokenVerification.Status.MALFORMED, "Invalid token format");
+        }
+
+        String jwtToken = token.substring(7);
+        TokenVerification verification = jwtUtil.verify(jwtToken);
+        if (!verification.isValid()) {
+            throw new InvalidTokenException(verification.status(), "Unauthorized access");
+        }
+        String email = verification.subject();
+        if (!authService.getAuthView(email).isCurrentToken(jwtToken)
+                || !authService.hasActiveSession(email, browserId)) {
+            throw new InvalidTokenException(verification.status(), "Unauthorized access");
+        }
+        return email;
+    }
+
+    /**
+     * Request object for redeeming a magic-link code.
+     */
+    static class RedeemRequest {
+        private String code;
+        private String browserId;
+        public String getCode() { return code; }
+        public void setCode(String code) { this.code = code; }
+        public String getBrowserId() { return browserId; }
+        public void setBrowserId(String browserId) { this.browserId = browserId; }
     }
 
     /**
@@ -220,8 +495,11 @@ public class AuthController {
      */
     static class IncrementRequest {
         private String token;
+        private String browserId;
         public String getToken() { return token; }
         public void setToken(String token) { this.token = token; }
+        public String getBrowserId() { return browserId; }
+        public void setBrowserId(String browserId) { this.browserId = browserId; }
     }
 
     /**
@@ -315,6 +593,67 @@ public class AuthController {
         public void setBrowserId(String browserId) { this.browserId = browserId; }
     }
 
+    /**
+     * Request object for batch token introspection.
+     */
+    static class IntrospectRequest {
+        private List<String> tokens;
+
+        public List<String> getTokens() { return tokens; }
+        public void setTokens(List<String> tokens) { this.tokens = tokens; }
+    }
+
+    /**
+     * Response object for batch token introspection.
+     */
+    static class IntrospectResponse {
+        private final List<TokenIntrospection> results;
+        private final String msg;
+
+        public IntrospectResponse(List<TokenIntrospection> results, String msg) {
+            this.results = results;
+            this.msg = msg;
+        }
+
+        public List<TokenIntrospection> getResults() { return results; }
+        public String getMsg() { return msg; }
+    }
+
+    /**
+     * Response object for user search.
+     */
+    static class UserSearchResponse {
+        private final List<UserSearchHit> results;
+        private final boolean hasMore;
+        private final String msg;
+
+        public UserSearchResponse(List<UserSearchHit> results, boolean hasMore, String msg) {
+            this.results = results;
+            this.hasMore = hasMore;
+            this.msg = msg;
+        }
+
+        public List<UserSearchHit> getResults() { return results; }
+        public boolean isHasMore() { return hasMore; }
+        public String getMsg() { return msg; }
+    }
+
+    /**
+     * Response object for the counter leaderboard.
+     */
+    static class LeaderboardResponse {
+        private final List<UserDirectoryEntry> results;
+        private final String msg;
+
+        public LeaderboardResponse(List<UserDirectoryEntry> results, String msg) {
+            this.results = results;
+            this.msg = msg;
+        }
+
+        public List<UserDirectoryEntry> getResults() { return results; }
+        public String getMsg() { return msg; }
+    }
+
     /**
      * Request object for user logout.
      */
@@ -352,4 +691,22 @@ public class AuthController {
         public boolean isSuccess() { return success; }
         public String getMessage() { return message; }
     }
-}
\ No newline at end of file
+
+    /**
+     * Response object carrying a counter stream ticket.
+     */
+    static class StreamTicketResponse {
+        private String ticket;
+
+        /**
+         * Constructs a StreamTicketResponse.
+         *
+         * @param ticket The single-use stream ticket.
+         */
+        public StreamTicketResponse(String ticket) {
+            this.ticket = ticket;
+        }
+
+        public String getTicket() { return ticket; }
+    }
+}
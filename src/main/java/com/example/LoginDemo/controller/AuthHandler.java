@@ -0,0 +1,284 @@
+package com.example.LoginDemo.controller;
+
+import com.example.LoginDemo.config.JwtUtil;
+import com.example.LoginDemo.config.TokenDigests;
+import com.example.LoginDemo.config.TokenVerification;
+import com.example.LoginDemo.exception.InvalidTokenException;
+import com.example.LoginDemo.service.ReactiveAuthService;
+import com.example.LoginDemo.service.ReactiveEmailService;
+import com.example.LoginDemo.service.ReactiveMagicLinkCodeService;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Functional WebFlux handlers serving the {@link AuthController} endpoints on the
+ * non-blocking stack ("reactive" profile). Request and response bodies are the same
+ * DTOs as the servlet controller, so clients cannot tell the two stacks apart.
+ */
+@Component
+@Profile("reactive")
+public class AuthHandler {
+    private static final Logger logger = LoggerFactory.getLogger(AuthHandler.class);
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ReactiveAuthService authService;
+
+    @Autowired
+    private ReactiveEmailService emailService;
+
+    @Autowired
+    private ReactiveMagicLinkCodeService magicLinkCodeService;
+
+    /**
+     * Handles user login and sends a magic link with a one-time code via email.
+     *
+     * @param request the server request carrying a LoginRequest body
+     * @return LoginResponse containing status and message
+     */
+    public Mono<ServerResponse> login(ServerRequest request) {
+        return request.bodyToMono(AuthController.LoginRequest.class)
+                .flatMap(body -> {
+                    String email = body.getEmail();
+                    logger.info("Login attempt - Email: {}", email);
+                    return authService.isValidEmail(email)
+                            .flatMap(valid -> {
+                                if (!valid) {
+                                    logger.warn("Invalid email login attempt: {}", email);
+                                    return Mono.<AuthController.LoginResponse>error(new IllegalArgumentException("Invalid email format."));
+                                }
+                                return authService.getUserByEmail(email)
+                                        .flatMap(user -> magicLinkCodeService.issue(email)
+                                                .flatMap(code -> emailService.sendMagicLink(email, code))
+                                                .thenReturn(new AuthController.LoginResponse(null, email, null,
+                                                        user.getCounter(), false, "Email sent successfully", user.getRole())));
+                            });
+                })
+                .flatMap(this::ok)
+                .onErrorResume(this::error);
+    }
+
+    /**
+     * Redeems the one-time code of a magic link for a session token and establishes a browser session.
+     *
+     * @param request the server request carrying a RedeemRequest body
+     * @return LoginResponse containing the new token and user details
+     */
+    public Mono<ServerResponse> redeem(ServerRequest request) {
+        return request.bodyToMono(AuthController.RedeemRequest.class)
+                .flatMap(body -> {
+                    String browserId = body.getBrowserId();
+                    return magicLinkCodeService.redeem(body.getCode())
+                            .switchIfEmpty(Mono.defer(() -> {
+                                logger.warn("Magic-link code redemption failed - BrowserId: {}", browserId);
+                                return Mono.error(new IllegalArgumentException("Invalid or expired login link."));
+                            }))
+                            .flatMap(authService::getUserByEmail)
+                            .flatMap(user -> {
+                                String email = user.getEmail();
+                                String token = jwtUtil.generateToken(email, user.getRole());
+                                return authService.updateUserToken(email, token)
+                                        .then(authService.addUserSession(email, browserId))
+                                        .then(Mono.fromSupplier(() -> {
+                                            logger.info("Magic-link code redeemed - Email: {}, BrowserId: {}, Role: {}",
+                                                    email, browserId, user.getRole());
+                                            return new AuthController.LoginResponse(token, email, browserId,
+                                                    user.getCounter(), false, "Login successful", user.getRole());
+                                        }));
+                            });
+                })
+                .flatMap(this::ok)
+                .onErrorResume(this::error);
+    }
+
+    /**
+     * Validates a JWT token and establishes a browser session.
+     *
+     * @param request the server request carrying token and browserId query parameters
+     * @return LoginResponse containing user details if valid
+     */
+    public Mono<ServerResponse> validate(ServerRequest request) {
+        String token = request.queryParam("token").orElse(null);
+        String browserId = request.queryParam("browserId").orElse(null);
+
+        TokenVerification verification = jwtUtil.verify(token);
+        if (!verification.isValid()) {
+            // Rejected tokens are logged in aggregate by JwtUtil
+            return error(new InvalidTokenException(verification.status(), "Invalid token."));
+        }
+
+        String email = verification.subject();
+        return authService.getUserByEmail(email)
+                .flatMap(user -> {
+                    if (!TokenDigests.matches(user.getCurrentTokenHash(), token)) {
+                        return Mono.<AuthController.LoginResponse>error(
+                                new InvalidTokenException(verification.status(), "Invalid token."));
+                    }
+                    String role = verification.role();
+                    return authService.addUserSession(email, browserId)
+                            .then(Mono.fromSupplier(() -> {
+                                logger.info("Token validation successful - Email: {}, BrowserId: {}, Role: {}",
+                                        email, browserId, role);
+                                return new AuthController.LoginResponse(token, email, browserId, user.getCounter(),
+                                        false, "Login successful", role);
+                            }));
+                })
+                .flatMap(this::ok)
+                .onErrorResume(this::error);
+    }
+
+    /**
+     * Adds a new user to the system. Only administrators are allowed to perform this action.
+     *
+     * @param request the server request carrying an AddUserRequest body and Authorization header
+     * @return a confirmation message
+     */
+    public Mono<ServerResponse> addUser(ServerRequest request) {
+        return requireAdmin(request)
+                .then(request.bodyToMono(AuthController.AddUserRequest.class))
+                .flatMap(body -> authService.addUser(body.getEmail(), body.getUsername(), "USER"))
+                .then(Mono.defer(() -> ServerResponse.ok().bodyValue("User added successfully")))
+                .onErrorResume(this::error);
+    }
+
+    /**
+     * Retrieves a map of all non-admin users in the system.
+     *
+     * @param request the server request carrying the Authorization header
+     * @return the user details keyed by email
+     */
+    public Mono<ServerResponse> getAllUsers(ServerRequest request) {
+        return requireAdmin(request)
+                .thenMany(authService.getAllUsers())
+                .filter(user -> !"ADMIN".equalsIgnoreCase(user.getRole()))
+                .collectMap(user -> user.getEmail(), user -> {
+                    Map<String, Object> details = new HashMap<>();
+                    details.put("username", user.getUsername());
+                    details.put("role", user.getRole());
+                    details.put("counter", user.getCounter());
+                    return details;
+                })
+                .flatMap(this::ok)
+                .onErrorResume(this::error);
+    }
+
+    /**
+     * Logs out a user from either a single browser session or all sessions.
+     *
+     * @param request the server request carrying a LogoutRequest body
+     * @return LogoutResponse containing logout success message
+     */
+    public Mono<ServerResponse> logout(ServerRequest request) {
+        return request.bodyToMono(AuthController.LogoutRequest.class)
+                .flatMap(body -> authService.logout(body.getUsername(), body.getBrowserId(), body.isLogoutAll())
+                        .then(Mono.fromSupplier(() -> {
+                            String message = body.isLogoutAll() ?
+                                    "Logged out from all browsers." :
+                                    "Logged out from this browser only.";
+                            logger.info("User {} logged out. All sessions: {}", body.getUsername(), body.isLogoutAll());
+                            return new AuthController.LogoutResponse(true, message);
+                        })))
+                .flatMap(this::ok)
+                .onErrorResume(this::error);
+    }
+
+    /**
+     * Increments the user's counter if the provided JWT token is valid.
+     *
+     * @param request the server request carrying an IncrementRequest body
+     * @return CounterResponse containing the updated counter value
+     */
+    public Mono<ServerResponse> increment(ServerRequest request) {
+        return request.bodyToMono(AuthController.IncrementRequest.class)
+                .flatMap(body -> {
+                    String token = body.getToken();
+                    TokenVerification verification = jwtUtil.verify(token);
+                    if (!verification.isValid()) {
+                        return Mono.<AuthController.CounterResponse>error(
+                                new InvalidTokenException(verification.status(), "Invalid token for counter increment."));
+                    }
+                    String email = verification.subject();
+                    return authService.getUserByEmail(email)
+                            .flatMap(user -> {
+                                if (!TokenDigests.matches(user.getCurrentTokenHash(), token)) {
+                                    return Mono.<AuthController.CounterResponse>error(
+                                            new InvalidTokenException(verification.status(), "Invalid token for counter increment."));
+                                }
+                                return authService.incrementCounter(email)
+                                        .map(newCount -> {
+                                            logger.info("Counter incremented - User: {}, New Count: {}", email, newCount);
+                                            return new AuthController.CounterResponse(newCount, true);
+                                        });
+                            });
+                })
+                .flatMap(this::ok)
+                .onErrorResume(this::error);
+    }
+
+    /**
+     * Completes empty when the Authorization header carries a valid ADMIN token.
+     *
+     * @param request the server request
+     * @return an empty Mono, or an InvalidTokenException error
+     */
+    private Mono<Void> requireAdmin(ServerRequest request) {
+        String header = request.headers().firstHeader("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return Mono.error(new InvalidTokenException(TokenVerification.Status.MALFORMED, "Invalid token format"));
+        }
+        TokenVerification verification = jwtUtil.verify(header.substring(7));
+        if (!verification.isValid() || !"ADMIN".equals(verification.role())) {
+            return Mono.error(new InvalidTokenException(verification.status(), "Unauthorized access"));
+        }
+        return Mono.empty();
+    }
+
+    private Mono<ServerResponse> ok(Object body) {
+        return ServerResponse.ok().bodyValue(body);
+    }
+
+    /**
+     * Maps errors to the same status codes and bodies as {@code GlobalExceptionHandler}.
+     *
+     * @param ex the error raised by the pipeline
+     * @return the error response
+     */
+    private Mono<ServerResponse> error(Throwable ex) {
+        Map<String, String> response = new HashMap<>();
+        HttpStatus status;
+        if (ex instanceof InvalidTokenException invalid) {
+            // Not logged per request; JwtUtil reports rejections in aggregate
+            response.put("error", invalid.getStatus() == TokenVerification.Status.EXPIRED
+                    ? "JWT token has expired"
+                    : "Invalid or malformed JWT token");
+            status = HttpStatus.UNAUTHORIZED;
+        } else if (ex instanceof ExpiredJwtException) {
+            logger.debug("Expired JWT Token: {}", ex.getMessage());
+            response.put("error", "JWT token has expired");
+            status = HttpStatus.UNAUTHORIZED;
+        } else if (ex instanceof JwtException) {
+            logger.debug("JWT Exception: {}", ex.getMessage());
+            response.put("error", "Invalid or malformed JWT token");
+            status = HttpStatus.UNAUTHORIZED;
+        } else {
+            logger.error("Unhandled Exception: {}", ex.getMessage());
+            response.put("error", "An unexpected error occurred");
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+        }
+        return ServerResponse.status(status).bodyValue(response);
+    }
+}
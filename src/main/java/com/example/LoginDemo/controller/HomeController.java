@@ -2,6 +2,7 @@ package com.example.LoginDemo.controller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 
@@ -9,6 +10,7 @@ import org.springframework.web.bind.annotation.GetMapping;
  * Controller to handle home page redirection.
  */
 @Controller
+@Profile("!reactive")
 public class HomeController {
     private static final Logger logger = LoggerFactory.getLogger(HomeController.class);
 
@@ -0,0 +1,171 @@
+package com.example.LoginDemo.controller;
+
+import com.example.LoginDemo.config.JwtUtil;
+import com.example.LoginDemo.dao.UserStore;
+import com.example.LoginDemo.dao.UserSessionStore;
+import com.example.LoginDemo.model.ActiveSession;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exercises the request paths once the context is up, so the first real requests after a
+ * deploy do not pay for class loading, JIT compilation, empty connection pools and Jackson
+ * serializer lookups.
+ * <p>
+ * Runs as an ApplicationRunner: Spring Boot reports readiness (ACCEPTING_TRAFFIC, exposed at
+ * {@code /actuator/health/readiness}) only after all runners have finished, so traffic is routed
+ * to the instance once warm-up is done. Lives beside the controllers because it serializes their
+ * DTOs. Only reads are issued, with a synthetic email that matches no user.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class WarmUpRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpRunner.class);
+    private static final String WARMUP_EMAIL = "warmup@localhost.invalid";
+    private static final String WARMUP_BROWSER = "warmup";
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserStore userDAO;
+
+    @Autowired
+    private UserSessionStore sessionDAO;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.warmup.iterations:500}")
+    private int iterations;
+
+    @Value("${app.warmup.connections:4}")
+    private int connections;
+
+    private volatile long durationNanos = -1;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        TimeGauge.builder("app.warmup.duration", this, TimeUnit.NANOSECONDS, runner -> runner.durationNanos)
+                .description("Time spent warming up before reporting readiness")
+                .register(meterRegistry);
+
+        long start = System.nanoTime();
+        logger.info("Warming up ({} iterations)", iterations);
+        // Each phase on its own, so a database outage still leaves JWT and JSON warm
+        warmUp("connection pool", this::warmUpConnectionPool);
+        warmUp("JWT", this::warmUpJwt);
+        warmUp("DAO queries", this::warmUpQueries);
+        warmUp("JSON", this::warmUpJson);
+        durationNanos = System.nanoTime() - start;
+        logger.info("Warm-up finished in {} ms", TimeUnit.NANOSECONDS.toMillis(durationNanos));
+    }
+
+    private void warmUp(String phase, ThrowingRunnable work) {
+        long start = System.nanoTime();
+        try {
+            work.run();
+            logger.debug("Warmed up {} in {} ms", phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            logger.warn("Warm-up of {} failed, continuing: {}", phase, e.getMessage());
+        }
+    }
+
+    /**
+     * Opens connections one after another and holds them all until the last is open, so the
+     * pool has that many physical connections before the first requests need them.
+     */
+    private void warmUpConnectionPool() throws SQLException {
+        List<Connection> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < connections; i++) {
+                Connection connection = dataSource.getConnection();
+                held.add(connection);
+                // Forces the lazy connection proxy to fetch a physical connection
+                connection.isValid(2);
+            }
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+    }
+
+    private void warmUpJwt() {
+        // Generation happens once per sign-in, validation on every request
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tokens.add(jwtUtil.generateToken(WARMUP_EMAIL, i % 2 == 0 ? "USER" : "ADMIN"));
+        }
+        for (int i = 0; i < iterations; i++) {
+            // One verification per request, as the endpoints do
+            jwtUtil.verify(tokens.get(i % tokens.size()));
+        }
+    }
+
+    private void warmUpQueries() {
+        // Statements are prepared per connection, so spread the queries over the pool
+        int rounds = Math.max(1, Math.min(iterations / 10, 50));
+        for (int i = 0; i < rounds; i++) {
+            userDAO.existsByEmail(WARMUP_EMAIL);
+            userDAO.findAuthViewByEmail(WARMUP_EMAIL);
+            userDAO.findIdentityByEmail(WARMUP_EMAIL);
+            sessionDAO.findByUserEmailAndActive(WARMUP_EMAIL, true);
+            sessionDAO.findByUserEmailAndBrowserIdAndActive(WARMUP_EMAIL, WARMUP_BROWSER, true);
+            sessionDAO.findActiveSessions(WARMUP_EMAIL);
+            sessionDAO.signedOutSince(WARMUP_EMAIL, WARMUP_BROWSER, Instant.EPOCH);
+        }
+    }
+
+    private void warmUpJson() throws Exception {
+        List<ActiveSession> sessions = List.of(
+                new ActiveSession(1L, WARMUP_BROWSER, LocalDateTime.now(), LocalDateTime.now()));
+        for (int i = 0; i < iterations; i++) {
+            objectMapper.writeValueAsBytes(new AuthController.LoginResponse(
+                    "token", WARMUP_EMAIL, WARMUP_BROWSER, i, false, "Login successful", "USER"));
+            objectMapper.writeValueAsBytes(new AuthController.CounterResponse(i, true));
+            objectMapper.writeValueAsBytes(new AuthController.LogoutResponse(true, "Logged out from this browser only."));
+            objectMapper.writeValueAsBytes(sessions);
+            objectMapper.readValue("{\"email\":\"" + WARMUP_EMAIL + "\",\"browserId\":\"warmup\"}",
+                    AuthController.LoginRequest.class);
+            objectMapper.readValue("{\"token\":\"token\",\"browserId\":\"warmup\"}",
+                    AuthController.IncrementRequest.class);
+            objectMapper.readValue("{\"code\":\"code\",\"browserId\":\"warmup\"}",
+                    AuthController.RedeemRequest.class);
+            objectMapper.readValue("{\"username\":\"" + WARMUP_EMAIL + "\",\"browserId\":\"warmup\",\"logoutAll\":false}",
+                    AuthController.LogoutRequest.class);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
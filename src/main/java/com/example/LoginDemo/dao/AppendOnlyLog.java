@@ -0,0 +1,312 @@
+package com.example.LoginDemo.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe key/value log in one memory-mapped file, with an in-memory index of the latest
+ * record per key.
+ * <p>
+ * Every put or delete appends a record {@code [length][crc32][type][key length][key][value]}.
+ * The length is written last, so a record torn by a process crash reads as the end of the log;
+ * after a power loss the checksum catches partially persisted records. On open the log is
+ * replayed up to the first zero length or checksum mismatch, any torn tail is zeroed, and
+ * writing resumes there. The file is pre-sized and grows by remapping.
+ * <p>
+ * Superseded records and tombstones are dead bytes; {@link #compact()} copies the live records
+ * into a new file and atomically replaces the old one, so a crash during compaction leaves the
+ * old log intact. All methods are synchronized; the owning store serves reads from its own
+ * in-memory rows.
+ */
+public final class AppendOnlyLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppendOnlyLog.class);
+
+    private static final int HEADER = 8;
+    private static final int KEY_HEADER = 3;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int INITIAL_CAPACITY = 1 << 20;
+    // Compaction is skipped while the dead bytes are below this, however high their share
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * Position and total size (header included) of a record.
+     */
+    private record Slot(int position, int size) {
+    }
+
+    private final Path file;
+    private final boolean forceWrites;
+    private final Map<String, Slot> index = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+    private long liveBytes;
+
+    /**
+     * Opens or creates a log and replays it.
+     *
+     * @param file the log file
+     * @param forceWrites whether each append is forced to the storage device before returning;
+     *                    without it appends survive a process crash but not a power loss
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public AppendOnlyLog(Path file, boolean forceWrites) throws IOException {
+        this.file = file;
+        this.forceWrites = forceWrites;
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        // Left over by a compaction that did not finish; the log itself is still complete
+        Files.deleteIfExists(compactionFile());
+        open();
+    }
+
+    /**
+     * Appends the new value of a key.
+     *
+     * @param key the key, at most 65535 bytes in UTF-8
+     * @param value the value
+     * @throws IOException if the log cannot grow
+     */
+    public synchronized void put(String key, byte[] value) throws IOException {
+        append(PUT, key, value);
+    }
+
+    /**
+     * Appends a tombstone for a key, if it has a value.
+     *
+     * @param key the key
+     * @throws IOException if the log cannot grow
+     */
+    public synchronized void delete(String key) throws IOException {
+        if (index.containsKey(key)) {
+            append(DELETE, key, EMPTY);
+        }
+    }
+
+    /**
+     * Reads the latest value of a key.
+     *
+     * @param key the key
+     * @return a copy of the value, or null if the key has none
+     */
+    public synchronized byte[] get(String key) {
+        Slot slot = index.get(key);
+        return slot != null ? value(slot) : null;
+    }
+
+    /**
+     * Passes every live key and value to the action, in log order.
+     *
+     * @param action receives the key and a copy of its value
+     */
+    public synchronized void forEach(BiConsumer<String, byte[]> action) {
+        for (Slot slot : slotsInLogOrder()) {
+            action.accept(key(slot.position()), value(slot));
+        }
+    }
+
+    /**
+     * Returns the number of live keys.
+     *
+     * @return the number of keys with a value
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Returns the bytes taken by superseded records and tombstones.
+     *
+     * @return the bytes a compaction would free
+     */
+    public synchronized long deadBytes() {
+        return writePosition - liveBytes;
+    }
+
+    /**
+     * Compacts the log when at least half of it, and at least 1 MiB, is dead.
+     *
+     * @return true if the log was compacted
+     * @throws IOException if the compacted log cannot be written
+     */
+    public synchronized boolean compactIfWasteful() throws IOException {
+        long dead = deadBytes();
+        if (dead < MIN_COMPACTION_BYTES || dead < liveBytes) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    /**
+     * Rewrites the log with only the live records.
+     *
+     * @throws IOException if the compacted log cannot be written
+     */
+    public synchronized void compact() throws IOException {
+        long before = writePosition;
+        Path target = compactionFile();
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer copy = out.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(liveBytes, INITIAL_CAPACITY));
+            int position = 0;
+            for (Slot slot : slotsInLogOrder()) {
+                copy.put(position, buffer, slot.position(), slot.size());
+                position += slot.size();
+            }
+            copy.force();
+        }
+        channel.close();
+        Files.move(target, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        open();
+        logger.info("Compacted {} from {} to {} bytes ({} keys)", file, before, writePosition, index.size());
+    }
+
+    /**
+     * Forces pending appends to the storage device and closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Log file is larger than 2 GiB: " + file);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_CAPACITY));
+        replay();
+    }
+
+    private void replay() {
+        index.clear();
+        liveBytes = 0;
+        int position = 0;
+        while (position <= buffer.capacity() - HEADER) {
+            int length = buffer.getInt(position);
+            if (length < KEY_HEADER || length > buffer.capacity() - position - HEADER
+                    || checksum(position + HEADER, length) != buffer.getInt(position + 4)) {
+                break;
+            }
+            int keyLength = Short.toUnsignedInt(buffer.getShort(position + HEADER + 1));
+            if (keyLength > length - KEY_HEADER) {
+                break;
+            }
+            indexRecord(buffer.get(position + HEADER), key(position), new Slot(position, HEADER + length));
+            position += HEADER + length;
+        }
+        writePosition = position;
+        if (position <= buffer.capacity() - HEADER && buffer.getLong(position) != 0) {
+            logger.warn("Discarding torn record at offset {} of {}", position, file);
+            for (int i = position; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+    }
+
+    private void append(byte type, String key, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Key longer than 65535 bytes");
+        }
+        int length = KEY_HEADER + keyBytes.length + value.length;
+        ensureCapacity((long) HEADER + length);
+
+        int body = writePosition + HEADER;
+        buffer.put(body, type);
+        buffer.putShort(body + 1, (short) keyBytes.length);
+        buffer.put(body + KEY_HEADER, keyBytes);
+        buffer.put(body + KEY_HEADER + keyBytes.length, value);
+        buffer.putInt(writePosition + 4, checksum(body, length));
+        buffer.putInt(writePosition, length);
+        if (forceWrites) {
+            buffer.force(writePosition, HEADER + length);
+        }
+
+        indexRecord(type, key, new Slot(writePosition, HEADER + length));
+        writePosition += HEADER + length;
+    }
+
+    private void indexRecord(byte type, String key, Slot slot) {
+        Slot previous = type == PUT ? index.put(key, slot) : index.remove(key);
+        if (previous != null) {
+            liveBytes -= previous.size();
+        }
+        if (type == PUT) {
+            liveBytes += slot.size();
+        }
+    }
+
+    private void ensureCapacity(long size) throws IOException {
+        long required = writePosition + size;
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IOException("Log file would exceed 2 GiB: " + file);
+        }
+        long capacity = Math.min(Integer.MAX_VALUE, Math.max(required, 2L * buffer.capacity()));
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private int checksum(int position, int length) {
+        crc.reset();
+        crc.update(buffer.slice(position, length));
+        return (int) crc.getValue();
+    }
+
+    private String key(int position) {
+        byte[] key = new byte[Short.toUnsignedInt(buffer.getShort(position + HEADER + 1))];
+        buffer.get(position + HEADER + KEY_HEADER, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private byte[] value(Slot slot) {
+        int keyLength = Short.toUnsignedInt(buffer.getShort(slot.position() + HEADER + 1));
+        int offset = HEADER + KEY_HEADER + keyLength;
+        byte[] value = new byte[slot.size() - offset];
+        buffer.get(slot.position() + offset, value);
+        return value;
+    }
+
+    private List<Slot> slotsInLogOrder() {
+        List<Slot> slots = new ArrayList<>(index.values());
+        slots.sort(Comparator.comparingInt(Slot::position));
+        return slots;
+    }
+
+    private Path compactionFile() {
+        return file.resolveSibling(file.getFileName() + ".compact");
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.LoginDemo.dao;
+
+import com.example.LoginDemo.event.InvalidationEvent;
+import com.example.LoginDemo.model.ActiveSession;
+import com.example.LoginDemo.model.BrowserSessionKey;
+import com.example.LoginDemo.model.UserIdentity;
+import com.example.LoginDemo.model.UserSession;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Embedded {@link UserSessionStore}: sessions live in an {@link AppendOnlyLog} keyed by session
+ * ID and are served from memory, indexed by user and by active (user, browser) pair. The owning user is
+ * joined from the {@link EmbeddedUserStore}. Enabled with {@code app.storage.type=embedded}.
+ * <p>
+ * Writes are serialized on the store, which makes registering a user's single active session
+ * in a browser atomic; reads are lock-free. Times are kept in epoch milliseconds and reported in
+ * the system time zone, like the database's timestamp columns.
+ */
+@Repository
+@Lazy(false)
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "embedded")
+public class EmbeddedUserSessionStore implements UserSessionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedUserSessionStore.class);
+    private static final long NEVER = -1;
+
+    /**
+     * Stored columns of a session; {@code lastSeenAt} is {@link #NEVER} until the first flush.
+     */
+    private record Row(long id, long userId, String browserId, boolean active, long createdAt, long updatedAt,
+                       long lastSeenAt) {
+
+        Row withActive(boolean active, long now) {
+            return new Row(id, userId, browserId, active, createdAt, now, lastSeenAt);
+        }
+
+        ActiveKey activeKey() {
+            return new ActiveKey(userId, browserId);
+        }
+    }
+
+    /**
+     * Key of the active session of a user in a browser.
+     */
+    private record ActiveKey(long userId, String browserId) {
+    }
+
+    private final AppendOnlyLog log;
+    private final EmbeddedUserStore users;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, Row> rowsById = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> sessionIdsByUser = new ConcurrentHashMap<>();
+    private final Map<ActiveKey, Long> activeSessions = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+
+    /**
+     * Opens the store and loads its sessions.
+     *
+     * @param directory directory of the store's files
+     * @param forceWrites whether every write is forced to the storage device
+     * @param users the user store, for the owning users
+     * @param eventPublisher receives the invalidation events of writes
+     * @throws IOException if the log cannot be opened
+     */
+    public EmbeddedUserSessionStore(@Value("${app.storage.embedded.directory:data/store}") Path directory,
+                                    @Value("${app.storage.embedded.force-writes:false}") boolean forceWrites,
+                                    EmbeddedUserStore users,
+                                    ApplicationEventPublisher eventPublisher) throws IOException {
+        this.log = new AppendOnlyLog(directory.resolve("user_sessions.log"), forceWrites);
+        this.users = users;
+        this.eventPublisher = eventPublisher;
+        log.forEach((key, value) -> index(decode(value)));
+        logger.info("Loaded {} session(s) from {}", rowsById.size(), directory);
+    }
+
+    @Override
+    public List<UserSession> findByUserEmailAndActive(String email, boolean active) {
+        return findSessions(email, row -> row.active() == active);
+    }
+
+    @Override
+    public List<UserSession> findByUserEmailAndBrowserIdAndActive(String email, String browserId, boolean active) {
+        return findSessions(email, row -> row.active() == active && row.browserId().equals(browserId));
+    }
+
+    @Override
+    public synchronized boolean registerActiveSession(String email, String browserId) {
+        Optional<UserIdentity> user = users.findIdentityByEmail(email);
+        if (user.isEmpty() || activeSessions.containsKey(new ActiveKey(user.get().id(), browserId))) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        write(new Row(lastId.incrementAndGet(), user.get().id(), browserId, true, now, now, NEVER));
+        eventPublisher.publishEvent(InvalidationEvent.local(InvalidationEvent.Topic.SESSION, browserId));
+        return true;
+    }
+
+    @Override
+    public List<ActiveSession> findActiveSessions(String email) {
+        return rowsOf(email, Row::active)
+                .sorted(Comparator.comparingLong((Row row) -> row.lastSeenAt() != NEVER ? row.lastSeenAt() : row.createdAt())
+                        .reversed())
+                .map(row -> new ActiveSession(row.id(), row.browserId(), toLocalDateTime(row.createdAt()),
+                        toLocalDateTime(row.lastSeenAt())))
+                .toList();
+    }
+
+    @Override
+    public synchronized Optional<String> revokeSession(String email, long sessionId) {
+        Row row = rowsById.get(sessionId);
+        Optional<UserIdentity> user = users.findIdentityByEmail(email);
+        if (row == null || !row.active() || user.isEmpty() || row.userId() != user.get().id()) {
+            return Optional.empty();
+        }
+        write(row.withActive(false, System.currentTimeMillis()));
+        eventPublisher.publishEvent(InvalidationEvent.local(InvalidationEvent.Topic.SESSION, row.browserId()));
+        return Optional.of(row.browserId());
+    }
+
+    @Override
+    public boolean signedOutSince(String email, String browserId, Instant since) {
+        // Whole seconds, as in the database query; a newer sign-in supersedes the sign-out
+        long sinceMillis = since.getEpochSecond() * 1000;
+        Optional<UserIdentity> user = users.findIdentityByEmail(email);
+        Long activeId = user.map(u -> activeSessions.get(new ActiveKey(u.id(), browserId))).orElse(null);
+        Row active = activeId != null ? rowsById.get(activeId) : null;
+        return rowsOf(email, row -> !row.active() && row.browserId().equals(browserId) && row.updatedAt() >= sinceMillis
+                && (active == null || active.createdAt() < row.updatedAt()))
+                .findAny()
+                .isPresent();
+    }
+
+    @Override
+    public synchronized void updateLastSeen(Map<BrowserSessionKey, Instant> lastSeen) {
+        lastSeen.forEach((key, seenAt) -> {
+            Long id = users.findIdentityByEmail(key.email())
+                    .map(user -> activeSessions.get(new ActiveKey(user.id(), key.browserId())))
+                    .orElse(null);
+            Row row = id != null ? rowsById.get(id) : null;
+            if (row != null && row.lastSeenAt() < seenAt.toEpochMilli()) {
+                write(new Row(row.id(), row.userId(), row.browserId(), true, row.createdAt(), row.updatedAt(),
+                        seenAt.toEpochMilli()));
+            }
+        });
+    }
+
+    @Override
+    public synchronized void save(UserSession session) {
+        long now = System.currentTimeMillis();
+        if (session.getId() == null) {
+            if (session.isActive()
+                    && activeSessions.containsKey(new ActiveKey(session.getUser().id(), session.getBrowserId()))) {
+                throw new DuplicateKeyException("User already has an active session in browser: " + session.getBrowserId());
+            }
+            write(new Row(lastId.incrementAndGet(), session.getUser().id(), session.getBrowserId(), session.isActive(),
+                    now, now, NEVER));
+        } else {
+            Row row = rowsById.get(session.getId());
+            if (row != null) {
+                Long active = activeSessions.get(new ActiveKey(row.userId(), session.getBrowserId()));
+                if (session.isActive() && active != null && active != row.id()) {
+                    throw new DuplicateKeyException("User already has an active session in browser: " + session.getBrowserId());
+                }
+                write(new Row(row.id(), row.userId(), session.getBrowserId(), session.isActive(), row.createdAt(), now,
+                        row.lastSeenAt()));
+            }
+        }
+        eventPublisher.publishEvent(InvalidationEvent.local(InvalidationEvent.Topic.SESSION, session.getBrowserId()));
+    }
+
+    @Override
+    public void saveAll(List<UserSession> sessions) {
+        for (UserSession session : sessions) {
+            save(session);
+        }
+    }
+
+    /**
+     * Compacts the log once most of it is superseded records.
+     */
+    @Scheduled(fixedDelayString = "${app.storage.embedded.compaction-interval:5m}")
+    public void compact() {
+        try {
+            log.compactIfWasteful();
+        } catch (IOException e) {
+            logger.warn("Could not compact the sessions log, retrying with the next run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Forces pending writes and closes the log.
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private List<UserSession> findSessions(String email, Predicate<Row> filter) {
+        Optional<UserIdentity> user = users.findIdentityByEmail(email);
+        if (user.isEmpty()) {
+            return List.of();
+        }
+        return rowsOf(user.get().id(), filter).map(row -> toUserSession(row, user.get())).toList();
+    }
+
+    private Stream<Row> rowsOf(String email, Predicate<Row> filter) {
+        return users.findIdentityByEmail(email)
+                .map(user -> rowsOf(user.id(), filter))
+                .orElseGet(Stream::empty);
+    }
+
+    private Stream<Row> rowsOf(long userId, Predicate<Row> filter) {
+        return sessionIdsByUser.getOrDefault(userId, Set.of()).stream()
+                .map(rowsById::get)
+                .filter(row -> row != null && filter.test(row));
+    }
+
+    private void write(Row row) {
+        try {
+            log.put(Long.toString(row.id()), encode(row));
+        } catch (IOException e) {
+            logger.error("Could not write session of browser: {}", row.browserId(), e);
+            throw new DataAccessResourceFailureException("Could not write user session", e);
+        }
+        Row previous = rowsById.get(row.id());
+        if (previous != null && previous.active()) {
+            activeSessions.remove(previous.activeKey(), previous.id());
+        }
+        index(row);
+    }
+
+    private void index(Row row) {
+        rowsById.put(row.id(), row);
+        sessionIdsByUser.computeIfAbsent(row.userId(), id -> ConcurrentHashMap.newKeySet()).add(row.id());
+        if (row.active()) {
+            activeSessions.put(row.activeKey(), row.id());
+        }
+        lastId.accumulateAndGet(row.id(), Math::max);
+    }
+
+    private UserSession toUserSession(Row row, UserIdentity user) {
+        UserSession session = new UserSession();
+        session.setId(row.id());
+        session.setUser(user);
+        session.setBrowserId(row.browserId());
+        session.setActive(row.active());
+        session.setCreatedAt(toLocalDateTime(row.createdAt()));
+        session.setUpdatedAt(toLocalDateTime(row.updatedAt()));
+        return session;
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return epochMillis != NEVER ? LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()) : null;
+    }
+
+    private static byte[] encode(Row row) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(80);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(row.id());
+        out.writeLong(row.userId());
+        out.writeUTF(row.browserId());
+        out.writeBoolean(row.active());
+        out.writeLong(row.createdAt());
+        out.writeLong(row.updatedAt());
+        out.writeLong(row.lastSeenAt());
+        return bytes.toByteArray();
+    }
+
+    private static Row decode(byte[] value) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value))) {
+            return new Row(in.readLong(), in.readLong(), in.readUTF(), in.readBoolean(), in.readLong(), in.readLong(),
+                    in.readLong());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt session record", e);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.LoginDemo.dao;
+
+import com.example.LoginDemo.event.InvalidationEvent;
+import com.example.LoginDemo.event.UserChangedEvent;
+import com.example.LoginDemo.model.User;
+import com.example.LoginDemo.model.UserAuthView;
+import com.example.LoginDemo.model.UserDirectoryEntry;
+import com.example.LoginDemo.model.UserIdentity;
+import com.example.LoginDemo.model.UserSearchHit;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded {@link UserStore}: users live in an {@link AppendOnlyLog} keyed by user ID and are
+ * served from memory, with no database or network round trip. For single-node edge deployments
+ * and benchmarks; enabled with {@code app.storage.type=embedded}.
+ * <p>
+ * Writes are serialized on the store and reads are lock-free. There is no cross-node locking,
+ * so {@link #lockUser(String)} relies on the in-process lock of {@code UserLockManager}. Writes
+ * are applied immediately and do not take part in Spring transactions.
+ * <p>
+ * Each record carries the change version of the write that stored it. Users are never deleted,
+ * so the highest version in the log is the last one assigned and survives compaction; the
+ * change version resumes from it on open instead of restarting at zero.
+ */
+@Repository
+@Lazy(false)
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "embedded")
+public class EmbeddedUserStore implements UserStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedUserStore.class);
+
+    /**
+     * Stored columns of a user and the change version of their last write; the token hash
+     * array is never handed out.
+     */
+    private record Row(long id, String email, String username, String role, int counter, byte[] currentTokenHash,
+                       long version) {
+    }
+
+    private final AppendOnlyLog log;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, Row> rowsById = new ConcurrentHashMap<>();
+    private final Map<String, Row> rowsByEmail = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+    private final AtomicLong changeVersion = new AtomicLong();
+
+    /**
+     * Opens the store and loads its users.
+     *
+     * @param directory directory of the store's files
+     * @param forceWrites whether every write is forced to the storage device
+     * @param eventPublisher receives the invalidation events of writes
+     * @throws IOException if the log cannot be opened
+     */
+    public EmbeddedUserStore(@Value("${app.storage.embedded.directory:data/store}") Path directory,
+                             @Value("${app.storage.embedded.force-writes:false}") boolean forceWrites,
+                             ApplicationEventPublisher eventPublisher) throws IOException {
+        this.log = new AppendOnlyLog(directory.resolve("users.log"), forceWrites);
+        this.eventPublisher = eventPublisher;
+        log.forEach((key, value) -> index(decode(value)));
+        logger.info("Loaded {} user(s) from {}", rowsById.size(), directory);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return Optional.ofNullable(rowsByEmail.get(email)).map(EmbeddedUserStore::toUser);
+    }
+
+    @Override
+    public Optional<UserIdentity> findIdentityByEmail(String email) {
+        return Optional.ofNullable(rowsByEmail.get(email)).map(EmbeddedUserStore::toIdentity);
+    }
+
+    @Override
+    public Optional<UserAuthView> findAuthViewByEmail(String email) {
+        return Optional.ofNullable(rowsByEmail.get(email)).map(row -> new UserAuthView(row.id(), row.email(),
+                row.role(), row.counter(), copy(row.currentTokenHash())));
+    }
+
+    @Override
+    public List<UserAuthView> findAuthViewsByEmails(Collection<String> emails) {
+        return emails.stream()
+                .distinct()
+                .map(this::findAuthViewByEmail)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return rowsByEmail.containsKey(email);
+    }
+
+    @Override
+    public synchronized void save(User user) {
+        Row previous = null;
+        if (user.getId() != null) {
+            previous = rowsById.get(user.getId());
+            if (previous == null) {
+                // Like an UPDATE matching no row
+                return;
+            }
+        }
+        Row owner = rowsByEmail.get(user.getEmail());
+        if (owner != null && owner != previous) {
+            throw new DuplicateKeyException("User already exists: " + user.getEmail());
+        }
+        long id = previous != null ? previous.id() : lastId.incrementAndGet();
+        long version = changeVersion.get() + 1;
+        Row row = new Row(id, user.getEmail(), user.getUsername(), user.getRole(),
+                user.getCounter() != null ? user.getCounter() : 0, copy(user.getCurrentTokenHash()), version);
+        try {
+            log.put(Long.toString(id), encode(row));
+        } catch (IOException e) {
+            logger.error("Could not write user: {}", user.getEmail(), e);
+            throw new DataAccessResourceFailureException("Could not write user", e);
+        }
+        if (previous != null && !previous.email().equals(row.email())) {
+            rowsByEmail.remove(previous.email());
+        }
+        index(row);
+        logger.info(previous == null ? "New user added: {}" : "User updated: {}", user.getEmail());
+        changeVersion.set(version);
+        logger.debug("Users change version advanced to {}", version);
+        eventPublisher.publishEvent(InvalidationEvent.local(InvalidationEvent.Topic.USER, user.getEmail()));
+        eventPublisher.publishEvent(new UserChangedEvent(row.email(), row.username(), row.role(), row.counter()));
+    }
+
+    /**
+     * No-op: the store belongs to one node, where the caller already holds the user's
+     * in-process lock.
+     *
+     * @param email the user's email
+     */
+    @Override
+    public void lockUser(String email) {
+    }
+
+    @Override
+    public long currentChangeVersion() {
+        return changeVersion.get();
+    }
+
+    @Override
+    public List<UserDirectoryEntry> findDirectoryEntries() {
+        return rowsById.values().stream()
+                .map(row -> new UserDirectoryEntry(row.email(), row.username(), row.role(), row.counter()))
+                .toList();
+    }
+
+    /**
+     * Scans all users; fine at the sizes an embedded store is meant for. For large directories,
+     * enable the in-memory search index instead.
+     */
+    @Override
+    public List<UserSearchHit> searchDirectory(String query, int limit, int offset) {
+        int maxEdits = FuzzyPrefixIndex.maxEdits(query.length());
+        return rowsById.values().stream()
+                .filter(row -> !"ADMIN".equalsIgnoreCase(row.role()))
+                .map(row -> searchHit(row, query, maxEdits))
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingDouble(UserSearchHit::score).reversed()
+                        .thenComparing(UserSearchHit::email))
+                .skip(offset)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<UserDirectoryEntry> findTopByCounter(int limit) {
+        return rowsById.values().stream()
+                .filter(row -> row.counter() > 0)
+                .sorted(Comparator.comparingInt(Row::counter).reversed().thenComparing(Row::email))
+                .limit(limit)
+                .map(row -> new UserDirectoryEntry(row.email(), row.username(), row.role(), row.counter()))
+                .toList();
+    }
+
+    /**
+     * Compacts the log once most of it is superseded records.
+     */
+    @Scheduled(fixedDelayString = "${app.storage.embedded.compaction-interval:5m}")
+    public void compact() {
+        try {
+            log.compactIfWasteful();
+        } catch (IOException e) {
+            logger.warn("Could not compact the users log, retrying with the next run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Forces pending writes and closes the log.
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private void index(Row row) {
+        rowsById.put(row.id(), row);
+        rowsByEmail.put(row.email(), row);
+        lastId.accumulateAndGet(row.id(), Math::max);
+        changeVersion.accumulateAndGet(row.version(), Math::max);
+    }
+
+    private static User toUser(Row row) {
+        User user = new User();
+        user.setId(row.id());
+        user.setEmail(row.email());
+        user.setUsername(row.username());
+        user.setRole(row.role());
+        user.setCounter(row.counter());
+        user.setCurrentTokenHash(copy(row.currentTokenHash()));
+        return user;
+    }
+
+    private static UserSearchHit searchHit(Row row, String query, int maxEdits) {
+        int distance = FuzzyPrefixIndex.prefixDistance(query, row.email().toLowerCase(Locale.ROOT), maxEdits);
+        if (row.username() != null) {
+            int usernameDistance = FuzzyPrefixIndex.prefixDistance(query, row.username().toLowerCase(Locale.ROOT), maxEdits);
+            if (usernameDistance >= 0 && (distance < 0 || usernameDistance < distance)) {
+                distance = usernameDistance;
+            }
+        }
+        if (distance < 0) {
+            return null;
+        }
+        return new UserSearchHit(row.email(), row.username(), row.role(), row.counter(),
+                FuzzyPrefixIndex.score(query.length(), distance));
+    }
+
+    private static UserIdentity toIdentity(Row row) {
+        return new UserIdentity(row.id(), row.email(), row.role());
+    }
+
+    private static byte[] copy(byte[] bytes) {
+        return bytes != null ? bytes.clone() : null;
+    }
+
+    private static byte[] encode(Row row) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(row.id());
+        out.writeUTF(row.email());
+        writeNullable(out, row.username());
+        writeNullable(out, row.role());
+        out.writeInt(row.counter());
+        byte[] hash = row.currentTokenHash();
+        out.writeShort(hash != null ? hash.length : -1);
+        if (hash != null) {
+            out.write(hash);
+        }
+        out.writeLong(row.version());
+        return bytes.toByteArray();
+    }
+
+    private static Row decode(byte[] value) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value))) {
+            long id = in.readLong();
+            String email = in.readUTF();
+            String username = readNullable(in);
+            String role = readNullable(in);
+            int counter = in.readInt();
+            short hashLength = in.readShort();
+            byte[] hash = null;
+            if (hashLength >= 0) {
+                hash = new byte[hashLength];
+                in.readFully(hash);
+            }
+            // Records written before versions were stored end here
+            long version = in.available() >= Long.BYTES ? in.readLong() : 0;
+            return new Row(id, email, username, role, counter, hash, version);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt user record", e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
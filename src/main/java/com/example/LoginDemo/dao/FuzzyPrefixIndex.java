@@ -0,0 +1,233 @@
+package com.example.LoginDemo.dao;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory index of terms (lower-cased emails, usernames) answering typo-tolerant prefix
+ * queries: a term matches if some prefix of it is within a few edits of the query. Edits are
+ * insertions, deletions, substitutions and swaps of adjacent characters.
+ * <p>
+ * The terms are kept in a sorted concurrent skip list, which is walked as an implicit trie:
+ * consecutive terms share the Levenshtein rows of their common prefix, and as soon as no
+ * extension of a prefix can come within the allowed edits, the walk jumps past every term with
+ * that prefix with one {@code ceiling} lookup. A lookup therefore only visits the prefixes near
+ * the query, and updates are O(log n) without any rebuild. Each entry is stored as
+ * {@code term + '\0' + id}, so a term may belong to several IDs.
+ */
+public final class FuzzyPrefixIndex {
+
+    /**
+     * Receives the matches of a search.
+     */
+    @FunctionalInterface
+    public interface MatchConsumer {
+
+        /**
+         * Accepts a match.
+         *
+         * @param id the ID the term belongs to
+         * @param distance the edits between the query and the closest prefix of the term
+         * @return false to end the search
+         */
+        boolean accept(String id, int distance);
+    }
+
+    /** Longest query accepted; longer ones are cut. */
+    public static final int MAX_QUERY_LENGTH = 64;
+
+    private static final char SEPARATOR = '\u0000';
+    private static final int MAX_TERM_LENGTH = 255;
+
+    private final ConcurrentSkipListSet<String> entries = new ConcurrentSkipListSet<>();
+
+    /**
+     * Returns the edits tolerated for a query: none below 3 characters, one below 6, else two.
+     *
+     * @param queryLength the length of the query
+     * @return the maximum edit distance
+     */
+    public static int maxEdits(int queryLength) {
+        return queryLength < 3 ? 0 : queryLength < 6 ? 1 : 2;
+    }
+
+    /**
+     * Scores a match from 0 to 1, so that index and database results rank alike: 1 for a
+     * prefix match, less for every edit.
+     *
+     * @param queryLength the length of the query
+     * @param distance the edits between the query and the closest prefix of the term
+     * @return the score
+     */
+    public static double score(int queryLength, int distance) {
+        return distance == 0 ? 1.0 : 1.0 - (double) distance / Math.max(queryLength, distance + 1);
+    }
+
+    /**
+     * Computes the edits between a query and the closest prefix of a term, for callers that
+     * scan instead of keeping an index.
+     *
+     * @param query the lower-cased query
+     * @param term the lower-cased term
+     * @param maxEdits the maximum edit distance of interest
+     * @return the distance, or -1 if it is above {@code maxEdits}
+     */
+    public static int prefixDistance(String query, String term, int maxEdits) {
+        int m = query.length();
+        int length = Math.min(term.length(), MAX_TERM_LENGTH);
+        int[][] rows = new int[length + 1][m + 1];
+        int[] mins = new int[length + 1];
+        for (int j = 0; j <= m; j++) {
+            rows[0][j] = j;
+        }
+        int best = m;
+        for (int d = 1; d <= length && best > 0; d++) {
+            mins[d] = step(query, term, d, rows);
+            best = Math.min(best, rows[d][m]);
+            if (cannotMatch(mins, d, maxEdits)) {
+                break;
+            }
+        }
+        return best <= maxEdits ? best : -1;
+    }
+
+    /**
+     * Adds a term of an ID.
+     *
+     * @param term the lower-cased term
+     * @param id the ID
+     */
+    public void add(String term, String id) {
+        entries.add(entry(term, id));
+    }
+
+    /**
+     * Removes a term of an ID.
+     *
+     * @param term the lower-cased term
+     * @param id the ID
+     */
+    public void remove(String term, String id) {
+        entries.remove(entry(term, id));
+    }
+
+    /**
+     * Removes all terms.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of terms.
+     *
+     * @return the number of (term, ID) entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Passes every ID with a term whose closest prefix is within {@code maxEdits} of the query
+     * to the consumer, in term order, until the consumer returns false. An ID is passed once
+     * per matching term.
+     *
+     * @param query the lower-cased query
+     * @param maxEdits the maximum edit distance
+     * @param consumer receives the matches
+     */
+    public void search(String query, int maxEdits, MatchConsumer consumer) {
+        if (query.length() > MAX_QUERY_LENGTH) {
+            query = query.substring(0, MAX_QUERY_LENGTH);
+        }
+        int m = query.length();
+        // rows[d] is the Levenshtein row of the first d characters of the current entry;
+        // best[d] the smallest distance between the query and any of its first d prefixes
+        int[][] rows = new int[MAX_TERM_LENGTH + 1][m + 1];
+        int[] mins = new int[MAX_TERM_LENGTH + 1];
+        int[] best = new int[MAX_TERM_LENGTH + 1];
+        for (int j = 0; j <= m; j++) {
+            rows[0][j] = j;
+        }
+        best[0] = m;
+
+        String previous = "";
+        int computed = 0;
+        String entry = entries.isEmpty() ? null : entries.first();
+        while (entry != null) {
+            int termLength = Math.min(entry.indexOf(SEPARATOR), MAX_TERM_LENGTH);
+            int depth = Math.min(Math.min(commonPrefix(previous, entry), computed), termLength);
+            int prunedAt = 0;
+            for (int d = depth + 1; d <= termLength; d++) {
+                mins[d] = step(query, entry, d, rows);
+                best[d] = Math.min(best[d - 1], rows[d][m]);
+                if (cannotMatch(mins, d, maxEdits) && best[d] > maxEdits) {
+                    prunedAt = d;
+                    break;
+                }
+            }
+            previous = entry;
+            if (prunedAt > 0) {
+                // No term with this prefix can match: skip them all
+                computed = prunedAt - 1;
+                char last = entry.charAt(prunedAt - 1);
+                entry = last != Character.MAX_VALUE
+                        ? entries.ceiling(entry.substring(0, prunedAt - 1) + (char) (last + 1))
+                        : entries.higher(entry);
+                continue;
+            }
+            computed = termLength;
+            if (best[termLength] <= maxEdits
+                    && !consumer.accept(entry.substring(entry.indexOf(SEPARATOR) + 1), best[termLength])) {
+                return;
+            }
+            entry = entries.higher(entry);
+        }
+    }
+
+    /**
+     * Computes {@code rows[d]} from the rows before it, for the first {@code d} characters of
+     * the term (optimal string alignment distance).
+     *
+     * @return the smallest value in the new row
+     */
+    private static int step(String query, String term, int d, int[][] rows) {
+        char c = term.charAt(d - 1);
+        int[] previous = rows[d - 1];
+        int[] row = rows[d];
+        row[0] = d;
+        int min = d;
+        for (int j = 1; j < row.length; j++) {
+            int cost = query.charAt(j - 1) == c ? 0 : 1;
+            int value = Math.min(Math.min(previous[j] + 1, row[j - 1] + 1), previous[j - 1] + cost);
+            if (d > 1 && j > 1 && query.charAt(j - 1) == term.charAt(d - 2) && query.charAt(j - 2) == c) {
+                value = Math.min(value, rows[d - 2][j - 2] + 1);
+            }
+            row[j] = value;
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    /**
+     * Tells whether no extension of the first {@code d} term characters can come within
+     * {@code maxEdits}: every later row is at least the minimum of this row, or one more than
+     * the minimum of the row before it (through a swap).
+     */
+    private static boolean cannotMatch(int[] mins, int d, int maxEdits) {
+        return mins[d] > maxEdits && (d < 2 || mins[d - 1] >= maxEdits);
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static String entry(String term, String id) {
+        return term + SEPARATOR + id;
+    }
+}
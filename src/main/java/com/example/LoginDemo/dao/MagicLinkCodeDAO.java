@@ -0,0 +1,64 @@
+package com.example.LoginDemo.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Data Access Object (DAO) for the persisted one-time magic-link codes. Codes are stored as
+ * SHA-256 hashes, so the table holds nothing that can be redeemed.
+ */
+@Repository
+public class MagicLinkCodeDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(MagicLinkCodeDAO.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Reads the email returned by a redemption's RETURNING clause
+    private final ResultSetExtractor<String> emailExtractor = rs -> rs.next() ? rs.getString(1) : null;
+
+    /**
+     * Stores a code.
+     *
+     * @param codeHash the SHA-256 hash of the code
+     * @param email the email the code signs in
+     * @param ttl how long the code stays valid, measured by the database clock
+     */
+    public void insert(byte[] codeHash, String email, Duration ttl) {
+        jdbcTemplate.update(
+                "INSERT INTO magic_link_codes (code_hash, email, expires_at) " +
+                        "VALUES (?, ?, CURRENT_TIMESTAMP + make_interval(secs => ?))",
+                codeHash, email, ttl.toMillis() / 1000.0);
+    }
+
+    /**
+     * Redeems a code: deletes it if it has not expired.
+     *
+     * @param codeHash the SHA-256 hash of the code
+     * @return the email the code signs in, empty if the code is unknown, redeemed or expired
+     */
+    public Optional<String> consume(byte[] codeHash) {
+        return Optional.ofNullable(jdbcTemplate.query(
+                "DELETE FROM magic_link_codes WHERE code_hash = ? AND expires_at > CURRENT_TIMESTAMP RETURNING email",
+                emailExtractor, (Object) codeHash));
+    }
+
+    /**
+     * Deletes expired codes.
+     *
+     * @return the number of codes deleted
+     */
+    public int deleteExpired() {
+        int deleted = jdbcTemplate.update("DELETE FROM magic_link_codes WHERE expires_at <= CURRENT_TIMESTAMP");
+        logger.debug("Deleted {} expired magic-link code(s)", deleted);
+        return deleted;
+    }
+}
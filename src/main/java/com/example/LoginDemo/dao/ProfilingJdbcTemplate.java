@@ -0,0 +1,105 @@
+package com.example.LoginDemo.dao;
+
+import com.example.LoginDemo.monitoring.QueryProfiler;
+import com.example.LoginDemo.resilience.DependencyCall;
+import com.example.LoginDemo.resilience.GuardedDependency;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.StatementCallback;
+
+import javax.sql.DataSource;
+
+/**
+ * JdbcTemplate that reports the execution time of every statement to the {@link QueryProfiler}
+ * and runs it through the database's {@link GuardedDependency}. All parameterized query and
+ * update variants used by the DAOs funnel through the two overridden methods;
+ * {@link #execute(String, PreparedStatementCallback)} covers batch updates.
+ * <p>
+ * Statements without parameters ({@code queryForObject(sql, type)}, {@code query(sql, mapper)},
+ * {@code update(sql)}) run as a {@link StatementCallback}. Depending on the Spring version they
+ * reach {@link #execute(StatementCallback)} or only the public entry point, so both are
+ * overridden; a statement is guarded and profiled once, by the outermost override.
+ */
+public class ProfilingJdbcTemplate extends JdbcTemplate {
+
+    private final QueryProfiler profiler;
+    private final GuardedDependency database;
+    // Set while a statement is guarded, so nested overrides do not take a second bulkhead slot
+    private final ThreadLocal<Boolean> guarding = new ThreadLocal<>();
+
+    /**
+     * Creates a profiling template.
+     *
+     * @param dataSource the data source
+     * @param profiler the profiler receiving the timings
+     * @param database the bulkhead and circuit breaker every statement goes through
+     */
+    public ProfilingJdbcTemplate(DataSource dataSource, QueryProfiler profiler, GuardedDependency database) {
+        super(dataSource);
+        this.profiler = profiler;
+        this.database = database;
+    }
+
+    @Override
+    public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse)
+            throws DataAccessException {
+        return guarded(sqlOf(psc), pss, () -> super.query(psc, pss, rse));
+    }
+
+    @Override
+    protected int update(PreparedStatementCreator psc, PreparedStatementSetter pss) throws DataAccessException {
+        return guarded(sqlOf(psc), pss, () -> super.update(psc, pss));
+    }
+
+    @Override
+    public <T> T execute(String sql, PreparedStatementCallback<T> action) throws DataAccessException {
+        return guarded(sql, null, () -> super.execute(sql, action));
+    }
+
+    @Override
+    public <T> T execute(StatementCallback<T> action) throws DataAccessException {
+        return guarded(action instanceof SqlProvider provider ? provider.getSql() : null, null,
+                () -> super.execute(action));
+    }
+
+    @Override
+    public <T> T query(String sql, ResultSetExtractor<T> rse) throws DataAccessException {
+        return guarded(sql, null, () -> super.query(sql, rse));
+    }
+
+    @Override
+    public void execute(String sql) throws DataAccessException {
+        guarded(sql, null, () -> {
+            super.execute(sql);
+            return null;
+        });
+    }
+
+    @Override
+    public int update(String sql) throws DataAccessException {
+        return guarded(sql, null, () -> super.update(sql));
+    }
+
+    private <T> T guarded(String sql, PreparedStatementSetter pss, DependencyCall<T, RuntimeException> statement) {
+        if (guarding.get() != null) {
+            return statement.call();
+        }
+        guarding.set(Boolean.TRUE);
+        long start = System.nanoTime();
+        try {
+            return database.call(statement);
+        } finally {
+            guarding.remove();
+            profiler.record(sql, pss, System.nanoTime() - start);
+        }
+    }
+
+    private static String sqlOf(PreparedStatementCreator psc) {
+        return psc instanceof SqlProvider provider ? provider.getSql() : null;
+    }
+}
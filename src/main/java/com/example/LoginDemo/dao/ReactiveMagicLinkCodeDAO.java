@@ -0,0 +1,73 @@
+package com.example.LoginDemo.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Non-blocking (R2DBC) Data Access Object for the persisted one-time magic-link codes.
+ * Mirrors the queries of {@link MagicLinkCodeDAO} for the "reactive" profile.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveMagicLinkCodeDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveMagicLinkCodeDAO.class);
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    /**
+     * Stores a code.
+     *
+     * @param codeHash the SHA-256 hash of the code
+     * @param email the email the code signs in
+     * @param ttl how long the code stays valid, measured by the database clock
+     * @return a Mono completing when the code has been stored
+     */
+    public Mono<Void> insert(byte[] codeHash, String email, Duration ttl) {
+        return databaseClient.sql("INSERT INTO magic_link_codes (code_hash, email, expires_at) " +
+                        "VALUES (:codeHash, :email, CURRENT_TIMESTAMP + make_interval(secs => :ttl))")
+                .bind("codeHash", codeHash)
+                .bind("email", email)
+                .bind("ttl", ttl.toMillis() / 1000.0)
+                .fetch()
+                .rowsUpdated()
+                .doOnError(e -> logger.error("Error storing magic-link code: {}", e.getMessage()))
+                .then();
+    }
+
+    /**
+     * Redeems a code: deletes it if it has not expired.
+     *
+     * @param codeHash the SHA-256 hash of the code
+     * @return a Mono emitting the email the code signs in, empty if the code is unknown,
+     *         redeemed or expired
+     */
+    public Mono<String> consume(byte[] codeHash) {
+        return databaseClient.sql("DELETE FROM magic_link_codes " +
+                        "WHERE code_hash = :codeHash AND expires_at > CURRENT_TIMESTAMP RETURNING email")
+                .bind("codeHash", codeHash)
+                .map((row, metadata) -> row.get("email", String.class))
+                .one()
+                .doOnError(e -> logger.error("Error redeeming magic-link code: {}", e.getMessage()));
+    }
+
+    /**
+     * Deletes expired codes.
+     *
+     * @return a Mono emitting the number of codes deleted
+     */
+    public Mono<Long> deleteExpired() {
+        return databaseClient.sql("DELETE FROM magic_link_codes WHERE expires_at <= CURRENT_TIMESTAMP")
+                .fetch()
+                .rowsUpdated()
+                .doOnNext(deleted -> logger.debug("Deleted {} expired magic-link code(s)", deleted));
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.LoginDemo.dao;
+
+import com.example.LoginDemo.model.User;
+import io.r2dbc.spi.Row;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking (R2DBC) Data Access Object for User entity.
+ * Mirrors the queries of {@link UserDAO} for the "reactive" profile.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveUserDAO.class);
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    /**
+     * Maps a users row to a User object.
+     *
+     * @param row the R2DBC row
+     * @return the mapped User
+     */
+    static User mapUser(Row row) {
+        User user = new User();
+        user.setId(row.get("id", Long.class));
+        user.setEmail(row.get("email", String.class));
+        user.setUsername(row.get("username", String.class));
+        user.setRole(row.get("role", String.class));
+        user.setCounter(row.get("counter", Integer.class));
+        user.setCurrentTokenHash(row.get("current_token_hash", byte[].class));
+        return user;
+    }
+
+    /**
+     * Retrieves a user by email.
+     *
+     * @param email the email of the user
+     * @return a Mono emitting the User if found, otherwise empty
+     */
+    public Mono<User> findByEmail(String email) {
+        return databaseClient.sql("SELECT * FROM users WHERE email = :email")
+                .bind("email", email)
+                .map((row, metadata) -> mapUser(row))
+                .one()
+                .doOnError(e -> logger.error("Database error while retrieving user by email: {}", email, e));
+    }
+
+    /**
+     * Checks if a user exists by email.
+     *
+     * @param email the email to check
+     * @return a Mono emitting true if the user exists, false otherwise
+     */
+    public Mono<Boolean> existsByEmail(String email) {
+        return databaseClient.sql("SELECT COUNT(*) AS cnt FROM users WHERE email = :email")
+                .bind("email", email)
+                .map((row, metadata) -> row.get("cnt", Long.class))
+                .one()
+                .map(count -> count != null && count > 0)
+                .doOnError(e -> logger.error("Database error while checking user existence by email: {}", email, e));
+    }
+
+    /**
+     * Saves or updates a user in the database, advancing the users change version.
+     *
+     * @param user the user to save or update
+     * @return a Mono completing when the statement has been executed
+     */
+    public Mono<Void> save(User user) {
+        DatabaseClient.GenericExecuteSpec spec;
+        if (user.getId() == null) {
+            spec = databaseClient.sql("INSERT INTO users (email, username, role, counter, current_token_hash) " +
+                    "VALUES (:email, :username, :role, :counter, :token) RETURNING nextval('users_change_seq')");
+        } else {
+            spec = databaseClient.sql("UPDATE users SET email = :email, username = :username, role = :role, " +
+                            "counter = :counter, current_token_hash = :token WHERE id = :id RETURNING nextval('users_change_seq')")
+                    .bind("id", user.getId());
+        }
+        spec = spec.bind("email", user.getEmail())
+                .bind("username", user.getUsername())
+                .bind("role", user.getRole())
+                .bind("counter", user.getCounter());
+        spec = user.getCurrentTokenHash() == null
+                ? spec.bindNull("token", byte[].class)
+                : spec.bind("token", user.getCurrentTokenHash());
+
+        return spec.fetch()
+                .rowsUpdated()
+                .doOnSuccess(rows -> logger.info("User saved: {}", user.getEmail()))
+                .doOnError(e -> logger.error("Database error while saving user: {}", user.getEmail(), e))
+                .then();
+    }
+
+    /**
+     * Replaces the token hash of a user, leaving the other columns alone so a concurrent
+     * counter increment is not overwritten.
+     *
+     * @param email the user's email
+     * @param tokenHash the new token hash
+     * @return a Mono emitting true if the user exists
+     */
+    public Mono<Boolean> updateToken(String email, byte[] tokenHash) {
+        return databaseClient.sql("UPDATE users SET current_token_hash = :token WHERE email = :email " +
+                        "RETURNING nextval('users_change_seq')")
+                .bind("token", tokenHash)
+                .bind("email", email)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0)
+                .doOnError(e -> logger.error("Database error while updating token of user: {}", email, e));
+    }
+
+    /**
+     * Increments the counter of a user in one statement, so concurrent increments are not lost.
+     *
+     * @param email the user's email
+     * @return a Mono emitting the new counter value, or empty if the user does not exist
+     */
+    public Mono<Integer> incrementCounter(String email) {
+        return databaseClient.sql("UPDATE users SET counter = counter + 1 WHERE email = :email " +
+                        "RETURNING counter, nextval('users_change_seq')")
+                .bind("email", email)
+                .map((row, metadata) -> row.get("counter", Integer.class))
+                .one()
+                .doOnError(e -> logger.error("Database error while incrementing counter of user: {}", email, e));
+    }
+
+    /**
+     * Clears the token and counter of a user unless a browser session is still active. The
+     * check and the reset are one statement, so a logout racing another one cannot reset a
+     * login that a new session has just joined.
+     *
+     * @param email the user's email
+     * @return a Mono emitting true if the login was ended
+     */
+    public Mono<Boolean> endLoginIfNoActiveSession(String email) {
+        return databaseClient.sql("UPDATE users SET current_token_hash = NULL, counter = 0 WHERE email = :email " +
+                        "AND NOT EXISTS (SELECT 1 FROM user_sessions s WHERE s.user_id = users.id AND s.active) " +
+                        "RETURNING nextval('users_change_seq')")
+                .bind("email", email)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0)
+                .doOnError(e -> logger.error("Database error while ending login of user: {}", email, e));
+    }
+
+    /**
+     * Retrieves all users from the database.
+     *
+     * @return a Flux of users
+     */
+    public Flux<User> findAll() {
+        return databaseClient.sql("SELECT * FROM users")
+                .map((row, metadata) -> mapUser(row))
+                .all()
+                .doOnError(e -> logger.error("Database error while retrieving all users", e));
+    }
+}
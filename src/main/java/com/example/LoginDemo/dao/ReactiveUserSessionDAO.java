@@ -0,0 +1,169 @@
+package com.example.LoginDemo.dao;
+
+import com.example.LoginDemo.model.UserIdentity;
+import com.example.LoginDemo.model.UserSession;
+import io.r2dbc.spi.Row;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Non-blocking (R2DBC) Data Access Object for user session records.
+ * Mirrors the queries of {@link UserSessionDAO} for the "reactive" profile.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserSessionDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveUserSessionDAO.class);
+
+    // Same column list as UserSessionDAO: session columns plus the owning user's identity
+    private static final String SESSION_SELECT =
+            "SELECT s.id, s.browser_id, s.active, s.created_at, s.updated_at, " +
+                    "u.id AS user_id, u.email AS user_email, u.role AS user_role " +
+                    "FROM user_sessions s JOIN users u ON s.user_id = u.id ";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    /**
+     * Maps a joined user_sessions/users row to a UserSession. The associated user is built
+     * from the joined columns instead of a second lookup per row.
+     *
+     * @param row the R2DBC row
+     * @return the mapped UserSession
+     */
+    private static UserSession mapSession(Row row) {
+        UserIdentity user = new UserIdentity(row.get("user_id", Long.class),
+                row.get("user_email", String.class), row.get("user_role", String.class));
+
+        UserSession session = new UserSession();
+        session.setId(row.get("id", Long.class));
+        session.setBrowserId(row.get("browser_id", String.class));
+        session.setActive(Boolean.TRUE.equals(row.get("active", Boolean.class)));
+        session.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        session.setUpdatedAt(row.get("updated_at", LocalDateTime.class));
+        session.setUser(user);
+        return session;
+    }
+
+    /**
+     * Retrieves user sessions for a given email and status.
+     *
+     * @param email the user's email
+     * @param active session status
+     * @return a Flux of matching sessions
+     */
+    public Flux<UserSession> findByUserEmailAndActive(String email, boolean active) {
+        return databaseClient.sql(SESSION_SELECT + "WHERE u.email = :email AND s.active = :active")
+                .bind("email", email)
+                .bind("active", active)
+                .map((row, metadata) -> mapSession(row))
+                .all()
+                .doOnError(e -> logger.error("Error fetching user sessions by email and active status: {}", e.getMessage()));
+    }
+
+    /**
+     * Retrieves user sessions for a given email, browser ID and status.
+     *
+     * @param email user's email
+     * @param browserId the browser identifier
+     * @param active session status
+     * @return a Flux of matching sessions
+     */
+    public Flux<UserSession> findByUserEmailAndBrowserIdAndActive(String email, String browserId, boolean active) {
+        return databaseClient.sql(SESSION_SELECT + "WHERE u.email = :email AND s.browser_id = :browserId AND s.active = :active")
+                .bind("email", email)
+                .bind("browserId", browserId)
+                .bind("active", active)
+                .map((row, metadata) -> mapSession(row))
+                .all()
+                .doOnError(e -> logger.error("Error fetching user sessions by email, browser ID, and active status: {}", e.getMessage()));
+    }
+
+    /**
+     * Registers an active session for a browser in one statement; see
+     * {@link UserSessionDAO#registerActiveSession(String, String)}.
+     *
+     * @param email the user's email
+     * @param browserId the browser identifier
+     * @return a Mono emitting true if a session was created, false if the user already had one in the browser
+     */
+    public Mono<Boolean> registerActiveSession(String email, String browserId) {
+        return databaseClient.sql("INSERT INTO user_sessions (user_id, browser_id, active, created_at, updated_at) " +
+                        "SELECT id, :browserId, TRUE, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM users WHERE email = :email " +
+                        "ON CONFLICT (user_id, browser_id) WHERE active DO NOTHING")
+                .bind("browserId", browserId)
+                .bind("email", email)
+                .fetch()
+                .rowsUpdated()
+                .map(count -> count > 0)
+                .doOnError(e -> logger.error("Error registering browser session: {}", e.getMessage()));
+    }
+
+    /**
+     * Deactivates the active sessions of a user in one statement, either all of them or the
+     * one of a browser.
+     *
+     * @param email the user's email
+     * @param browserId the browser to sign out, or null for every browser
+     * @return a Mono emitting the number of sessions deactivated
+     */
+    public Mono<Long> deactivateSessions(String email, String browserId) {
+        String sql = "UPDATE user_sessions SET active = FALSE, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE active AND user_id = (SELECT id FROM users WHERE email = :email)";
+        DatabaseClient.GenericExecuteSpec spec = browserId == null
+                ? databaseClient.sql(sql)
+                : databaseClient.sql(sql + " AND browser_id = :browserId").bind("browserId", browserId);
+        return spec.bind("email", email)
+                .fetch()
+                .rowsUpdated()
+                .doOnError(e -> logger.error("Error deactivating user sessions: {}", e.getMessage()));
+    }
+
+    /**
+     * Saves a user session.
+     * If the session ID is null, it inserts a new session; otherwise, it updates an existing session.
+     *
+     * @param session the user session to save
+     * @return a Mono completing when the statement has been executed
+     */
+    public Mono<Void> save(UserSession session) {
+        DatabaseClient.GenericExecuteSpec spec;
+        if (session.getId() == null) {
+            spec = databaseClient.sql("INSERT INTO user_sessions (user_id, browser_id, active, created_at, updated_at) " +
+                            "VALUES (:userId, :browserId, :active, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)")
+                    .bind("userId", session.getUser().id());
+        } else {
+            spec = databaseClient.sql("UPDATE user_sessions SET browser_id = :browserId, active = :active, " +
+                            "updated_at = CURRENT_TIMESTAMP WHERE id = :id")
+                    .bind("id", session.getId());
+        }
+        return spec.bind("browserId", session.getBrowserId())
+                .bind("active", session.isActive())
+                .fetch()
+                .rowsUpdated()
+                .doOnError(e -> logger.error("Error saving user session: {}", e.getMessage()))
+                .then();
+    }
+
+    /**
+     * Saves multiple user sessions one after another.
+     *
+     * @param sessions list of user sessions to save
+     * @return a Mono completing when all sessions have been saved
+     */
+    public Mono<Void> saveAll(List<UserSession> sessions) {
+        return Flux.fromIterable(sessions)
+                .concatMap(this::save)
+                .then();
+    }
+}
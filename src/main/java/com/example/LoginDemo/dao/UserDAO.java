@@ -1,16 +1,27 @@
 package com.example.LoginDemo.dao;
 
+import com.example.LoginDemo.event.InvalidationEvent;
+import com.example.LoginDemo.event.UserChangedEvent;
 import com.example.LoginDemo.model.User;
+import com.example.LoginDemo.model.UserAuthView;
+import com.example.LoginDemo.model.UserDirectoryEntry;
+import com.example.LoginDemo.model.UserIdentity;
+import com.example.LoginDemo.model.UserSearchHit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 import java.sql.ResultSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,13 +30,37 @@ import java.util.Optional;
  * Provides database operations for User management.
  */
 @Repository
-public class UserDAO {
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "jdbc", matchIfMissing = true)
+public class UserDAO implements UserStore {
 
     private static final Logger logger = LoggerFactory.getLogger(UserDAO.class);
 
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.search.similarity-threshold:0.3}")
+    private double similarityThreshold;
+
+    // Whether pg_trgm is installed; looked up by the first search
+    private volatile Boolean trigramSearch;
+
+    // Reads the change version returned by a write's RETURNING clause
+    private final ResultSetExtractor<Long> changeVersionExtractor = rs -> rs.next() ? rs.getLong(1) : null;
+    private final ResultSetExtractor<Void> ignoreResult = rs -> null;
+
+    // First key of the two-key advisory locks on users, keeping them apart from other advisory lock users
+    private static final int USER_LOCK_NAMESPACE = 0x55534552;
+
+    // Each projection selects exactly the columns its mapper reads; only the full User and the
+    // auth view carry current_token_hash
+    private static final String USER_COLUMNS = "id, email, username, role, counter, current_token_hash";
+    private static final String IDENTITY_COLUMNS = "id, email, role";
+    private static final String DIRECTORY_COLUMNS = "email, username, role, counter";
+    private static final String AUTH_COLUMNS = "id, email, role, counter, current_token_hash";
+
     private final RowMapper<User> userRowMapper = (ResultSet rs, int rowNum) -> {
         User user = new User();
         user.setId(rs.getLong("id"));
@@ -33,24 +68,86 @@ public class UserDAO {
         user.setUsername(rs.getString("username"));
         user.setRole(rs.getString("role"));
         user.setCounter(rs.getInt("counter"));
-        user.setCurrentToken(rs.getString("current_token"));
+        user.setCurrentTokenHash(rs.getBytes("current_token_hash"));
         return user;
     };
 
+    private final RowMapper<UserIdentity> identityRowMapper = (ResultSet rs, int rowNum) ->
+            new UserIdentity(rs.getLong("id"), rs.getString("email"), rs.getString("role"));
+
+    private final RowMapper<UserDirectoryEntry> directoryRowMapper = (ResultSet rs, int rowNum) ->
+            new UserDirectoryEntry(rs.getString("email"), rs.getString("username"),
+                    rs.getString("role"), rs.getInt("counter"));
+
+    private final RowMapper<UserSearchHit> searchHitRowMapper = (ResultSet rs, int rowNum) ->
+            new UserSearchHit(rs.getString("email"), rs.getString("username"), rs.getString("role"),
+                    rs.getInt("counter"), rs.getDouble("score"));
+
+    private final RowMapper<UserAuthView> authRowMapper = (ResultSet rs, int rowNum) ->
+            new UserAuthView(rs.getLong("id"), rs.getString("email"), rs.getString("role"),
+                    rs.getInt("counter"), rs.getBytes("current_token_hash"));
+
     /**
-     * Retrieves a user by email.
+     * Retrieves a user by email as a mutable User, for read-modify-write paths.
      *
      * @param email the email of the user
      * @return an Optional containing the User if found, otherwise empty
      */
     public Optional<User> findByEmail(String email) {
+        return findOneByEmail(USER_COLUMNS, userRowMapper, email);
+    }
+
+    /**
+     * Retrieves the identity and role of a user by email.
+     *
+     * @param email the email of the user
+     * @return an Optional containing the identity if found, otherwise empty
+     */
+    public Optional<UserIdentity> findIdentityByEmail(String email) {
+        return findOneByEmail(IDENTITY_COLUMNS, identityRowMapper, email);
+    }
+
+    /**
+     * Retrieves the authentication view of a user by email.
+     *
+     * @param email the email of the user
+     * @return an Optional containing the auth view if found, otherwise empty
+     */
+    public Optional<UserAuthView> findAuthViewByEmail(String email) {
+        return findOneByEmail(AUTH_COLUMNS, authRowMapper, email);
+    }
+
+    /**
+     * Retrieves the authentication views of several users with a single {@code = ANY(?)} query,
+     * served by the unique index on email.
+     *
+     * @param emails the emails of the users
+     * @return the auth views of the users that exist, in no particular order
+     */
+    public List<UserAuthView> findAuthViewsByEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return List.of();
+        }
         try {
-            User user = jdbcTemplate.queryForObject(
-                    "SELECT * FROM users WHERE email = ?",
-                    userRowMapper,
+            return jdbcTemplate.query(
+                    "SELECT " + AUTH_COLUMNS + " FROM users WHERE email = ANY (?)",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", emails.toArray())),
+                    authRowMapper
+            );
+        } catch (DataAccessException e) {
+            logger.error("Database error while retrieving {} users by email", emails.size(), e);
+            throw e;
+        }
+    }
+
+    private <T> Optional<T> findOneByEmail(String columns, RowMapper<T> rowMapper, String email) {
+        try {
+            T result = jdbcTemplate.queryForObject(
+                    "SELECT " + columns + " FROM users WHERE email = ?",
+                    rowMapper,
                     email
             );
-            return Optional.ofNullable(user);
+            return Optional.ofNullable(result);
         } catch (EmptyResultDataAccessException e) {
             logger.warn("User not found with email: {}", email);
             return Optional.empty();
@@ -82,33 +179,47 @@ public class UserDAO {
 
     /**
      * Saves or updates a user in the database.
+     * Every write advances the users change version in the same statement and publishes a USER
+     * {@link InvalidationEvent} and a {@link UserChangedEvent}; bulk statements against users
+     * must do the same.
      *
      * @param user the user to save or update
      */
     public void save(User user) {
         try {
+            Long version;
             if (user.getId() == null) {
-                jdbcTemplate.update(
-                        "INSERT INTO users (email, username, role, counter, current_token) VALUES (?, ?, ?, ?, ?)",
+                version = jdbcTemplate.query(
+                        "INSERT INTO users (email, username, role, counter, current_token_hash) VALUES (?, ?, ?, ?, ?) " +
+                                "RETURNING nextval('users_change_seq')",
+                        changeVersionExtractor,
                         user.getEmail(),
                         user.getUsername(),
                         user.getRole(),
                         user.getCounter(),
-                        user.getCurrentToken()
+                        user.getCurrentTokenHash()
                 );
                 logger.info("New user added: {}", user.getEmail());
             } else {
-                jdbcTemplate.update(
-                        "UPDATE users SET email = ?, username = ?, role = ?, counter = ?, current_token = ? WHERE id = ?",
+                version = jdbcTemplate.query(
+                        "UPDATE users SET email = ?, username = ?, role = ?, counter = ?, current_token_hash = ? WHERE id = ? " +
+                                "RETURNING nextval('users_change_seq')",
+                        changeVersionExtractor,
                         user.getEmail(),
                         user.getUsername(),
                         user.getRole(),
                         user.getCounter(),
-                        user.getCurrentToken(),
+                        user.getCurrentTokenHash(),
                         user.getId()
                 );
                 logger.info("User updated: {}", user.getEmail());
             }
+            if (version != null) {
+                logger.debug("Users change version advanced to {}", version);
+                eventPublisher.publishEvent(InvalidationEvent.local(InvalidationEvent.Topic.USER, user.getEmail()));
+                eventPublisher.publishEvent(new UserChangedEvent(user.getEmail(), user.getUsername(), user.getRole(),
+                        user.getCounter() != null ? user.getCounter() : 0));
+            }
         } catch (DataAccessException e) {
             logger.error("Database error while saving user: {}", user.getEmail(), e);
             throw e;
@@ -116,16 +227,131 @@ public class UserDAO {
     }
 
     /**
-     * Retrieves all users from the database.
+     * Takes the transaction-scoped advisory lock of a user, waiting for other nodes' transitions
+     * on the same user to commit. Released automatically at commit or rollback.
      *
-     * @return a list of users
+     * @param email the user's email
      */
-    public List<User> findAll() {
+    public void lockUser(String email) {
         try {
-            return jdbcTemplate.query("SELECT * FROM users", userRowMapper);
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?, hashtext(?))", ignoreResult, USER_LOCK_NAMESPACE, email);
+        } catch (DataAccessException e) {
+            logger.error("Database error while locking user: {}", email, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the current change version of the users table.
+     *
+     * @return the last assigned change version
+     */
+    public long currentChangeVersion() {
+        try {
+            Long version = jdbcTemplate.queryForObject("SELECT last_value FROM users_change_seq", Long.class);
+            return version != null ? version : 0L;
+        } catch (DataAccessException e) {
+            logger.error("Database error while reading users change version", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the directory view of all users.
+     *
+     * @return a list of directory entries
+     */
+    public List<UserDirectoryEntry> findDirectoryEntries() {
+        try {
+            return jdbcTemplate.query("SELECT " + DIRECTORY_COLUMNS + " FROM users", directoryRowMapper);
         } catch (DataAccessException e) {
             logger.error("Database error while retrieving all users", e);
             throw e;
         }
     }
+
+    /**
+     * Searches the non-admin users by email and username. Prefixes are matched with LIKE on the
+     * lower-cased columns; with pg_trgm installed, typos are matched by word similarity
+     * ({@code <%}), which the trigram indexes serve, and rank by it. Without pg_trgm only
+     * prefixes match.
+     * The similarity threshold is set for the current transaction, so call this inside one.
+     *
+     * @param query the lower-cased query
+     * @param limit the maximum number of hits
+     * @param offset the number of best hits to skip
+     * @return the hits, best first
+     */
+    public List<UserSearchHit> searchDirectory(String query, int limit, int offset) {
+        String prefix = escapeLike(query) + "%";
+        try {
+            if (!isTrigramSearchAvailable()) {
+                return jdbcTemplate.query(
+                        "SELECT " + DIRECTORY_COLUMNS + ", 1.0 AS score FROM users " +
+                                "WHERE (lower(email) LIKE ? OR lower(username) LIKE ?) " +
+                                "AND upper(coalesce(role, '')) <> 'ADMIN' " +
+                                "ORDER BY email LIMIT ? OFFSET ?",
+                        searchHitRowMapper,
+                        prefix, prefix, limit, offset
+                );
+            }
+            jdbcTemplate.query("SELECT set_config('pg_trgm.word_similarity_threshold', ?, true)",
+                    ignoreResult, Double.toString(similarityThreshold));
+            return jdbcTemplate.query(
+                    "SELECT " + DIRECTORY_COLUMNS + ", " +
+                            "CASE WHEN lower(email) LIKE ? OR lower(username) LIKE ? THEN 1.0 " +
+                            "ELSE GREATEST(word_similarity(?, lower(email)), word_similarity(?, lower(username))) END AS score " +
+                            "FROM users " +
+                            "WHERE (lower(email) LIKE ? OR lower(username) LIKE ? " +
+                            "OR ? <% lower(email) OR ? <% lower(username)) " +
+                            "AND upper(coalesce(role, '')) <> 'ADMIN' " +
+                            "ORDER BY score DESC, email LIMIT ? OFFSET ?",
+                    searchHitRowMapper,
+                    prefix, prefix, query, query, prefix, prefix, query, query, limit, offset
+            );
+        } catch (DataAccessException e) {
+            logger.error("Database error while searching users for: {}", query, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the users with the highest positive counters, highest first, ties by email.
+     * Served by the partial index on (counter DESC, email), so only {@code limit} rows are read.
+     * Emails are compared by code point, as {@link String#compareTo} does, so ties rank the same
+     * here and in memory.
+     *
+     * @param limit the maximum number of users
+     * @return the directory entries, highest counter first
+     */
+    public List<UserDirectoryEntry> findTopByCounter(int limit) {
+        try {
+            return jdbcTemplate.query(
+                    "SELECT " + DIRECTORY_COLUMNS + " FROM users WHERE counter > 0 " +
+                            "ORDER BY counter DESC, email COLLATE \"C\" LIMIT ?",
+                    directoryRowMapper,
+                    limit
+            );
+        } catch (DataAccessException e) {
+            logger.error("Database error while retrieving the top {} counters", limit, e);
+            throw e;
+        }
+    }
+
+    private boolean isTrigramSearchAvailable() {
+        Boolean available = trigramSearch;
+        if (available == null) {
+            available = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')", Boolean.class));
+            if (!available) {
+                logger.warn("pg_trgm is not installed; user search matches prefixes only");
+            }
+            trigramSearch = available;
+        }
+        return available;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 }
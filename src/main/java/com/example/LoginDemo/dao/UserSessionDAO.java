@@ -1,23 +1,38 @@
 package com.example.LoginDemo.dao;
 
+import com.example.LoginDemo.event.InvalidationEvent;
+import com.example.LoginDemo.model.ActiveSession;
+import com.example.LoginDemo.model.BrowserSessionKey;
+import com.example.LoginDemo.model.UserIdentity;
 import com.example.LoginDemo.model.UserSession;
 import com.example.LoginDemo.exception.GlobalExceptionHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Data Access Object (DAO) for managing user session records in the database.
  */
 @Repository
-public class UserSessionDAO {
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "jdbc", matchIfMissing = true)
+public class UserSessionDAO implements UserSessionStore {
 
     private static final Logger logger = LoggerFactory.getLogger(UserSessionDAO.class);
 
@@ -25,7 +40,13 @@ public class UserSessionDAO {
     private JdbcTemplate jdbcTemplate;
 
     @Autowired
-    private UserDAO userDAO;
+    private ApplicationEventPublisher eventPublisher;
+
+    // Session columns plus the identity of the owning user, joined in one statement
+    private static final String SESSION_SELECT =
+            "SELECT s.id, s.browser_id, s.active, s.created_at, s.updated_at, " +
+                    "u.id AS user_id, u.email AS user_email, u.role AS user_role " +
+                    "FROM user_sessions s JOIN users u ON s.user_id = u.id ";
 
     private final RowMapper<UserSession> sessionRowMapper = new RowMapper<>() {
         @Override
@@ -34,15 +55,28 @@ public class UserSessionDAO {
             session.setId(rs.getLong("id"));
             session.setBrowserId(rs.getString("browser_id"));
             session.setActive(rs.getBoolean("active"));
+            session.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+            session.setUpdatedAt(toLocalDateTime(rs.getTimestamp("updated_at")));
 
-            // Get the associated user
-            String userEmail = rs.getString("user_email");
-            userDAO.findByEmail(userEmail).ifPresent(session::setUser);
+            // The associated user comes from the joined columns, not from a lookup per row
+            session.setUser(new UserIdentity(rs.getLong("user_id"), rs.getString("user_email"),
+                    rs.getString("user_role")));
 
             return session;
         }
     };
 
+    private final RowMapper<ActiveSession> activeSessionRowMapper = (ResultSet rs, int rowNum) ->
+            new ActiveSession(rs.getLong("id"), rs.getString("browser_id"),
+                    toLocalDateTime(rs.getTimestamp("created_at")), toLocalDateTime(rs.getTimestamp("last_seen_at")));
+
+    // Reads the browser ID returned by a revocation's RETURNING clause
+    private final ResultSetExtractor<String> browserIdExtractor = rs -> rs.next() ? rs.getString(1) : null;
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
     /**
      * Retrieves active user sessions for a given email.
      *
@@ -53,15 +87,13 @@ public class UserSessionDAO {
     public List<UserSession> findByUserEmailAndActive(String email, boolean active) {
         try {
             return jdbcTemplate.query(
-                    "SELECT s.*, u.email as user_email FROM user_sessions s " +
-                            "JOIN users u ON s.user_id = u.id " +
-                            "WHERE u.email = ? AND s.active = ?",
+                    SESSION_SELECT + "WHERE u.email = ? AND s.active = ?",
                     sessionRowMapper,
                     email, active
             );
-        } catch (Exception ex) {
+        } catch (DataAccessException ex) {
             logger.error("Error fetching user sessions by email and active status: {}", ex.getMessage());
-            throw new RuntimeException("Error fetching user sessions", ex);
+            throw ex;
         }
     }
 
@@ -76,36 +108,151 @@ public class UserSessionDAO {
     public List<UserSession> findByUserEmailAndBrowserIdAndActive(String email, String browserId, boolean active) {
         try {
             return jdbcTemplate.query(
-                    "SELECT s.*, u.email as user_email FROM user_sessions s " +
-                            "JOIN users u ON s.user_id = u.id " +
-                            "WHERE u.email = ? AND s.browser_id = ? AND s.active = ?",
+                    SESSION_SELECT + "WHERE u.email = ? AND s.browser_id = ? AND s.active = ?",
                     sessionRowMapper,
                     email, browserId, active
             );
-        } catch (Exception ex) {
+        } catch (DataAccessException ex) {
             logger.error("Error fetching user sessions by email, browser ID, and active status: {}", ex.getMessage());
-            throw new RuntimeException("Error fetching user sessions", ex);
+            throw ex;
         }
     }
 
     /**
-     * Checks if a browser session is active.
+     * Registers an active session for a browser in one statement.
+     * The unique partial index on active (user, browser) pairs makes concurrent registrations of
+     * the same user in the same browser race-free: exactly one insert wins and the others are
+     * no-ops. Other users' sessions in the browser are left alone.
      *
+     * @param email the user's email
      * @param browserId the browser identifier
-     * @return true if an active session exists, false otherwise
+     * @return true if a session was created, false if the user already had an active session in the browser
      */
-    public boolean browserSessionActive(String browserId) {
+    public boolean registerActiveSession(String email, String browserId) {
         try {
-            Integer count = jdbcTemplate.queryForObject(
-                    "SELECT COUNT(*) FROM user_sessions WHERE browser_id = ? AND active = ?",
-                    Integer.class,
+            int inserted = jdbcTemplate.update(
+                    "INSERT INTO user_sessions (user_id, browser_id, active, created_at, updated_at) " +
+                            "SELECT id, ?, TRUE, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM users WHERE email = ? " +
+                            "ON CONFLICT (user_id, browser_id) WHERE active DO NOTHING",
                     browserId,
-                    true
+                    email
+            );
+            if (inserted > 0) {
+                eventPublisher.publishEvent(InvalidationEvent.local(InvalidationEvent.Topic.SESSION, browserId));
+            }
+            return inserted > 0;
+        } catch (DataAccessException ex) {
+            logger.error("Error registering browser session: {}", ex.getMessage());
+            throw ex;
+        }
+    }
+
+    /**
+     * Lists the active sessions of a user, most recently seen first.
+     * Served by an index-only scan of ix_user_sessions_user_active.
+     *
+     * @param email the user's email
+     * @return the active sessions
+     */
+    public List<ActiveSession> findActiveSessions(String email) {
+        try {
+            return jdbcTemplate.query(
+                    "SELECT s.id, s.browser_id, s.created_at, s.last_seen_at FROM user_sessions s " +
+                            "WHERE s.user_id = (SELECT id FROM users WHERE email = ?) AND s.active " +
+                            "ORDER BY COALESCE(s.last_seen_at, s.created_at) DESC",
+                    activeSessionRowMapper,
+                    email
+            );
+        } catch (DataAccessException ex) {
+            logger.error("Error fetching active sessions: {}", ex.getMessage());
+            throw ex;
+        }
+    }
+
+    /**
+     * Deactivates one session of a user.
+     *
+     * @param email the user's email
+     * @param sessionId the session to revoke
+     * @return the browser ID of the revoked session, or empty if the user has no such active session
+     */
+    public Optional<String> revokeSession(String email, long sessionId) {
+        try {
+            String browserId = jdbcTemplate.query(
+                    "UPDATE user_sessions SET active = FALSE, updated_at = CURRENT_TIMESTAMP " +
+                            "WHERE id = ? AND active AND user_id = (SELECT id FROM users WHERE email = ?) " +
+                            "RETURNING browser_id",
+                    browserIdExtractor,
+                    sessionId,
+                    email
+            );
+            if (browserId != null) {
+                eventPublisher.publishEvent(InvalidationEvent.local(InvalidationEvent.Topic.SESSION, browserId));
+            }
+            return Optional.ofNullable(browserId);
+        } catch (DataAccessException ex) {
+            logger.error("Error revoking user session: {}", ex.getMessage());
+            throw ex;
+        }
+    }
+
+    /**
+     * Checks whether a browser of the user was signed out after the given time, so that a token
+     * issued before a remote sign-out cannot re-register that browser. Token issue times have
+     * whole seconds, so a sign-out is disregarded once a newer active session of the browser
+     * exists: otherwise signing in again within the second of a sign-out would be refused.
+     *
+     * @param email the user's email
+     * @param browserId the browser identifier
+     * @param since the instant the token was issued
+     * @return true if the browser had a session deactivated at or after {@code since} and no
+     *         active session created after that
+     */
+    public boolean signedOutSince(String email, String browserId, Instant since) {
+        try {
+            Boolean signedOut = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM user_sessions s " +
+                            "WHERE s.user_id = (SELECT id FROM users WHERE email = ?) AND s.browser_id = ? " +
+                            "AND NOT s.active AND s.updated_at >= to_timestamp(?)::timestamp " +
+                            "AND NOT EXISTS (SELECT 1 FROM user_sessions a WHERE a.user_id = s.user_id " +
+                            "AND a.browser_id = s.browser_id AND a.active AND a.created_at >= s.updated_at))",
+                    Boolean.class,
+                    email,
+                    browserId,
+                    since.getEpochSecond()
+            );
+            return Boolean.TRUE.equals(signedOut);
+        } catch (DataAccessException ex) {
+            logger.error("Error checking browser sign-out: {}", ex.getMessage());
+            throw ex;
+        }
+    }
+
+    /**
+     * Writes coalesced last-seen times in one batch. A time never moves backwards, so an older
+     * flush arriving late cannot overwrite a newer one.
+     *
+     * @param lastSeen last activity per user and browser
+     */
+    public void updateLastSeen(Map<BrowserSessionKey, Instant> lastSeen) {
+        if (lastSeen.isEmpty()) {
+            return;
+        }
+        try {
+            List<Object[]> batch = new ArrayList<>(lastSeen.size());
+            lastSeen.forEach((key, seenAt) -> {
+                double epochSeconds = seenAt.toEpochMilli() / 1000.0;
+                batch.add(new Object[]{epochSeconds, key.email(), key.browserId(), epochSeconds});
+            });
+            jdbcTemplate.batchUpdate(
+                    "UPDATE user_sessions SET last_seen_at = to_timestamp(?)::timestamp " +
+                            "WHERE user_id = (SELECT id FROM users WHERE email = ?) AND browser_id = ? AND active " +
+                            "AND (last_seen_at IS NULL OR last_seen_at < to_timestamp(?)::timestamp)",
+                    batch
             );
-            return count != null && count > 0;
-        } catch (Exception ex) {
-            logger.error("Error checking browser session activity: {}", ex.getMessage());
-            throw new RuntimeException("Error checking browser session activity", ex);
+        } catch (DataAccessException ex) {
+            logger.error("Error updating session last-seen times: {}", ex.getMessage());
+            throw ex;
         }
     }
 
@@ -121,7 +268,7 @@ public class UserSessionDAO {
                 jdbcTemplate.update(
                         "INSERT INTO user_sessions (user_id, browser_id, active, created_at, updated_at) " +
                                 "VALUES (?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)",
-                        session.getUser().getId(),
+                        session.getUser().id(),
                         session.getBrowserId(),
                         session.isActive()
                 );
@@ -134,9 +281,10 @@ public class UserSessionDAO {
                         session.getId()
                 );
             }
-        } catch (Exception ex) {
+            eventPublisher.publishEvent(InvalidationEvent.local(InvalidationEvent.Topic.SESSION, session.getBrowserId()));
+        } catch (DataAccessException ex) {
             logger.error("Error saving user session: {}", ex.getMessage());
-            throw new RuntimeException("Error saving user session", ex);
+            throw ex;
         }
     }
 
@@ -150,9 +298,9 @@ public class UserSessionDAO {
             for (UserSession session : sessions) {
                 save(session);
             }
-        } catch (Exception ex) {
+        } catch (DataAccessException ex) {
             logger.error("Error saving multiple user sessions: {}", ex.getMessage());
-            throw new RuntimeException("Error saving multiple user sessions", ex);
+            throw ex;
         }
     }
 }
@@ -0,0 +1,105 @@
+package com.example.LoginDemo.dao;
+
+import com.example.LoginDemo.model.ActiveSession;
+import com.example.LoginDemo.model.BrowserSessionKey;
+import com.example.LoginDemo.model.UserSession;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Storage of browser sessions. {@link UserSessionDAO} (Postgres) is the default implementation
+ * and {@link EmbeddedUserSessionStore} the embedded one, selected with {@code app.storage.type}.
+ * <p>
+ * A user has at most one active session per browser; several users may be signed in on the
+ * same browser. Implementations publish a SESSION
+ * {@link com.example.LoginDemo.event.InvalidationEvent} for every write.
+ * <p>
+ * As with {@link UserStore}, writes of the embedded store are not undone by a rollback.
+ */
+public interface UserSessionStore {
+
+    /**
+     * Retrieves the sessions of a user with the given status.
+     *
+     * @param email the user's email
+     * @param active session status
+     * @return the matching sessions
+     */
+    List<UserSession> findByUserEmailAndActive(String email, boolean active);
+
+    /**
+     * Retrieves the sessions of a user in one browser with the given status.
+     *
+     * @param email the user's email
+     * @param browserId the browser identifier
+     * @param active session status
+     * @return the matching sessions
+     */
+    List<UserSession> findByUserEmailAndBrowserIdAndActive(String email, String browserId, boolean active);
+
+    /**
+     * Registers an active session of a user in a browser, atomically with respect to concurrent
+     * registrations of the same user in the same browser.
+     *
+     * @param email the user's email
+     * @param browserId the browser identifier
+     * @return true if a session was created, false if the user already had an active session in
+     *         the browser or does not exist
+     */
+    boolean registerActiveSession(String email, String browserId);
+
+    /**
+     * Lists the active sessions of a user, most recently seen first.
+     *
+     * @param email the user's email
+     * @return the active sessions
+     */
+    List<ActiveSession> findActiveSessions(String email);
+
+    /**
+     * Deactivates one session of a user.
+     *
+     * @param email the user's email
+     * @param sessionId the session to revoke
+     * @return the browser ID of the revoked session, or empty if the user has no such active session
+     */
+    Optional<String> revokeSession(String email, long sessionId);
+
+    /**
+     * Checks whether a browser of the user was signed out at or after the given time and has
+     * not signed in again since. A sign-in superseding the sign-out counts even within the same
+     * second, as token issue times have whole seconds.
+     *
+     * @param email the user's email
+     * @param browserId the browser identifier
+     * @param since the instant the token was issued
+     * @return true if the browser had a session deactivated at or after {@code since} and no
+     *         active session created after that
+     */
+    boolean signedOutSince(String email, String browserId, Instant since);
+
+    /**
+     * Writes coalesced last-seen times of active sessions. A time never moves backwards.
+     *
+     * @param lastSeen last activity per user and browser
+     */
+    void updateLastSeen(Map<BrowserSessionKey, Instant> lastSeen);
+
+    /**
+     * Inserts a session without an ID or updates the browser ID and status of the session with
+     * the given ID.
+     *
+     * @param session the user session to save
+     */
+    void save(UserSession session);
+
+    /**
+     * Saves multiple user sessions.
+     *
+     * @param sessions list of user sessions to save
+     */
+    void saveAll(List<UserSession> sessions);
+}
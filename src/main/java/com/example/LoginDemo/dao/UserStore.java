@@ -0,0 +1,116 @@
+package com.example.LoginDemo.dao;
+
+import com.example.LoginDemo.model.User;
+import com.example.LoginDemo.model.UserAuthView;
+import com.example.LoginDemo.model.UserDirectoryEntry;
+import com.example.LoginDemo.model.UserIdentity;
+import com.example.LoginDemo.model.UserSearchHit;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage of users. {@link UserDAO} (Postgres) is the default implementation and
+ * {@link EmbeddedUserStore} the embedded one, selected with {@code app.storage.type}.
+ * <p>
+ * Implementations publish a USER {@link com.example.LoginDemo.event.InvalidationEvent} for every
+ * write and report failures as Spring {@link org.springframework.dao.DataAccessException}s.
+ * <p>
+ * Writes are not necessarily transactional: those of the embedded store take effect at once and
+ * are not undone when the surrounding transaction rolls back. Callers making several writes
+ * order them so that a failure in between leaves a safe state that a retry completes.
+ */
+public interface UserStore {
+
+    /**
+     * Retrieves a user by email as a mutable User, for read-modify-write paths.
+     *
+     * @param email the email of the user
+     * @return an Optional containing the User if found, otherwise empty
+     */
+    Optional<User> findByEmail(String email);
+
+    /**
+     * Retrieves the identity and role of a user by email.
+     *
+     * @param email the email of the user
+     * @return an Optional containing the identity if found, otherwise empty
+     */
+    Optional<UserIdentity> findIdentityByEmail(String email);
+
+    /**
+     * Retrieves the authentication view of a user by email.
+     *
+     * @param email the email of the user
+     * @return an Optional containing the auth view if found, otherwise empty
+     */
+    Optional<UserAuthView> findAuthViewByEmail(String email);
+
+    /**
+     * Retrieves the authentication views of several users in one lookup.
+     *
+     * @param emails the emails of the users
+     * @return the auth views of the users that exist, in no particular order
+     */
+    List<UserAuthView> findAuthViewsByEmails(Collection<String> emails);
+
+    /**
+     * Checks if a user exists by email.
+     *
+     * @param email the email to check
+     * @return true if the user exists, false otherwise
+     */
+    boolean existsByEmail(String email);
+
+    /**
+     * Inserts a user without an ID or updates the user with the given ID. The ID of an inserted
+     * user is assigned by the store and not written back to {@code user}.
+     *
+     * @param user the user to save or update
+     * @throws org.springframework.dao.DuplicateKeyException if another user has the same email
+     */
+    void save(User user);
+
+    /**
+     * Makes the current transaction exclusive for a user across all nodes sharing the store.
+     * Stores that serve a single node may rely on the in-process lock of {@code UserLockManager}.
+     *
+     * @param email the user's email
+     */
+    void lockUser(String email);
+
+    /**
+     * Returns the change version of the users, which advances with every write.
+     *
+     * @return the last assigned change version
+     */
+    long currentChangeVersion();
+
+    /**
+     * Retrieves the directory view of all users.
+     *
+     * @return a list of directory entries
+     */
+    List<UserDirectoryEntry> findDirectoryEntries();
+
+    /**
+     * Searches the non-admin users by email and username prefix, tolerating typos. Prefix
+     * matches come first, then the closest fuzzy matches, ties by email. How closeness is
+     * measured is up to the implementation, so fuzzy matches may rank differently per store.
+     *
+     * @param query the lower-cased query
+     * @param limit the maximum number of hits
+     * @param offset the number of best hits to skip
+     * @return the hits, best first
+     */
+    List<UserSearchHit> searchDirectory(String query, int limit, int offset);
+
+    /**
+     * Retrieves the users with the highest positive counters, highest first, ties by email.
+     *
+     * @param limit the maximum number of users
+     * @return the directory entries, highest counter first
+     */
+    List<UserDirectoryEntry> findTopByCounter(int limit);
+}
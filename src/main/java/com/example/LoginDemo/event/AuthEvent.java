@@ -0,0 +1,95 @@
+package com.example.LoginDemo.event;
+
+import org.slf4j.MDC;
+
+import java.time.Instant;
+
+/**
+ * An audited authentication action. AuthService publishes it; AuthEventJournal appends committed
+ * events to the binary journal and assigns their sequence numbers.
+ *
+ * @param sequence position in the journal, 0 until journaled
+ * @param time when the action happened
+ * @param type the action
+ * @param email the user's email
+ * @param browserId the browser involved, or null
+ * @param value type-specific detail, see {@link Type}
+ * @param correlationId the correlation ID of the request, or null outside a request
+ */
+public record AuthEvent(long sequence, Instant time, Type type, String email, String browserId, long value,
+                        String correlationId) {
+
+    /**
+     * Audited actions. The codes are stored in the journal and must not change.
+     */
+    public enum Type {
+        /** A token was issued for a redeemed magic link; value is 0. */
+        LOGIN(1),
+        /** A token was validated for a browser; value is 1 if that registered a new session. */
+        VALIDATE(2),
+        /** The counter was incremented; value is the new count. */
+        INCREMENT(3),
+        /** A browser logged out; value is 1 if all browsers were logged out. */
+        LOGOUT(4),
+        /** A session was revoked remotely; value is the session ID. */
+        REVOKE(5),
+        /** A user was added; value is 0. */
+        ADD_USER(6);
+
+        private static final Type[] BY_CODE = new Type[8];
+
+        static {
+            for (Type type : values()) {
+                BY_CODE[type.code] = type;
+            }
+        }
+
+        private final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        public byte code() {
+            return code;
+        }
+
+        /**
+         * Resolves a type from its stored code.
+         *
+         * @param code the code
+         * @return the type
+         * @throws IllegalArgumentException if the code is unknown
+         */
+        public static Type fromCode(byte code) {
+            Type type = code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+            if (type == null) {
+                throw new IllegalArgumentException("Unknown auth event type: " + code);
+            }
+            return type;
+        }
+    }
+
+    /**
+     * Creates an event happening now, in the current request.
+     *
+     * @param type the action
+     * @param email the user's email
+     * @param browserId the browser involved, or null
+     * @param value type-specific detail
+     * @return the event, without a sequence number
+     */
+    public static AuthEvent of(Type type, String email, String browserId, long value) {
+        return new AuthEvent(0, Instant.now(), type, email, browserId, value, MDC.get("correlationId"));
+    }
+
+    /**
+     * Returns this event with its journal position.
+     *
+     * @param sequence the sequence number
+     * @return the numbered event
+     */
+    public AuthEvent withSequence(long sequence) {
+        return new AuthEvent(sequence, time, type, email, browserId, value, correlationId);
+    }
+}
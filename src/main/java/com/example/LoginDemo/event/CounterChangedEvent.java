@@ -0,0 +1,14 @@
+package com.example.LoginDemo.event;
+
+/**
+ * A user's counter was set to a new value, by an increment or by the reset at the end of a
+ * login. Published locally by AuthService within the transition's transaction; unlike a COUNTER
+ * invalidation it carries the value, so listeners need not read it back.
+ *
+ * @param email the user's email
+ * @param username the user's name
+ * @param role the user's role
+ * @param counter the new counter value
+ */
+public record CounterChangedEvent(String email, String username, String role, int counter) {
+}
@@ -0,0 +1,65 @@
+package com.example.LoginDemo.event;
+
+/**
+ * Signals that cached state derived from the database is stale.
+ * Writers publish it locally; InvalidationBus forwards local events to the other nodes and
+ * republishes their events here with {@code remote} set.
+ *
+ * @param topic the kind of state that changed
+ * @param key the identifier within the topic (email or browser ID), or "*" for everything
+ * @param remote whether the event originated on another node
+ */
+public record InvalidationEvent(Topic topic, String key, boolean remote) {
+
+    /**
+     * Kinds of cached state.
+     */
+    public enum Topic {
+        /** A users row changed; key is the email. */
+        USER('u'),
+        /** A user_sessions row changed; key is the browser ID. */
+        SESSION('s'),
+        /** A user's current token was revoked; key is the email. */
+        TOKEN('t'),
+        /** A user's counter changed; key is the email. */
+        COUNTER('c'),
+        /** Notifications may have been missed; drop all cached state. */
+        ALL('*');
+
+        private final char code;
+
+        Topic(char code) {
+            this.code = code;
+        }
+
+        public char code() {
+            return code;
+        }
+
+        /**
+         * Resolves a topic from its single-character wire code.
+         *
+         * @param code the wire code
+         * @return the topic, or null if unknown
+         */
+        public static Topic fromCode(char code) {
+            for (Topic topic : values()) {
+                if (topic.code == code) {
+                    return topic;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Creates a locally originated event.
+     *
+     * @param topic the kind of state that changed
+     * @param key the identifier within the topic
+     * @return the event
+     */
+    public static InvalidationEvent local(Topic topic, String key) {
+        return new InvalidationEvent(topic, key, false);
+    }
+}
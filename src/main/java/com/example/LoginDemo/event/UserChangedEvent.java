@@ -0,0 +1,14 @@
+package com.example.LoginDemo.event;
+
+/**
+ * A users row was written on this node. Published by the user stores next to the USER
+ * invalidation, within the write's transaction; unlike the invalidation it carries the
+ * directory fields, so listeners need not read them back.
+ *
+ * @param email the user's email
+ * @param username the user's name
+ * @param role the user's role
+ * @param counter the user's counter
+ */
+public record UserChangedEvent(String email, String username, String role, int counter) {
+}
@@ -0,0 +1,73 @@
+package com.example.LoginDemo.exception;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a call to a downstream dependency (SMTP, the database) is refused or abandoned
+ * by its guard, so the request fails fast instead of tying up its thread.
+ * <p>
+ * Refusals are expected while a dependency is down and can come in bursts, so this exception
+ * carries no stack trace.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    /**
+     * Why the call did not complete.
+     */
+    public enum Reason {
+        /** The dependency's circuit breaker is open. */
+        CIRCUIT_OPEN,
+        /** All of the dependency's bulkhead slots are taken. */
+        BULKHEAD_FULL,
+        /** The call did not complete within the dependency's timeout. */
+        TIMEOUT
+    }
+
+    // A full bulkhead or a timeout may clear at any moment
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final String dependency;
+    private final Reason reason;
+    private final Duration retryAfter;
+
+    /**
+     * Creates the exception for a refusal that may clear at any moment.
+     *
+     * @param dependency name of the dependency
+     * @param reason why the call did not complete
+     */
+    public DependencyUnavailableException(String dependency, Reason reason) {
+        this(dependency, reason, DEFAULT_RETRY_AFTER);
+    }
+
+    /**
+     * Creates the exception.
+     *
+     * @param dependency name of the dependency
+     * @param reason why the call did not complete
+     * @param retryAfter how long until a call may be let through again
+     */
+    public DependencyUnavailableException(String dependency, Reason reason, Duration retryAfter) {
+        super(dependency + " unavailable: " + reason);
+        this.dependency = dependency;
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getDependency() {
+        return dependency;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
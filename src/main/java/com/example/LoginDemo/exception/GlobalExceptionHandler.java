@@ -1,9 +1,11 @@
 package com.example.LoginDemo.exception;
 
+import com.example.LoginDemo.config.TokenVerification;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -21,14 +23,31 @@ public class GlobalExceptionHandler {
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
     /**
-     * Handles general JWT exceptions.
+     * Handles rejected or no longer current tokens. Not logged per request: JwtUtil reports
+     * rejections in aggregate, and scanners sending junk tokens would flood the log.
+     *
+     * @param ex the InvalidTokenException
+     * @return ResponseEntity with error details
+     */
+    @ExceptionHandler(InvalidTokenException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidTokenException(InvalidTokenException ex) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", ex.getStatus() == TokenVerification.Status.EXPIRED
+                ? "JWT token has expired"
+                : "Invalid or malformed JWT token");
+        return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+    }
+
+    /**
+     * Handles general JWT exceptions. Logged at debug only, like rejected tokens: a client
+     * sending bad credentials is not a server error.
      *
      * @param ex the JwtException
      * @return ResponseEntity with error details
      */
     @ExceptionHandler(JwtException.class)
     public ResponseEntity<Map<String, String>> handleJwtException(JwtException ex) {
-        logger.error("JWT Exception: {}", ex.getMessage());
+        logger.debug("JWT Exception: {}", ex.getMessage());
 
         Map<String, String> response = new HashMap<>();
         response.put("error", "Invalid or malformed JWT token");
@@ -43,13 +62,46 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(ExpiredJwtException.class)
     public ResponseEntity<Map<String, String>> handleExpiredJwtException(ExpiredJwtException ex) {
-        logger.warn("Expired JWT Token: {}", ex.getMessage());
+        logger.debug("Expired JWT Token: {}", ex.getMessage());
 
         Map<String, String> response = new HashMap<>();
         response.put("error", "JWT token has expired");
         return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
     }
 
+    /**
+     * Handles calls refused by a dependency's bulkhead or circuit breaker. The guard already
+     * logs state changes, so this is not logged per request. Retry-After is the time the
+     * breaker stays open, in whole seconds and at least one.
+     *
+     * @param ex the DependencyUnavailableException
+     * @return ResponseEntity with error details and a Retry-After header
+     */
+    @ExceptionHandler(DependencyUnavailableException.class)
+    public ResponseEntity<Map<String, String>> handleDependencyUnavailableException(DependencyUnavailableException ex) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", "Service temporarily unavailable, please retry shortly");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000)))
+                .body(response);
+    }
+
+    /**
+     * Handles transitions that timed out waiting for the same user's other transitions.
+     * UserLockManager already logs the timeout, so this is not logged again.
+     *
+     * @param ex the UserBusyException
+     * @return ResponseEntity with error details and a Retry-After header
+     */
+    @ExceptionHandler(UserBusyException.class)
+    public ResponseEntity<Map<String, String>> handleUserBusyException(UserBusyException ex) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", "User is busy, please retry.");
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000)))
+                .body(response);
+    }
+
     /**
      * Handles all other exceptions.
      *
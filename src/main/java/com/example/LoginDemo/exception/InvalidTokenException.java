@@ -0,0 +1,35 @@
+package com.example.LoginDemo.exception;
+
+import com.example.LoginDemo.config.TokenVerification;
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Thrown when a request carries a token that is rejected or no longer current.
+ * <p>
+ * Rejections are routine (expired sessions, scanners sending junk tokens), so this exception
+ * carries no stack trace and is not logged per request; JwtUtil logs rejections in aggregate.
+ */
+public class InvalidTokenException extends JwtException {
+
+    private final TokenVerification.Status status;
+
+    /**
+     * Creates the exception.
+     *
+     * @param status why the token was rejected; VALID for a valid token that is not accepted here
+     * @param message the message
+     */
+    public InvalidTokenException(TokenVerification.Status status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public TokenVerification.Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.LoginDemo.exception;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a state transition of a user waited too long for that user's other transitions,
+ * so the request fails with a retry hint instead of queueing without bound.
+ * <p>
+ * Timeouts come in bursts when one user is hammered, so this exception carries no stack trace;
+ * UserLockManager logs each one.
+ */
+public class UserBusyException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    /**
+     * Creates the exception.
+     *
+     * @param email the user's email
+     * @param retryAfter how long the caller should wait before retrying
+     */
+    public UserBusyException(String email, Duration retryAfter) {
+        super("User is busy: " + email);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
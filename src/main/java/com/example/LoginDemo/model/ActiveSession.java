@@ -0,0 +1,10 @@
+package com.example.LoginDemo.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of an active browser session, for the per-user session listing.
+ * {@code lastSeenAt} is null until the first coalesced activity flush after sign-in.
+ */
+public record ActiveSession(Long id, String browserId, LocalDateTime createdAt, LocalDateTime lastSeenAt) {
+}
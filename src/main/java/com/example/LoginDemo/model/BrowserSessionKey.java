@@ -0,0 +1,8 @@
+package com.example.LoginDemo.model;
+
+/**
+ * Identifies a user's session in one browser, for per-session bookkeeping such as coalesced
+ * last-seen times.
+ */
+public record BrowserSessionKey(String email, String browserId) {
+}
@@ -0,0 +1,26 @@
+package com.example.LoginDemo.model;
+
+import java.time.Instant;
+
+/**
+ * Introspection result of one token. Inactive results carry only the reason.
+ *
+ * @param active whether the token is valid and the user's current token
+ * @param reason why the token is inactive (MALFORMED, BAD_SIGNATURE, EXPIRED, UNKNOWN_USER or
+ *               NOT_CURRENT), or null if active
+ * @param email the token's subject, if active
+ * @param role the token's role, if active
+ * @param issuedAt when the token was issued, if active
+ */
+public record TokenIntrospection(boolean active, String reason, String email, String role, Instant issuedAt) {
+
+    /**
+     * Creates the result of an inactive token.
+     *
+     * @param reason why the token is inactive
+     * @return the result
+     */
+    public static TokenIntrospection inactive(String reason) {
+        return new TokenIntrospection(false, reason, null, null, null);
+    }
+}
@@ -6,7 +6,7 @@ public class User {
     private String username;
     private String role;
     private Integer counter = 0;
-    private String currentToken;
+    private byte[] currentTokenHash;
 
     // Default constructor
     public User() {}
@@ -27,8 +27,8 @@ public class User {
     public Integer getCounter() { return counter; }
     public void setCounter(Integer counter) { this.counter = counter; }
 
-    public String getCurrentToken() { return currentToken; }
-    public void setCurrentToken(String currentToken) { this.currentToken = currentToken; }
+    public byte[] getCurrentTokenHash() { return currentTokenHash; }
+    public void setCurrentTokenHash(byte[] currentTokenHash) { this.currentTokenHash = currentTokenHash; }
 
     @Override
     public String toString() {
@@ -0,0 +1,20 @@
+package com.example.LoginDemo.model;
+
+import com.example.LoginDemo.config.TokenDigests;
+
+/**
+ * Read-only authentication view of a user: what token validation and the counter need.
+ * The current token is held as its digest only.
+ */
+public record UserAuthView(Long id, String email, String role, int counter, byte[] currentTokenHash) {
+
+    /**
+     * Checks whether a token is the user's current token, in constant time.
+     *
+     * @param token the presented token
+     * @return true if it is the current token
+     */
+    public boolean isCurrentToken(String token) {
+        return TokenDigests.matches(currentTokenHash, token);
+    }
+}
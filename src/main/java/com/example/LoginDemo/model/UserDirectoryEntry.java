@@ -0,0 +1,7 @@
+package com.example.LoginDemo.model;
+
+/**
+ * Read-only directory view of a user, for listings. Never carries the current token.
+ */
+public record UserDirectoryEntry(String email, String username, String role, int counter) {
+}
@@ -0,0 +1,8 @@
+package com.example.LoginDemo.model;
+
+/**
+ * Read-only identity-plus-role view of a user, for session joins and lookups that only need
+ * to know who the user is.
+ */
+public record UserIdentity(Long id, String email, String role) {
+}
@@ -0,0 +1,13 @@
+package com.example.LoginDemo.model;
+
+/**
+ * A user matched by a directory search. Never carries the current token.
+ *
+ * @param email the user's email
+ * @param username the user's name
+ * @param role the user's role
+ * @param counter the user's counter
+ * @param score how well the user matched, from 0 to 1; 1 for a prefix match
+ */
+public record UserSearchHit(String email, String username, String role, int counter, double score) {
+}
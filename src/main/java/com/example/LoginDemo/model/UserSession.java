@@ -4,7 +4,7 @@ import java.time.LocalDateTime;
 
 public class UserSession {
     private Long id;
-    private User user;
+    private UserIdentity user;
     private String browserId;
     private boolean active = true;
     private LocalDateTime createdAt;
@@ -17,8 +17,8 @@ public class UserSession {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
-    public User getUser() { return user; }
-    public void setUser(User user) { this.user = user; }
+    public UserIdentity getUser() { return user; }
+    public void setUser(UserIdentity user) { this.user = user; }
 
     public String getBrowserId() { return browserId; }
     public void setBrowserId(String browserId) { this.browserId = browserId; }
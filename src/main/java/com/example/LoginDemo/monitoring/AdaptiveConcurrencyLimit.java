@@ -0,0 +1,134 @@
+package com.example.LoginDemo.monitoring;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to the latency of the requests it admits.
+ * <p>
+ * Two moving averages of the round-trip time are kept: a short one tracking current latency and
+ * a long one serving as the no-load baseline. While the short average stays within
+ * {@link #TOLERANCE} of the baseline the limit grows by about its square root per sample, so
+ * there is always some queueing headroom; once requests get slower than that, the limit shrinks
+ * in proportion to the slowdown (at most halving). Samples taken while less than half of the
+ * limit is in use cannot tell whether more would fit, so they never raise it.
+ * <p>
+ * Each {@link Priority} may only fill its share of the limit. As the limit shrinks, sheddable
+ * requests are refused first and critical ones last.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    // The short average may exceed the baseline by this factor before the limit shrinks
+    private static final double TOLERANCE = 1.5;
+    private static final double SHORT_RTT_WEIGHT = 0.1;
+    private static final double LONG_RTT_WEIGHT = 0.002;
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * Admission class of a request, with the share of the limit it may fill.
+     */
+    public enum Priority {
+        CRITICAL(1.0),
+        NORMAL(0.8),
+        SHEDDABLE(0.5);
+
+        private final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    // Guarded by this
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    /**
+     * Creates a limit.
+     *
+     * @param initialLimit the limit before any samples
+     * @param minLimit the lowest the limit goes
+     * @param maxLimit the highest the limit goes
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Admits a request if its priority's share of the limit is not in use yet. An admitted
+     * request must be completed with {@link #release(long)}.
+     *
+     * @param priority the request's priority
+     * @return true if the request was admitted
+     */
+    public boolean tryAcquire(Priority priority) {
+        int allowed = Math.max(1, (int) (limit * priority.share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Completes an admitted request and adapts the limit to its round-trip time.
+     *
+     * @param rttNanos the time from admission to completion, in nanoseconds
+     */
+    public void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        update(rttNanos, inFlightBefore);
+    }
+
+    /**
+     * Returns the current limit.
+     *
+     * @return the number of requests that may be in flight at once
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the number of admitted requests not released yet.
+     *
+     * @return the requests in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightBefore) {
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += SHORT_RTT_WEIGHT * (rttNanos - shortRttNanos);
+        longRttNanos += LONG_RTT_WEIGHT * (rttNanos - longRttNanos);
+        if (longRttNanos > 2 * shortRttNanos) {
+            // Latency dropped well below the baseline, e.g. after a slow dependency recovered
+            longRttNanos *= 0.95;
+        }
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / shortRttNanos));
+        if (gradient == 1.0 && inFlightBefore < current / 2) {
+            return;
+        }
+        double target = current * gradient + Math.sqrt(current);
+        limit = Math.max(minLimit, Math.min(maxLimit, current * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+}
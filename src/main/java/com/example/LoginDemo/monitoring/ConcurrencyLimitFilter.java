@@ -0,0 +1,113 @@
+package com.example.LoginDemo.monitoring;
+
+import com.example.LoginDemo.monitoring.AdaptiveConcurrencyLimit.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Puts an {@link AdaptiveConcurrencyLimit} in front of the auth endpoints. When Postgres or SMTP
+ * slow down, excess requests get an immediate 503 with {@code Retry-After} instead of queueing
+ * in Tomcat until everything times out.
+ * <p>
+ * Validating, incrementing, redeeming a login code and logging out are cheap and what signed-in
+ * users depend on, so they are admitted up to the full limit. Login (which sends mail), adding
+ * users, the user listing and user search are shed first. The counter stream is long-lived and
+ * not limited. Runs after {@link CorrelationIdFilter}, so refused requests are still traced.
+ */
+@Component
+@Profile("!reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "app.concurrency-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+    private static final String PREFIX = "/v1/auth/";
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final String REJECTED_BODY = "{\"error\":\"Server is busy, please retry shortly\"}";
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final Map<Priority, Counter> rejected = new EnumMap<>(Priority.class);
+
+    /**
+     * Creates the filter.
+     *
+     * @param initialLimit the limit before any latency samples
+     * @param minLimit the lowest the limit goes
+     * @param maxLimit the highest the limit goes
+     * @param registry receives the limit, in-flight and rejection metrics
+     */
+    public ConcurrencyLimitFilter(@Value("${app.concurrency-limit.initial:20}") int initialLimit,
+                                  @Value("${app.concurrency-limit.min:4}") int minLimit,
+                                  @Value("${app.concurrency-limit.max:200}") int maxLimit,
+                                  MeterRegistry registry) {
+        this.limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit);
+        Gauge.builder("app.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit).register(registry);
+        Gauge.builder("app.concurrency.in-flight", limit, AdaptiveConcurrencyLimit::getInFlight).register(registry);
+        for (Priority priority : Priority.values()) {
+            rejected.put(priority, Counter.builder("app.concurrency.rejected")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(registry));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        return !path.startsWith(PREFIX) || path.equals(PREFIX + "counter/stream");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Priority priority = priorityOf(path(request).substring(PREFIX.length()));
+        if (!limit.tryAcquire(priority)) {
+            rejected.get(priority).increment();
+            logger.debug("Shed {} request to {} at limit {}", priority, request.getRequestURI(), limit.getLimit());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write(REJECTED_BODY);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limit.release(System.nanoTime() - start);
+        }
+    }
+
+    static Priority priorityOf(String endpoint) {
+        return switch (endpoint) {
+            case "validate", "increment", "redeem", "logout" -> Priority.CRITICAL;
+            case "login", "add-user", "users", "users/search", "introspect" -> Priority.SHEDDABLE;
+            default -> Priority.NORMAL;
+        };
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
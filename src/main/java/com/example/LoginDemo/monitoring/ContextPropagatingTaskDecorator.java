@@ -0,0 +1,41 @@
+package com.example.LoginDemo.monitoring;
+
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Carries the MDC (correlation ID) and the current {@link Trace} of the submitting thread over
+ * to the thread that runs the task. Spring Boot applies it to the application task executor;
+ * other executors can wrap their tasks with {@link #decorate(Runnable)}.
+ */
+@Component
+public class ContextPropagatingTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        Trace trace = Trace.current();
+        return () -> {
+            Map<String, String> previousContext = MDC.getCopyOfContextMap();
+            Trace previousTrace = Trace.bind(trace);
+            if (context != null) {
+                MDC.setContextMap(context);
+            } else {
+                MDC.clear();
+            }
+            try {
+                runnable.run();
+            } finally {
+                Trace.bind(previousTrace);
+                if (previousContext != null) {
+                    MDC.setContextMap(previousContext);
+                } else {
+                    MDC.clear();
+                }
+            }
+        };
+    }
+}
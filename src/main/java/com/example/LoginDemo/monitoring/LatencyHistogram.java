@@ -0,0 +1,144 @@
+package com.example.LoginDemo.monitoring;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free rolling latency histogram.
+ * <p>
+ * Latencies are counted in power-of-two microsecond buckets (1us .. ~35min). The window is split
+ * into a ring of time slots; a slot is replaced by a fresh one when it is reused for a newer
+ * interval, so a snapshot only reflects the last {@code slots * slotMillis} milliseconds.
+ * Replacing instead of clearing in place means no sample recorded into the new interval can be
+ * wiped by a writer still clearing the previous lap. Percentiles are
+ * reported as the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 32;
+
+    private final long slotMillis;
+    private final AtomicReferenceArray<Slot> slots;
+
+    /**
+     * One interval of the rolling window.
+     */
+    private static final class Slot {
+        private final long interval;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong totalMicros = new AtomicLong();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        private Slot(long interval) {
+            this.interval = interval;
+        }
+    }
+
+    /**
+     * Summary of the histogram over its window.
+     *
+     * @param count number of samples
+     * @param meanMicros mean latency in microseconds
+     * @param p50Micros median latency bucket bound in microseconds
+     * @param p95Micros 95th percentile bucket bound in microseconds
+     * @param p99Micros 99th percentile bucket bound in microseconds
+     * @param maxMicros largest sample in microseconds
+     */
+    public record Snapshot(long count, long meanMicros, long p50Micros, long p95Micros, long p99Micros, long maxMicros) {
+    }
+
+    /**
+     * Creates a histogram covering {@code slots * slotDuration}.
+     *
+     * @param slots number of slots in the ring
+     * @param slotDuration length of one slot
+     * @param unit unit of {@code slotDuration}
+     */
+    public LatencyHistogram(int slots, long slotDuration, TimeUnit unit) {
+        this.slotMillis = unit.toMillis(slotDuration);
+        this.slots = new AtomicReferenceArray<>(slots);
+        for (int i = 0; i < slots; i++) {
+            this.slots.set(i, new Slot(-1));
+        }
+    }
+
+    /**
+     * Records one latency sample.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        Slot slot = current(System.currentTimeMillis());
+        slot.counts.incrementAndGet(bucket(micros));
+        slot.totalMicros.addAndGet(micros);
+        slot.maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * Summarizes the samples inside the window.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        long now = System.currentTimeMillis() / slotMillis;
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        long sum = 0;
+        long max = 0;
+        for (int s = 0; s < slots.length(); s++) {
+            Slot slot = slots.get(s);
+            long interval = slot.interval;
+            if (interval < 0 || now - interval >= slots.length()) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = slot.counts.get(i);
+                counts[i] += c;
+                total += c;
+            }
+            sum += slot.totalMicros.get();
+            max = Math.max(max, slot.maxMicros.get());
+        }
+        if (total == 0) {
+            return new Snapshot(0, 0, 0, 0, 0, 0);
+        }
+        return new Snapshot(total, sum / total,
+                percentile(counts, total, 0.50), percentile(counts, total, 0.95),
+                percentile(counts, total, 0.99), max);
+    }
+
+    private Slot current(long nowMillis) {
+        long interval = nowMillis / slotMillis;
+        int index = (int) (interval % slots.length());
+        while (true) {
+            Slot slot = slots.get(index);
+            if (slot.interval >= interval) {
+                return slot;
+            }
+            // First writer of a new interval replaces what the previous lap left behind
+            Slot fresh = new Slot(interval);
+            if (slots.compareAndSet(index, slot, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static int bucket(long micros) {
+        return Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+    }
+
+    private static long percentile(long[] counts, long total, double quantile) {
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return 1L << (i + 1);
+            }
+        }
+        return 1L << BUCKETS;
+    }
+}
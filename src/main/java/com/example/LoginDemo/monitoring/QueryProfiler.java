@@ -0,0 +1,186 @@
+package com.example.LoginDemo.monitoring;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Collects per-statement latency for the DAOs and captures execution plans of slow statements.
+ * <p>
+ * Statements are grouped by SQL shape (the parameterized SQL text with whitespace collapsed) and
+ * attributed to the DAO methods that issued them. When a statement exceeds the slow threshold its
+ * plan is captured on a background thread with {@code EXPLAIN (ANALYZE, BUFFERS)} using the same
+ * parameters; data-modifying statements get a plain {@code EXPLAIN} so the capture has no side
+ * effects. Captures are rate-limited per shape.
+ */
+@Component
+public class QueryProfiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryProfiler.class);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final String APP_PACKAGE = "com.example.LoginDemo.";
+    private static final String MONITORING_PACKAGE = "com.example.LoginDemo.monitoring.";
+
+    private final Map<String, QueryStats> statsByShape = new ConcurrentHashMap<>();
+    private final StackWalker stackWalker = StackWalker.getInstance();
+    private final ThreadPoolExecutor planExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(16), r -> {
+                Thread thread = new Thread(r, "plan-capture");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${app.profiler.slow-query-threshold:50ms}")
+    private Duration slowThreshold;
+
+    @Value("${app.profiler.plan-capture-interval:5m}")
+    private Duration planCaptureInterval;
+
+    /**
+     * Aggregated statistics of one SQL shape.
+     */
+    public static class QueryStats {
+        private final String sql;
+        private final Set<String> callers = ConcurrentHashMap.newKeySet();
+        private final LatencyHistogram latency = new LatencyHistogram(10, 1, TimeUnit.MINUTES);
+        private final AtomicLong slowCount = new AtomicLong();
+        private final AtomicLong lastCaptureAttempt = new AtomicLong();
+        private volatile String lastPlan;
+        private volatile Instant lastPlanAt;
+
+        QueryStats(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() { return sql; }
+        public Set<String> getCallers() { return callers; }
+        public LatencyHistogram.Snapshot getLatency() { return latency.snapshot(); }
+        public long getSlowCount() { return slowCount.get(); }
+        public String getLastPlan() { return lastPlan; }
+        public Instant getLastPlanAt() { return lastPlanAt; }
+    }
+
+    /**
+     * Records one executed statement.
+     *
+     * @param sql the SQL that was executed
+     * @param pss the parameter setter used, reused for plan capture; may be null
+     * @param elapsedNanos the execution time
+     */
+    public void record(String sql, PreparedStatementSetter pss, long elapsedNanos) {
+        if (sql == null) {
+            return;
+        }
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        QueryStats stats = statsByShape.computeIfAbsent(shape, QueryStats::new);
+        stats.latency.record(elapsedNanos);
+        stats.callers.add(caller());
+        Trace.record(Trace.Phase.DB, shape, System.nanoTime() - elapsedNanos);
+
+        if (elapsedNanos >= slowThreshold.toNanos()) {
+            stats.slowCount.incrementAndGet();
+            logger.warn("Slow statement ({} ms): {}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), shape);
+            long now = System.currentTimeMillis();
+            long last = stats.lastCaptureAttempt.get();
+            if (now - last >= planCaptureInterval.toMillis() && stats.lastCaptureAttempt.compareAndSet(last, now)) {
+                planExecutor.execute(() -> capturePlan(stats, pss));
+            }
+        }
+    }
+
+    /**
+     * Returns the statistics of every SQL shape, slowest 99th percentile first.
+     *
+     * @return the statistics
+     */
+    public List<QueryStats> getStats() {
+        return statsByShape.values().stream()
+                .sorted(Comparator.comparingLong((QueryStats stats) -> stats.getLatency().p99Micros()).reversed())
+                .toList();
+    }
+
+    /**
+     * Stops the plan capture thread.
+     */
+    @PreDestroy
+    public void shutdown() {
+        planExecutor.shutdownNow();
+    }
+
+    private void capturePlan(QueryStats stats, PreparedStatementSetter pss) {
+        String sql = stats.getSql();
+        String explain = (isSafeToAnalyze(sql) ? "EXPLAIN (ANALYZE, BUFFERS) " : "EXPLAIN ") + sql;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(explain)) {
+            if (pss != null) {
+                pss.setValues(ps);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+            stats.lastPlan = plan.toString();
+            stats.lastPlanAt = Instant.now();
+            logger.info("Captured plan for slow statement: {}\n{}", sql, stats.lastPlan);
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Could not capture plan for {}: {}", sql, e.getMessage());
+        }
+    }
+
+    /**
+     * EXPLAIN ANALYZE executes the statement, so only plain queries without side-effecting
+     * functions (pg_notify, advisory locks, sequences) are analyzed.
+     *
+     * @param sql the statement
+     * @return true if running the statement again has no side effects
+     */
+    private static boolean isSafeToAnalyze(String sql) {
+        String upper = sql.toUpperCase(Locale.ROOT);
+        return upper.startsWith("SELECT") && !upper.contains("PG_") && !upper.contains("NEXTVAL(");
+    }
+
+    /**
+     * Finds the innermost application method that issued the statement (a DAO method for all
+     * DAO queries).
+     *
+     * @return "SimpleClassName.method", or "unknown"
+     */
+    private String caller() {
+        return stackWalker.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APP_PACKAGE)
+                        && !frame.getClassName().startsWith(MONITORING_PACKAGE)
+                        && !frame.getClassName().endsWith("ProfilingJdbcTemplate"))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                        + "." + frame.getMethodName())
+                .orElse("unknown"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.LoginDemo.monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the span timings of recent requests in a fixed-size ring buffer.
+ * <p>
+ * Spans are collected for every request; a finished trace is kept if it was sampled
+ * ({@code app.tracing.sample-rate}) or took longer than {@code app.tracing.slow-threshold}, so
+ * slow requests are never missed. Older traces are overwritten, so memory use is bounded by
+ * {@code app.tracing.buffer-size}.
+ */
+@Component
+public class RequestTracer {
+
+    private final AtomicReferenceArray<Trace> buffer;
+    private final AtomicLong written = new AtomicLong();
+    private final double sampleRate;
+    private final long slowThresholdMicros;
+
+    /**
+     * Creates the tracer.
+     *
+     * @param bufferSize number of traces kept
+     * @param sampleRate fraction of requests kept regardless of duration
+     * @param slowThreshold requests at least this slow are always kept
+     */
+    public RequestTracer(@Value("${app.tracing.buffer-size:256}") int bufferSize,
+                         @Value("${app.tracing.sample-rate:0.05}") double sampleRate,
+                         @Value("${app.tracing.slow-threshold:500ms}") Duration slowThreshold) {
+        this.buffer = new AtomicReferenceArray<>(bufferSize);
+        this.sampleRate = sampleRate;
+        this.slowThresholdMicros = slowThreshold.toNanos() / 1000;
+    }
+
+    /**
+     * Starts a trace and binds it to the current thread.
+     *
+     * @param correlationId the request's correlation ID
+     * @param endpoint the method and path
+     * @return the trace
+     */
+    public Trace begin(String correlationId, String endpoint) {
+        Trace trace = new Trace(correlationId, endpoint);
+        Trace.bind(trace);
+        return trace;
+    }
+
+    /**
+     * Finishes a trace, unbinds it and keeps it if it was sampled or slow.
+     *
+     * @param trace the trace
+     * @param status the HTTP status of the response
+     */
+    public void end(Trace trace, int status) {
+        Trace.bind(null);
+        trace.finish(status);
+        if (trace.getDurationMicros() >= slowThresholdMicros || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            int slot = (int) (written.getAndIncrement() % buffer.length());
+            buffer.set(slot, trace);
+        }
+    }
+
+    /**
+     * Returns the kept traces, newest first.
+     *
+     * @param minDuration only traces at least this long
+     * @param limit maximum number of traces
+     * @return the traces
+     */
+    public List<Trace> recent(Duration minDuration, int limit) {
+        long minMicros = minDuration.toNanos() / 1000;
+        List<Trace> traces = new ArrayList<>();
+        for (int i = 0; i < buffer.length(); i++) {
+            Trace trace = buffer.get(i);
+            if (trace != null && trace.getDurationMicros() >= minMicros) {
+                traces.add(trace);
+            }
+        }
+        traces.sort(Comparator.comparing(Trace::getStartedAt).reversed());
+        return traces.size() > limit ? traces.subList(0, limit) : traces;
+    }
+}
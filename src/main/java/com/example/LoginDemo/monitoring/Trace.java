@@ -0,0 +1,141 @@
+package com.example.LoginDemo.monitoring;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Span timings of one request.
+ * <p>
+ * The trace of the request being served is bound to the current thread, and to worker threads
+ * through {@link ContextPropagatingTaskDecorator}. Instrumented code calls the static
+ * {@link #record(Phase, String, long)}, which is a no-op when no trace is bound, so callers need
+ * no reference to the tracer.
+ */
+public class Trace {
+
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+    private static final int MAX_SPANS = 128;
+    private static final int MAX_NAME_LENGTH = 120;
+
+    /**
+     * The instrumented phases.
+     */
+    public enum Phase { DB, JWT, SMTP }
+
+    /**
+     * One timed phase.
+     *
+     * @param phase the phase
+     * @param name what was done, e.g. the SQL statement
+     * @param thread the thread it ran on
+     * @param offsetMicros start relative to the start of the request
+     * @param durationMicros duration
+     */
+    public record Span(Phase phase, String name, String thread, long offsetMicros, long durationMicros) {
+    }
+
+    private final String correlationId;
+    private final String endpoint;
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final List<Span> spans = new ArrayList<>();
+    private int droppedSpans;
+    private volatile long durationMicros = -1;
+    private volatile int status;
+
+    Trace(String correlationId, String endpoint) {
+        this.correlationId = correlationId;
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Returns the trace bound to the current thread.
+     *
+     * @return the trace, or null
+     */
+    public static Trace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds a trace to the current thread.
+     *
+     * @param trace the trace, or null to unbind
+     * @return the previously bound trace, to be restored afterwards
+     */
+    public static Trace bind(Trace trace) {
+        Trace previous = CURRENT.get();
+        if (trace == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(trace);
+        }
+        return previous;
+    }
+
+    /**
+     * Records a span on the current trace, if any.
+     *
+     * @param phase the phase
+     * @param name what was done
+     * @param startNanos the System.nanoTime() at which the phase started
+     */
+    public static void record(Phase phase, String name, long startNanos) {
+        Trace trace = CURRENT.get();
+        if (trace != null) {
+            trace.add(phase, name, startNanos, System.nanoTime());
+        }
+    }
+
+    private void add(Phase phase, String name, long startNanos, long endNanos) {
+        String spanName = name != null && name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name;
+        Span span = new Span(phase, spanName, Thread.currentThread().getName(),
+                (startNanos - this.startNanos) / 1000, (endNanos - startNanos) / 1000);
+        synchronized (spans) {
+            if (spans.size() < MAX_SPANS) {
+                spans.add(span);
+            } else {
+                droppedSpans++;
+            }
+        }
+    }
+
+    void finish(int status) {
+        this.status = status;
+        this.durationMicros = (System.nanoTime() - startNanos) / 1000;
+    }
+
+    public String getCorrelationId() { return correlationId; }
+    public String getEndpoint() { return endpoint; }
+    public Instant getStartedAt() { return startedAt; }
+    public long getDurationMicros() { return durationMicros; }
+    public int getStatus() { return status; }
+
+    public List<Span> getSpans() {
+        synchronized (spans) {
+            return List.copyOf(spans);
+        }
+    }
+
+    public int getDroppedSpans() {
+        synchronized (spans) {
+            return droppedSpans;
+        }
+    }
+
+    /**
+     * Returns the total time spent per phase; the remainder of the request is application time.
+     *
+     * @return microseconds per phase
+     */
+    public Map<Phase, Long> getPhaseTotals() {
+        Map<Phase, Long> totals = new EnumMap<>(Phase.class);
+        for (Span span : getSpans()) {
+            totals.merge(span.phase(), span.durationMicros(), Long::sum);
+        }
+        return totals;
+    }
+}
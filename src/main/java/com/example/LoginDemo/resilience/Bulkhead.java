@@ -0,0 +1,36 @@
+package com.example.LoginDemo.resilience;
+
+import com.example.LoginDemo.exception.DependencyUnavailableException;
+
+/**
+ * Bounds how many calls to a dependency run at once, so a slow dependency can only tie up its
+ * own share of the threads.
+ */
+public interface Bulkhead extends AutoCloseable {
+
+    /**
+     * Runs a call within the bulkhead.
+     *
+     * @param call the call
+     * @param <T> the result type
+     * @param <E> the checked exception the call may throw
+     * @return the result of the call
+     * @throws E if the call fails
+     * @throws DependencyUnavailableException if no slot frees up in time, or the call times out
+     */
+    <T, E extends Exception> T execute(DependencyCall<T, E> call) throws E;
+
+    /**
+     * Returns the number of free slots.
+     *
+     * @return the calls that could start right now
+     */
+    int available();
+
+    /**
+     * Releases the bulkhead's resources.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.LoginDemo.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker.
+ * <p>
+ * While closed, the outcomes of the last {@code windowSize} calls are kept in a ring; once at
+ * least {@code minimumCalls} have been seen and the failure rate reaches the threshold, the
+ * breaker opens and refuses calls. After {@code openDuration} it turns half-open and lets
+ * {@code probes} calls through: if all succeed it closes, if any fails it opens again.
+ * <p>
+ * The closed state, which is the hot path, is lock-free; state transitions and the half-open
+ * bookkeeping are synchronized.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * State of a breaker.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRatePercent;
+    private final long openNanos;
+    private final int probes;
+    private final LongSupplier nanoClock;
+
+    // Closed state: 1 marks a failed call
+    private final AtomicIntegerArray outcomes;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+    // Half-open state, guarded by this
+    private int probesLeft;
+    private int probeSuccesses;
+
+    /**
+     * Creates a closed breaker.
+     *
+     * @param name name of the guarded dependency, for logging
+     * @param windowSize number of recent calls the failure rate is computed over
+     * @param minimumCalls calls needed before the breaker may open
+     * @param failureRatePercent failure rate, in percent, at which the breaker opens
+     * @param openDuration how long the breaker stays open before probing
+     * @param probes calls let through while half-open
+     * @param nanoClock source of {@link System#nanoTime()}-style timestamps
+     */
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRatePercent,
+                          Duration openDuration, int probes, LongSupplier nanoClock) {
+        if (windowSize < 1 || minimumCalls < 1 || probes < 1 || failureRatePercent < 1 || failureRatePercent > 100) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings for " + name);
+        }
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRatePercent = failureRatePercent;
+        this.openNanos = openDuration.toNanos();
+        this.probes = probes;
+        this.nanoClock = nanoClock;
+        this.outcomes = new AtomicIntegerArray(windowSize);
+    }
+
+    /**
+     * Asks for permission to make a call. A permitted call must be reported with
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+     *
+     * @return true if the call may go ahead
+     */
+    public boolean tryAcquirePermission() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && nanoClock.getAsLong() - openedAt < openNanos) {
+            return false;
+        }
+        synchronized (this) {
+            if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+                toHalfOpen();
+            }
+            if (state == State.HALF_OPEN && probesLeft > 0) {
+                probesLeft--;
+                return true;
+            }
+            return state == State.CLOSED;
+        }
+    }
+
+    /**
+     * Reports a permitted call that succeeded.
+     */
+    public void onSuccess() {
+        if (state == State.CLOSED) {
+            record(0);
+            return;
+        }
+        synchronized (this) {
+            if (state == State.HALF_OPEN && ++probeSuccesses >= probes) {
+                toClosed();
+            }
+        }
+    }
+
+    /**
+     * Reports a permitted call that failed.
+     */
+    public void onFailure() {
+        if (state == State.CLOSED) {
+            if (record(1)) {
+                synchronized (this) {
+                    if (state == State.CLOSED) {
+                        toOpen();
+                    }
+                }
+            }
+            return;
+        }
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                toOpen();
+            }
+        }
+    }
+
+    /**
+     * Reports a permitted call that was not made, handing back its half-open probe.
+     */
+    public void onIgnored() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                probesLeft++;
+            }
+        }
+    }
+
+    /**
+     * Returns the state; an open breaker whose open duration has passed reports as half-open.
+     *
+     * @return the state
+     */
+    public State getState() {
+        State current = state;
+        if (current == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return current;
+    }
+
+    /**
+     * Returns how long an open breaker keeps refusing calls before it lets probes through.
+     *
+     * @return the time left open, zero unless the breaker is open
+     */
+    public Duration remainingOpenDuration() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, openNanos - (nanoClock.getAsLong() - openedAt)));
+    }
+
+    /**
+     * Records an outcome in the closed-state window.
+     *
+     * @return true if the failure rate has reached the threshold
+     */
+    private boolean record(int failed) {
+        long call = calls.getAndIncrement();
+        int previous = outcomes.getAndSet((int) (call % windowSize), failed);
+        int failedCalls = failures.addAndGet(failed - previous);
+        long seen = Math.min(call + 1, windowSize);
+        return call + 1 >= minimumCalls && failedCalls * 100L >= failureRatePercent * seen;
+    }
+
+    private void toOpen() {
+        openedAt = nanoClock.getAsLong();
+        state = State.OPEN;
+        logger.warn("Circuit breaker for {} opened; calls are refused for {} ms", name, openNanos / 1_000_000);
+    }
+
+    private void toHalfOpen() {
+        probesLeft = probes;
+        probeSuccesses = 0;
+        state = State.HALF_OPEN;
+        logger.info("Circuit breaker for {} half-open; probing with {} call(s)", name, probes);
+    }
+
+    private void toClosed() {
+        for (int i = 0; i < windowSize; i++) {
+            outcomes.set(i, 0);
+        }
+        failures.set(0);
+        calls.set(0);
+        state = State.CLOSED;
+        logger.info("Circuit breaker for {} closed", name);
+    }
+}
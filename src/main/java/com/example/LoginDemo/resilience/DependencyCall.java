@@ -0,0 +1,19 @@
+package com.example.LoginDemo.resilience;
+
+/**
+ * A call to a downstream dependency.
+ *
+ * @param <T> the result type
+ * @param <E> the checked exception the call may throw
+ */
+@FunctionalInterface
+public interface DependencyCall<T, E extends Exception> {
+
+    /**
+     * Makes the call.
+     *
+     * @return the result
+     * @throws E if the call fails
+     */
+    T call() throws E;
+}
@@ -0,0 +1,135 @@
+package com.example.LoginDemo.resilience;
+
+import com.example.LoginDemo.exception.DependencyUnavailableException;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * A downstream dependency behind a {@link CircuitBreaker} and a {@link Bulkhead}.
+ * <p>
+ * A call is refused outright while the breaker is open, then runs within the bulkhead. Timeouts
+ * and the exceptions matched by the failure predicate count against the breaker; other
+ * exceptions (a duplicate key, a rejected recipient) mean the dependency answered, and count as
+ * successes. A call refused by a full bulkhead never reached the dependency and is not counted.
+ */
+public class GuardedDependency implements AutoCloseable {
+
+    /**
+     * How a call ended, for metrics.
+     */
+    public enum Outcome {
+        SUCCESS,
+        FAILURE,
+        TIMEOUT,
+        BULKHEAD_FULL,
+        CIRCUIT_OPEN
+    }
+
+    private final String name;
+    private final CircuitBreaker breaker;
+    private final Bulkhead bulkhead;
+    private final Predicate<Throwable> isFailure;
+    private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+
+    /**
+     * Creates a guarded dependency.
+     *
+     * @param name name of the dependency
+     * @param breaker the circuit breaker
+     * @param bulkhead the bulkhead
+     * @param isFailure matches the exceptions that mean the dependency is failing
+     */
+    public GuardedDependency(String name, CircuitBreaker breaker, Bulkhead bulkhead, Predicate<Throwable> isFailure) {
+        this.name = name;
+        this.breaker = breaker;
+        this.bulkhead = bulkhead;
+        this.isFailure = isFailure;
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new LongAdder());
+        }
+    }
+
+    /**
+     * Makes a call through the breaker and the bulkhead.
+     *
+     * @param call the call
+     * @param <T> the result type
+     * @param <E> the checked exception the call may throw
+     * @return the result of the call
+     * @throws E if the call fails
+     * @throws DependencyUnavailableException if the breaker is open, the bulkhead is full or the
+     *                                        call times out
+     */
+    public <T, E extends Exception> T call(DependencyCall<T, E> call) throws E {
+        if (!breaker.tryAcquirePermission()) {
+            outcomes.get(Outcome.CIRCUIT_OPEN).increment();
+            throw new DependencyUnavailableException(name, DependencyUnavailableException.Reason.CIRCUIT_OPEN,
+                    breaker.remainingOpenDuration());
+        }
+        try {
+            T result = bulkhead.execute(call);
+            succeeded();
+            return result;
+        } catch (DependencyUnavailableException e) {
+            if (e.getReason() == DependencyUnavailableException.Reason.TIMEOUT) {
+                breaker.onFailure();
+                outcomes.get(Outcome.TIMEOUT).increment();
+            } else {
+                breaker.onIgnored();
+                outcomes.get(Outcome.BULKHEAD_FULL).increment();
+            }
+            throw e;
+        } catch (Exception | Error e) {
+            if (isFailure.test(e)) {
+                breaker.onFailure();
+                outcomes.get(Outcome.FAILURE).increment();
+            } else {
+                succeeded();
+            }
+            throw e;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CircuitBreaker.State getState() {
+        return breaker.getState();
+    }
+
+    /**
+     * Returns the number of free bulkhead slots.
+     *
+     * @return the calls that could start right now
+     */
+    public int availableSlots() {
+        return bulkhead.available();
+    }
+
+    /**
+     * Returns how many calls ended with an outcome.
+     *
+     * @param outcome the outcome
+     * @return the number of calls since startup
+     */
+    public long count(Outcome outcome) {
+        return outcomes.get(outcome).sum();
+    }
+
+    /**
+     * Releases the bulkhead's resources.
+     */
+    @Override
+    public void close() {
+        bulkhead.close();
+    }
+
+    private void succeeded() {
+        breaker.onSuccess();
+        outcomes.get(Outcome.SUCCESS).increment();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.LoginDemo.resilience;
+
+import com.example.LoginDemo.exception.DependencyUnavailableException;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead that runs calls on the caller's thread, at most {@code maxConcurrent} at a time.
+ * For calls that must stay on the caller's thread, such as JDBC statements joining the
+ * caller's transaction; the call itself has to enforce its own timeout.
+ */
+public class SemaphoreBulkhead implements Bulkhead {
+
+    private final String name;
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+
+    /**
+     * Creates a bulkhead.
+     *
+     * @param name name of the dependency
+     * @param maxConcurrent calls allowed at once
+     * @param maxWait how long a call waits for a free slot
+     */
+    public SemaphoreBulkhead(String name, int maxConcurrent, Duration maxWait) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    public <T, E extends Exception> T execute(DependencyCall<T, E> call) throws E {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new DependencyUnavailableException(name, DependencyUnavailableException.Reason.BULKHEAD_FULL);
+        }
+        try {
+            return call.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public int available() {
+        return permits.availablePermits();
+    }
+}
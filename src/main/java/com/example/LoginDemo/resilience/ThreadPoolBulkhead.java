@@ -0,0 +1,96 @@
+package com.example.LoginDemo.resilience;
+
+import com.example.LoginDemo.exception.DependencyUnavailableException;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bulkhead that runs calls on its own fixed pool of threads with a bounded queue, and stops
+ * waiting for a call after a timeout. The caller's thread is freed even if the call hangs in
+ * blocking I/O; the abandoned call is interrupted and keeps its pool thread until it returns,
+ * so the dependency's client should also have socket timeouts.
+ */
+public class ThreadPoolBulkhead implements Bulkhead {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutNanos;
+    private final UnaryOperator<Runnable> decorator;
+
+    /**
+     * Creates a bulkhead and starts its threads on demand.
+     *
+     * @param name name of the dependency, also used for the thread names
+     * @param threads calls run at once
+     * @param queueCapacity calls that may wait for a thread
+     * @param timeout how long the caller waits for a call, queueing included
+     * @param decorator wraps each task, e.g. to carry the caller's logging context over
+     */
+    public ThreadPoolBulkhead(String name, int threads, int queueCapacity, Duration timeout,
+                              UnaryOperator<Runnable> decorator) {
+        this.name = name;
+        this.timeoutNanos = timeout.toNanos();
+        this.decorator = decorator;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, name + "-bulkhead-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> T execute(DependencyCall<T, E> call) throws E {
+        FutureTask<T> task = new FutureTask<>(call::call);
+        try {
+            executor.execute(decorator.apply(task));
+        } catch (RejectedExecutionException e) {
+            throw new DependencyUnavailableException(name, DependencyUnavailableException.Reason.BULKHEAD_FULL);
+        }
+        try {
+            return task.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            throw new DependencyUnavailableException(name, DependencyUnavailableException.Reason.TIMEOUT);
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new DependencyUnavailableException(name, DependencyUnavailableException.Reason.TIMEOUT);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            // Only E can get here, as the call declares no other checked exception
+            throw (E) cause;
+        }
+    }
+
+    @Override
+    public int available() {
+        return Math.max(0, executor.getMaximumPoolSize() - executor.getActiveCount())
+                + executor.getQueue().remainingCapacity();
+    }
+
+    /**
+     * Interrupts running calls and stops the threads.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
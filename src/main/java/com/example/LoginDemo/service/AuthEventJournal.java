@@ -0,0 +1,574 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.event.AuthEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of {@link AuthEvent}s, for audit and replay without a database
+ * write per request.
+ * <p>
+ * Committed events are handed to a single writer thread through a lock-free {@link MpscQueue};
+ * a full queue drops events and counts them rather than blocking requests. The writer drains
+ * the queue in batches into a memory-mapped segment file and publishes the end of each batch
+ * to readers. When a segment is full the writer rolls over to a new one, named after its first
+ * sequence number, and deletes segments whose events are all older than the retention.
+ * <p>
+ * Record layout: {@code [length][crc32][sequence][time micros][type][value][email][browser ID]
+ * [correlation ID]}, strings as a short byte length (-1 for null) and UTF-8 bytes. On startup
+ * the last segment is scanned up to the first torn record and writing resumes there.
+ */
+@Service
+@Lazy(false)
+@ConditionalOnProperty(name = "app.journal.enabled", havingValue = "true", matchIfMissing = true)
+public class AuthEventJournal implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthEventJournal.class);
+
+    private static final String SEGMENT_PREFIX = "auth-events-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER = 8;
+    // sequence, time, type, value
+    private static final int FIXED_PAYLOAD = 8 + 8 + 1 + 8;
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAINTENANCE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * End of the written events: readers see records before {@code position} of
+     * {@code segment} and every earlier segment.
+     */
+    private record End(Path segment, int position, long nextSequence) {
+    }
+
+    /**
+     * Receives the position and length of each intact record body.
+     */
+    private interface RecordVisitor {
+        boolean visit(int body, int length);
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int queueCapacity;
+    private final Duration retention;
+    private final Duration forceInterval;
+
+    private final MpscQueue<AuthEvent> queue = new MpscQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean writerIdle = new AtomicBoolean();
+    private final LongAdder dropped = new LongAdder();
+    private volatile End end;
+    private volatile boolean running;
+    private Thread writer;
+
+    // Writer thread only
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private Path segment;
+    private int position;
+    private int forcedPosition;
+    private long nextSequence;
+    private long lastForce;
+    private long lastMaintenance;
+
+    /**
+     * Creates the journal; {@link #start()} opens it.
+     *
+     * @param directory directory of the segment files
+     * @param segmentSize size of one segment file
+     * @param queueCapacity events that may wait for the writer before new ones are dropped
+     * @param retention how long events are kept
+     * @param forceInterval how often written events are forced to the storage device; zero forces
+     *                      only on rollover and shutdown
+     */
+    public AuthEventJournal(@Value("${app.journal.directory:data/journal}") Path directory,
+                            @Value("${app.journal.segment-size:64MB}") DataSize segmentSize,
+                            @Value("${app.journal.queue-capacity:65536}") int queueCapacity,
+                            @Value("${app.journal.retention:30d}") Duration retention,
+                            @Value("${app.journal.force-interval:1s}") Duration forceInterval) {
+        this.directory = directory;
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, segmentSize.toBytes());
+        this.queueCapacity = queueCapacity;
+        this.retention = retention;
+        this.forceInterval = forceInterval;
+    }
+
+    /**
+     * Recovers the last segment and starts the writer thread.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the auth event journal in " + directory, e);
+        }
+        running = true;
+        writer = new Thread(this, "auth-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Auth event journal opened in {} at sequence {}", directory, nextSequence);
+    }
+
+    /**
+     * Writes the queued events, forces them to the storage device and stops the writer thread.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues an event once its transaction has committed.
+     *
+     * @param event the event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuthEvent(AuthEvent event) {
+        append(event);
+    }
+
+    /**
+     * Queues an event for the writer without blocking. Drops it if the queue is full.
+     *
+     * @param event the event
+     */
+    public void append(AuthEvent event) {
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        queue.offer(event);
+        if (writerIdle.get() && writerIdle.compareAndSet(true, false)) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Passes journaled events to the visitor in sequence order, until it returns false.
+     * Events written while replaying are not included.
+     *
+     * @param fromSequence the first sequence number of interest
+     * @param visitor receives the events; returns false to stop
+     */
+    public void replay(long fromSequence, Predicate<AuthEvent> visitor) {
+        End snapshot = end;
+        if (snapshot == null) {
+            return;
+        }
+        List<Path> segments = segments();
+        CRC32 checksum = new CRC32();
+        for (int i = 0; i < segments.size(); i++) {
+            Path file = segments.get(i);
+            if (firstSequence(file) >= snapshot.nextSequence()) {
+                break;
+            }
+            if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) <= fromSequence) {
+                continue;
+            }
+            try (FileChannel readChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long limit = file.equals(snapshot.segment()) ? snapshot.position() : readChannel.size();
+                MappedByteBuffer segmentBuffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, limit);
+                boolean[] more = {true};
+                scan(segmentBuffer, checksum, (body, length) -> {
+                    AuthEvent event = decode(segmentBuffer, body);
+                    if (event.sequence() >= fromSequence) {
+                        more[0] = visitor.test(event);
+                    }
+                    return more[0];
+                });
+                if (!more[0]) {
+                    return;
+                }
+            } catch (NoSuchFileException e) {
+                logger.debug("Segment {} was removed by retention while replaying", file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read journal segment " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Finds journaled events for an audit, oldest first. Segments that end before {@code since}
+     * are skipped without being read, judged by when the next segment starts, as retention does.
+     *
+     * @param email only events of this user, or null for all users
+     * @param type only events of this type, or null for all types
+     * @param since only events at or after this time
+     * @param limit maximum number of events
+     * @return the matching events
+     */
+    public List<AuthEvent> find(String email, AuthEvent.Type type, Instant since, int limit) {
+        List<AuthEvent> events = new ArrayList<>();
+        if (limit <= 0) {
+            return events;
+        }
+        replay(firstSequenceSince(since), event -> {
+            if ((email == null || email.equals(event.email())) && (type == null || type == event.type())
+                    && !event.time().isBefore(since)) {
+                events.add(event);
+            }
+            return events.size() < limit;
+        });
+        return events;
+    }
+
+    /**
+     * Returns the first sequence number of the newest segment that starts before {@code since},
+     * or 0 if there is none; earlier segments hold no events at or after it.
+     */
+    private long firstSequenceSince(Instant since) {
+        List<Path> segments = segments();
+        long from = 0;
+        for (int i = 1; i < segments.size(); i++) {
+            Instant start = firstEventTime(segments.get(i));
+            if (start == null || !start.isBefore(since)) {
+                break;
+            }
+            from = firstSequence(segments.get(i));
+        }
+        return from;
+    }
+
+    /**
+     * Returns the sequence number the next journaled event will get.
+     *
+     * @return the next sequence number
+     */
+    public long nextSequence() {
+        End snapshot = end;
+        return snapshot != null ? snapshot.nextSequence() : 1;
+    }
+
+    /**
+     * Writer loop: drains the queue in batches, parks while it is empty and runs maintenance.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running || !queue.isEmpty()) {
+                if (writeBatch() == 0) {
+                    if (!running) {
+                        break;
+                    }
+                    writerIdle.set(true);
+                    if (queue.isEmpty()) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    writerIdle.set(false);
+                }
+                maintain();
+            }
+        } finally {
+            closeSegment();
+            long lost = dropped.sumThenReset();
+            if (lost > 0) {
+                logger.warn("Dropped {} auth event(s), the journal queue was full", lost);
+            }
+            logger.info("Auth event journal closed at sequence {}", nextSequence);
+        }
+    }
+
+    private int writeBatch() {
+        int count = 0;
+        AuthEvent event;
+        while (count < MAX_BATCH && (event = queue.poll()) != null) {
+            queued.decrementAndGet();
+            try {
+                write(event);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Could not journal {} event of {}", event.type(), event.email(), e);
+            }
+            count++;
+        }
+        if (count > 0) {
+            end = new End(segment, position, nextSequence);
+        }
+        return count;
+    }
+
+    private void write(AuthEvent event) throws IOException {
+        byte[] email = utf8(event.email());
+        byte[] browserId = utf8(event.browserId());
+        byte[] correlationId = utf8(event.correlationId());
+        int length = FIXED_PAYLOAD + stringSize(email) + stringSize(browserId) + stringSize(correlationId);
+        if (HEADER + length > segmentSize) {
+            throw new IllegalArgumentException("Event larger than a segment");
+        }
+        if (position + HEADER + length > buffer.capacity()) {
+            rollover();
+        }
+
+        int body = position + HEADER;
+        Instant time = event.time();
+        buffer.putLong(body, nextSequence);
+        buffer.putLong(body + 8, TimeUnit.SECONDS.toMicros(time.getEpochSecond()) + time.getNano() / 1000);
+        buffer.put(body + 16, event.type().code());
+        buffer.putLong(body + 17, event.value());
+        int offset = putString(body + FIXED_PAYLOAD, email);
+        offset = putString(offset, browserId);
+        putString(offset, correlationId);
+        buffer.putInt(position + 4, checksum(crc, buffer, body, length));
+        // Written last, so a record cut short by a crash reads as the end of the segment
+        buffer.putInt(position, length);
+
+        position += HEADER + length;
+        nextSequence++;
+    }
+
+    private void rollover() throws IOException {
+        closeSegment();
+        openSegment(segmentFile(nextSequence));
+        end = new End(segment, position, nextSequence);
+        applyRetention();
+    }
+
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        if (!forceInterval.isZero() && position > forcedPosition && now - lastForce >= forceInterval.toMillis()) {
+            buffer.force();
+            forcedPosition = position;
+            lastForce = now;
+        }
+        if (now - lastMaintenance >= MAINTENANCE_INTERVAL_MILLIS) {
+            lastMaintenance = now;
+            long lost = dropped.sumThenReset();
+            if (lost > 0) {
+                logger.warn("Dropped {} auth event(s), the journal queue was full", lost);
+            }
+            applyRetention();
+        }
+    }
+
+    /**
+     * Deletes the oldest segments while the segment after them starts before the retention cutoff.
+     */
+    private void applyRetention() {
+        Instant cutoff = Instant.now().minus(retention);
+        List<Path> segments = segments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            Instant newerStart = firstEventTime(segments.get(i + 1));
+            if (newerStart == null || !newerStart.isBefore(cutoff)) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(segments.get(i));
+                logger.info("Deleted journal segment {} past the retention of {}", segments.get(i).getFileName(), retention);
+            } catch (IOException e) {
+                logger.warn("Could not delete journal segment {}: {}", segments.get(i), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = segments();
+        if (segments.isEmpty()) {
+            nextSequence = 1;
+            openSegment(segmentFile(1));
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            openSegment(last);
+            long[] lastSequence = {firstSequence(last) - 1};
+            position = scan(buffer, crc, (body, length) -> {
+                lastSequence[0] = buffer.getLong(body);
+                return true;
+            });
+            nextSequence = lastSequence[0] + 1;
+            if (position <= buffer.capacity() - HEADER && buffer.getLong(position) != 0) {
+                logger.warn("Discarding torn record at offset {} of {}", position, last);
+                for (int i = position; i < buffer.capacity(); i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                buffer.force();
+            }
+        }
+        forcedPosition = position;
+        end = new End(segment, position, nextSequence);
+    }
+
+    private void openSegment(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), segmentSize));
+        segment = file;
+        position = 0;
+        forcedPosition = 0;
+    }
+
+    private void closeSegment() {
+        if (channel == null || !channel.isOpen()) {
+            return;
+        }
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Could not close journal segment {}: {}", segment, e.getMessage());
+        }
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list journal segments in " + directory, e);
+        }
+    }
+
+    private Path segmentFile(long firstSequence) {
+        // Zero-padded, so name order is sequence order
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private Instant firstEventTime(Path file) {
+        try (FileChannel readChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(HEADER + FIXED_PAYLOAD);
+            readChannel.read(head, 0);
+            if (head.position() < head.capacity() || head.getInt(0) == 0) {
+                return null;
+            }
+            return Instant.EPOCH.plus(head.getLong(HEADER + 8), ChronoUnit.MICROS);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Visits the intact records from the start of a segment.
+     *
+     * @return the position after the last intact record
+     */
+    private static int scan(ByteBuffer segmentBuffer, CRC32 checksum, RecordVisitor visitor) {
+        int limit = segmentBuffer.capacity();
+        int at = 0;
+        while (at <= limit - HEADER) {
+            int length = segmentBuffer.getInt(at);
+            if (length < FIXED_PAYLOAD || length > limit - at - HEADER
+                    || checksum(checksum, segmentBuffer, at + HEADER, length) != segmentBuffer.getInt(at + 4)) {
+                break;
+            }
+            if (!visitor.visit(at + HEADER, length)) {
+                break;
+            }
+            at += HEADER + length;
+        }
+        return at;
+    }
+
+    private static AuthEvent decode(ByteBuffer segmentBuffer, int body) {
+        long sequence = segmentBuffer.getLong(body);
+        Instant time = Instant.EPOCH.plus(segmentBuffer.getLong(body + 8), ChronoUnit.MICROS);
+        AuthEvent.Type type = AuthEvent.Type.fromCode(segmentBuffer.get(body + 16));
+        long value = segmentBuffer.getLong(body + 17);
+        int offset = body + FIXED_PAYLOAD;
+        String email = getString(segmentBuffer, offset);
+        offset += stringSize(segmentBuffer.getShort(offset));
+        String browserId = getString(segmentBuffer, offset);
+        offset += stringSize(segmentBuffer.getShort(offset));
+        String correlationId = getString(segmentBuffer, offset);
+        return new AuthEvent(sequence, time, type, email, browserId, value, correlationId);
+    }
+
+    private int putString(int offset, byte[] value) {
+        if (value == null) {
+            buffer.putShort(offset, (short) -1);
+            return offset + 2;
+        }
+        buffer.putShort(offset, (short) value.length);
+        buffer.put(offset + 2, value);
+        return offset + 2 + value.length;
+    }
+
+    private static String getString(ByteBuffer segmentBuffer, int offset) {
+        short length = segmentBuffer.getShort(offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        segmentBuffer.get(offset + 2, value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Event field longer than " + Short.MAX_VALUE + " bytes");
+        }
+        return bytes;
+    }
+
+    private static int stringSize(byte[] value) {
+        return 2 + (value != null ? value.length : 0);
+    }
+
+    private static int stringSize(short storedLength) {
+        return 2 + Math.max(storedLength, 0);
+    }
+
+    private static int checksum(CRC32 checksum, ByteBuffer segmentBuffer, int offset, int length) {
+        checksum.reset();
+        checksum.update(segmentBuffer.slice(offset, length));
+        return (int) checksum.getValue();
+    }
+}
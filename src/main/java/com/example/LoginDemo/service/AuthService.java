@@ -1,21 +1,46 @@
 package com.example.LoginDemo.service;
 
-import com.example.LoginDemo.dao.UserDAO;
+import com.example.LoginDemo.config.PrimaryRead;
+import com.example.LoginDemo.config.TokenDigests;
+import com.example.LoginDemo.dao.UserStore;
+import com.example.LoginDemo.event.AuthEvent;
+import com.example.LoginDemo.event.CounterChangedEvent;
+import com.example.LoginDemo.event.InvalidationEvent;
+import com.example.LoginDemo.model.ActiveSession;
 import com.example.LoginDemo.model.User;
+import com.example.LoginDemo.model.UserAuthView;
+import com.example.LoginDemo.model.UserDirectoryEntry;
 import com.example.LoginDemo.model.UserSession;
-import com.example.LoginDemo.dao.UserSessionDAO;
+import com.example.LoginDemo.dao.UserSessionStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Authentication Service to handle user authentication and session management.
+ * Transitions that read-modify-write a user's row run through {@link UserLockManager}, which
+ * owns their transaction, so they are not annotated {@code @Transactional}.
+ * <p>
+ * The embedded stores do not roll back, so transitions with several writes end the login before
+ * they deactivate the last session. A failure in between leaves a session whose token is no
+ * longer current, which is signed out either way, and repeating the logout or revocation
+ * finishes the job.
+ * <p>
+ * Each completed action publishes an {@link AuthEvent} for the audit journal; it is journaled
+ * only if the transaction commits.
  */
 @Service
 public class AuthService {
@@ -23,10 +48,16 @@ public class AuthService {
     private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
 
     @Autowired
-    private UserDAO userDAO;
+    private UserStore userDAO;
 
     @Autowired
-    private UserSessionDAO sessionDAO;
+    private UserSessionStore sessionDAO;
+
+    @Autowired
+    private UserLockManager userLocks;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     /**
      * Checks if an email exists in the database.
@@ -57,33 +88,54 @@ public class AuthService {
     }
 
     /**
-     * Updates the authentication token of a user.
+     * Retrieves the authentication view (role, counter and current token) of a user by email.
      *
-     * @param email the user's email
-     * @param token the new token
+     * @param email the email to search for
+     * @return the auth view
      */
-    @Transactional
-    public void updateUserToken(String email, String token) {
-        logger.info("Updating user token for email: {}", email);
-        User user = getUserByEmail(email);
-        user.setCurrentToken(token);
-        userDAO.save(user);
+    @PrimaryRead
+    public UserAuthView getAuthView(String email) {
+        logger.info("Fetching auth view by email: {}", email);
+        return userDAO.findAuthViewByEmail(email)
+                .orElseThrow(() -> {
+                    logger.error("User not found with email: {}", email);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+                });
     }
 
     /**
-     * Checks that particular browser has any active session
+     * Retrieves the authentication views of several users in one query.
      *
-     * @param browserId the browser identifier
-     * @return true if the session exists, false otherwise
+     * @param emails the emails to look up
+     * @return the auth views by email; unknown emails are absent
      */
-    @Transactional(readOnly = true)
-    public boolean isActiveBrowserSession(String browserId){
-        logger.info("Checking active session for browserid: {}", browserId);
-        return  sessionDAO.browserSessionActive(browserId);
+    @PrimaryRead
+    public Map<String, UserAuthView> getAuthViews(Collection<String> emails) {
+        logger.debug("Fetching auth views of {} user(s)", emails.size());
+        return userDAO.findAuthViewsByEmails(emails).stream()
+                .collect(Collectors.toMap(UserAuthView::email, Function.identity()));
     }
 
     /**
-     * Adds a user session to track login activity.
+     * Updates the authentication token of a user.
+     *
+     * @param email the user's email
+     * @param token the new token
+     */
+    public void updateUserToken(String email, String token) {
+        logger.info("Updating user token for email: {}", email);
+        userLocks.inUserTransaction(email, () -> {
+            User user = getUserByEmail(email);
+            user.setCurrentTokenHash(TokenDigests.of(token));
+            userDAO.save(user);
+            eventPublisher.publishEvent(AuthEvent.of(AuthEvent.Type.LOGIN, email, null, 0));
+            return null;
+        });
+    }
+
+    /**
+     * Registers a session for the browser unless it already has an active one.
+     * A single upsert, so concurrent validations from the same browser create one session.
      *
      * @param email the user's email
      * @param browserId the browser identifier
@@ -91,12 +143,11 @@ public class AuthService {
     @Transactional
     public void addUserSession(String email, String browserId) {
         logger.info("Adding user session for email: {}, browserId: {}", email, browserId);
-        User user = getUserByEmail(email);
-        UserSession session = new UserSession();
-        session.setUser(user);
-        session.setBrowserId(browserId);
-        session.setActive(true);
-        sessionDAO.save(session);
+        boolean registered = sessionDAO.registerActiveSession(email, browserId);
+        if (!registered) {
+            logger.debug("Browser {} already has an active session", browserId);
+        }
+        eventPublisher.publishEvent(AuthEvent.of(AuthEvent.Type.VALIDATE, email, browserId, registered ? 1 : 0));
     }
 
     /**
@@ -106,32 +157,108 @@ public class AuthService {
      * @param browserId the browser identifier
      * @param logoutAll flag to determine if all sessions should be logged out
      */
-    @Transactional
     public void logout(String email, String browserId, boolean logoutAll) {
         logger.info("Logging out user: {}, logoutAll: {}", email, logoutAll);
-        if (logoutAll) {
-            List<UserSession> sessions = sessionDAO.findByUserEmailAndActive(email, true);
-            sessions.forEach(session -> session.setActive(false));
-            sessionDAO.saveAll(sessions);
+        userLocks.inUserTransaction(email, () -> {
+            endSessions(email, browserId, logoutAll);
+            eventPublisher.publishEvent(AuthEvent.of(AuthEvent.Type.LOGOUT, email, browserId, logoutAll ? 1 : 0));
+            return null;
+        });
+    }
 
-            User user = getUserByEmail(email);
-            user.setCurrentToken(null);
-            user.setCounter(0);
-            userDAO.save(user);
-        } else {
-            List<UserSession> sessions_bid = sessionDAO.findByUserEmailAndBrowserIdAndActive(email, browserId, true);
-            sessions_bid.forEach(session -> {
-                session.setActive(false);
-            });
-            sessionDAO.saveAll(sessions_bid);
-            List<UserSession> sessions = sessionDAO.findByUserEmailAndActive(email, true);
-            if(sessions.isEmpty()) {
-                User user = getUserByEmail(email);
-                user.setCurrentToken(null);
-                user.setCounter(0);
-                userDAO.save(user);
-            }
+    private void endSessions(String email, String browserId, boolean logoutAll) {
+        List<UserSession> sessions = sessionDAO.findByUserEmailAndActive(email, true);
+        List<UserSession> ending = logoutAll ? sessions
+                : sessions.stream().filter(session -> session.getBrowserId().equals(browserId)).toList();
+        // The login ends first; see the class comment
+        if (ending.size() == sessions.size()) {
+            endLogin(email);
         }
+        ending.forEach(session -> session.setActive(false));
+        sessionDAO.saveAll(ending);
+    }
+
+    /**
+     * Lists the active browser sessions of a user.
+     *
+     * @param email the user's email
+     * @return the active sessions, most recently seen first
+     */
+    @Transactional(readOnly = true)
+    public List<ActiveSession> getActiveSessions(String email) {
+        logger.info("Fetching active sessions for user: {}", email);
+        return sessionDAO.findActiveSessions(email);
+    }
+
+    /**
+     * Signs out one browser session of a user remotely. Revoking the last active session ends
+     * the login, as a logout of the last browser does.
+     *
+     * @param email the user's email
+     * @param sessionId the session to revoke
+     * @return true if the session was revoked, false if the user has no such active session
+     */
+    public boolean revokeSession(String email, long sessionId) {
+        logger.info("Revoking session {} of user: {}", sessionId, email);
+        return userLocks.inUserTransaction(email, () -> {
+            List<ActiveSession> active = sessionDAO.findActiveSessions(email);
+            if (active.stream().noneMatch(session -> session.id() == sessionId)) {
+                logger.warn("No active session {} for user: {}", sessionId, email);
+                return false;
+            }
+            // The login ends first; see the class comment
+            if (active.size() == 1) {
+                endLogin(email);
+            }
+            Optional<String> browserId = sessionDAO.revokeSession(email, sessionId);
+            if (browserId.isEmpty()) {
+                logger.warn("No active session {} for user: {}", sessionId, email);
+                return false;
+            }
+            eventPublisher.publishEvent(AuthEvent.of(AuthEvent.Type.REVOKE, email, browserId.get(), sessionId));
+            return true;
+        });
+    }
+
+    /**
+     * Checks whether a browser has an active session of a user.
+     *
+     * @param email the user's email
+     * @param browserId the browser identifier
+     * @return true if the browser is signed in as the user
+     */
+    @PrimaryRead
+    public boolean hasActiveSession(String email, String browserId) {
+        return !sessionDAO.findByUserEmailAndBrowserIdAndActive(email, browserId, true).isEmpty();
+    }
+
+    /**
+     * Checks whether a browser was signed out after a token was issued, so the token cannot
+     * register that browser again.
+     *
+     * @param email the user's email
+     * @param browserId the browser identifier
+     * @param issuedAt the issue time of the token
+     * @return true if the browser was signed out since the token was issued
+     */
+    @PrimaryRead
+    public boolean isSignedOutSince(String email, String browserId, Instant issuedAt) {
+        return sessionDAO.signedOutSince(email, browserId, issuedAt);
+    }
+
+    /**
+     * Clears the user's token and counter once no browser session is left. Runs within a
+     * transition holding the user's lock.
+     *
+     * @param email the user's email
+     */
+    private void endLogin(String email) {
+        User user = getUserByEmail(email);
+        user.setCurrentTokenHash(null);
+        user.setCounter(0);
+        userDAO.save(user);
+        eventPublisher.publishEvent(InvalidationEvent.local(InvalidationEvent.Topic.TOKEN, email));
+        eventPublisher.publishEvent(new CounterChangedEvent(email, user.getUsername(), user.getRole(), 0));
     }
 
     /**
@@ -139,24 +266,28 @@ public class AuthService {
      * @param email the user's email
      * @return the updated counter value
      */
-    @Transactional
     public int incrementCounter(String email) {
         logger.info("Incrementing counter for user: {}", email);
-        User user = getUserByEmail(email);
-        user.setCounter(user.getCounter() + 1);
-        userDAO.save(user);
-        return user.getCounter();
+        return userLocks.inUserTransaction(email, () -> {
+            User user = getUserByEmail(email);
+            user.setCounter(user.getCounter() + 1);
+            userDAO.save(user);
+            eventPublisher.publishEvent(InvalidationEvent.local(InvalidationEvent.Topic.COUNTER, email));
+            eventPublisher.publishEvent(new CounterChangedEvent(email, user.getUsername(), user.getRole(), user.getCounter()));
+            eventPublisher.publishEvent(AuthEvent.of(AuthEvent.Type.INCREMENT, email, null, user.getCounter()));
+            return user.getCounter();
+        });
     }
 
     /**
-     * Retrieves all users from the database.
+     * Retrieves the directory view of all users from the database.
      *
      * @return List of all users
      */
     @Transactional(readOnly = true)
-    public List<User> getAllUsers() {
+    public List<UserDirectoryEntry> getAllUsers() {
         logger.info("Fetching all users");
-        return userDAO.findAll();
+        return userDAO.findDirectoryEntries();
     }
 
     /**
@@ -181,5 +312,6 @@ public class AuthService {
         newUser.setCounter(0);
 
         userDAO.save(newUser);
+        eventPublisher.publishEvent(AuthEvent.of(AuthEvent.Type.ADD_USER, email, null, 0));
     }
 }
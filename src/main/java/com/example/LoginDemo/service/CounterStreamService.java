@@ -0,0 +1,391 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.dao.UserStore;
+import com.example.LoginDemo.dao.UserSessionStore;
+import com.example.LoginDemo.event.InvalidationEvent;
+import com.example.LoginDemo.model.BrowserSessionKey;
+import com.example.LoginDemo.model.UserAuthView;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes counter changes to the browser sessions of a user over server-sent events.
+ * <p>
+ * Streams are async servlet responses, so an idle subscriber holds a socket and a registry
+ * entry but no thread. Subscribers are indexed by email for fan-out, by browser session for
+ * reconnects and by browser ID for sign-outs; a browser shared by several users has one stream
+ * per user. Counter changes arrive as COUNTER invalidations, local or from other nodes; the
+ * counter is read once per change and only if the user has subscribers. A revoked or logged-out
+ * session receives a {@code signedOut} event and its stream is closed.
+ * <p>
+ * Events are queued per subscriber and written by a small bounded pool, in order, so a slow
+ * client never holds the committing or scheduler thread. A subscriber with more than
+ * {@value #MAX_QUEUED_EVENTS} unsent events is dropped, and so is every subscriber the pool has
+ * no room for an event for. Heartbeats are best effort: they skip subscribers with a send
+ * pending, and a beat the pool has no room for is skipped rather than the subscriber dropped.
+ * <p>
+ * Streams are opened with a short-lived, single-use ticket rather than the session token, as
+ * EventSource can only pass credentials in the URL. Tickets are held by the node that issued
+ * them.
+ */
+@Service
+@Lazy(false)
+@Profile("!reactive")
+public class CounterStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CounterStreamService.class);
+
+    static final int MAX_QUEUED_EVENTS = 32;
+
+    private final Map<String, Set<Subscriber>> subscribersByEmail = new ConcurrentHashMap<>();
+    private final Map<BrowserSessionKey, Subscriber> subscribersBySession = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscriber>> subscribersByBrowser = new ConcurrentHashMap<>();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final ExecutorService sendExecutor;
+
+    @Autowired
+    private UserStore userDAO;
+
+    @Autowired
+    private UserSessionStore sessionDAO;
+
+    @Value("${app.counter-stream.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${app.counter-stream.ticket-ttl:30s}")
+    private Duration ticketTtl;
+
+    private record Ticket(BrowserSessionKey session, long expiresAtMillis) {
+    }
+
+    private record Delivery(SseEmitter.SseEventBuilder event, boolean last) {
+    }
+
+    /**
+     * An open stream and the events waiting to be written to it.
+     */
+    private static final class Subscriber {
+        private final BrowserSessionKey session;
+        private final String email;
+        private final String browserId;
+        private final SseEmitter emitter;
+        private final Queue<Delivery> outbox = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(String email, String browserId, SseEmitter emitter) {
+            this.session = new BrowserSessionKey(email, browserId);
+            this.email = email;
+            this.browserId = browserId;
+            this.emitter = emitter;
+        }
+    }
+
+    /**
+     * Creates the service with its send pool.
+     *
+     * @param sendThreads threads writing events to streams
+     * @param sendQueue subscribers that may wait for a send thread
+     */
+    @Autowired
+    public CounterStreamService(@Value("${app.counter-stream.send-threads:2}") int sendThreads,
+                                @Value("${app.counter-stream.send-queue:10000}") int sendQueue) {
+        this(new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(sendQueue), runnable -> {
+                    Thread thread = new Thread(runnable, "counter-stream-send");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    /**
+     * Creates the service with the given send pool.
+     *
+     * @param sendExecutor the executor writing events to streams
+     */
+    CounterStreamService(ExecutorService sendExecutor) {
+        this.sendExecutor = sendExecutor;
+    }
+
+    /**
+     * Issues a ticket that opens one stream for a signed-in browser within
+     * {@code app.counter-stream.ticket-ttl}.
+     *
+     * @param email the user's email
+     * @param browserId the browser identifier
+     * @return the ticket
+     */
+    public String issueTicket(String email, String browserId) {
+        String ticket = MagicLinkCodeService.newCode();
+        tickets.put(ticket, new Ticket(new BrowserSessionKey(email, browserId),
+                System.currentTimeMillis() + ticketTtl.toMillis()));
+        return ticket;
+    }
+
+    /**
+     * Redeems a stream ticket. A ticket can be redeemed once, before it expires.
+     *
+     * @param ticket the ticket
+     * @return the browser session the ticket was issued to, empty if the ticket is unknown,
+     *         redeemed or expired
+     */
+    public Optional<BrowserSessionKey> redeemTicket(String ticket) {
+        Ticket redeemed = ticket != null ? tickets.remove(ticket) : null;
+        if (redeemed == null || System.currentTimeMillis() >= redeemed.expiresAtMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(redeemed.session());
+    }
+
+    /**
+     * Opens a stream for a signed-in browser and sends it the current counter.
+     *
+     * @param email the user's email
+     * @param browserId the browser identifier
+     * @param counter the current counter value
+     * @return the stream
+     */
+    public SseEmitter subscribe(String email, String browserId, int counter) {
+        SseEmitter emitter = newEmitter();
+        Subscriber subscriber = new Subscriber(email, browserId, emitter);
+        // Queued before the subscriber is visible, so no newer value can overtake it
+        sendCounter(subscriber, counter);
+
+        // One stream per browser session; a reconnect replaces the previous one
+        Subscriber previous = subscribersBySession.put(subscriber.session, subscriber);
+        if (previous != null) {
+            remove(previous);
+            previous.closed = true;
+            previous.emitter.complete();
+        }
+        subscribersByEmail.computeIfAbsent(email, e -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscribersByBrowser.computeIfAbsent(browserId, b -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        emitter.onError(e -> close(subscriber));
+
+        logger.debug("Counter stream opened - Email: {}, BrowserId: {}", email, browserId);
+        return emitter;
+    }
+
+    /**
+     * Pushes committed counter changes and closes the streams of signed-out sessions.
+     *
+     * @param event the invalidation event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInvalidation(InvalidationEvent event) {
+        switch (event.topic()) {
+            case COUNTER -> pushCounter(event.key());
+            case TOKEN -> subscribers(subscribersByEmail, event.key()).forEach(this::signOut);
+            // The key is the browser ID; each user signed in there is checked separately
+            case SESSION -> subscribers(subscribersByBrowser, event.key()).stream()
+                    .filter(subscriber -> !hasActiveSession(subscriber))
+                    .forEach(this::signOut);
+            // Notifications were missed; resend every subscribed user's counter
+            case ALL -> List.copyOf(subscribersByEmail.keySet()).forEach(this::pushCounter);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Sends a comment to every idle stream so dead connections are detected and proxies keep
+     * idle streams open, and forgets expired tickets.
+     */
+    @Scheduled(fixedDelayString = "${app.counter-stream.heartbeat-interval:25s}")
+    public void heartbeat() {
+        subscribersBySession.values().forEach(this::beat);
+        long now = System.currentTimeMillis();
+        tickets.values().removeIf(ticket -> now >= ticket.expiresAtMillis());
+    }
+
+    /**
+     * Returns the number of open streams.
+     *
+     * @return the number of open streams
+     */
+    public int getSubscriberCount() {
+        return subscribersBySession.size();
+    }
+
+    /**
+     * Stops the send pool; open streams are closed by the servlet container.
+     */
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeout.toMillis());
+    }
+
+    private void pushCounter(String email) {
+        Set<Subscriber> subscribers = subscribers(subscribersByEmail, email);
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Optional<UserAuthView> user = userDAO.findAuthViewByEmail(email);
+        if (user.isEmpty()) {
+            return;
+        }
+        subscribers.forEach(subscriber -> sendCounter(subscriber, user.get().counter()));
+    }
+
+    private boolean hasActiveSession(Subscriber subscriber) {
+        return !sessionDAO.findByUserEmailAndBrowserIdAndActive(subscriber.email, subscriber.browserId, true).isEmpty();
+    }
+
+    private static Set<Subscriber> subscribers(Map<String, Set<Subscriber>> index, String key) {
+        Set<Subscriber> subscribers = key != null ? index.get(key) : null;
+        return subscribers != null ? Set.copyOf(subscribers) : Set.of();
+    }
+
+    private void sendCounter(Subscriber subscriber, int counter) {
+        deliver(subscriber, SseEmitter.event().name("counter").data(Map.of("count", counter), MediaType.APPLICATION_JSON), false);
+    }
+
+    private void signOut(Subscriber subscriber) {
+        logger.debug("Closing counter stream of signed-out browser {}", subscriber.browserId);
+        remove(subscriber);
+        deliver(subscriber, SseEmitter.event().name("signedOut").data("{}", MediaType.APPLICATION_JSON), true);
+    }
+
+    /**
+     * Queues an event for a subscriber and makes sure a send thread drains its queue.
+     *
+     * @param last whether to close the stream once the event is sent
+     */
+    private void deliver(Subscriber subscriber, SseEmitter.SseEventBuilder event, boolean last) {
+        if (subscriber.closed) {
+            return;
+        }
+        if (subscriber.queued.incrementAndGet() > MAX_QUEUED_EVENTS) {
+            drop(subscriber, "too many unsent events");
+            return;
+        }
+        subscriber.outbox.add(new Delivery(event, last));
+        schedule(subscriber);
+    }
+
+    /**
+     * Queues a heartbeat unless a send is already pending, which probes the connection anyway.
+     * If the pool has no room the beat is withdrawn and the subscriber kept; events queued
+     * meanwhile go out with the next event or beat.
+     */
+    private void beat(Subscriber subscriber) {
+        if (subscriber.closed || !subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        Delivery ping = new Delivery(SseEmitter.event().comment("ping"), false);
+        subscriber.queued.incrementAndGet();
+        subscriber.outbox.add(ping);
+        try {
+            sendExecutor.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            if (subscriber.outbox.remove(ping)) {
+                subscriber.queued.decrementAndGet();
+            }
+            subscriber.draining.set(false);
+            logger.debug("Skipping heartbeat of browser {}: send pool is full", subscriber.browserId);
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                sendExecutor.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.draining.set(false);
+                drop(subscriber, "send pool is full");
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        Delivery delivery;
+        while (!subscriber.closed && (delivery = subscriber.outbox.poll()) != null) {
+            subscriber.queued.decrementAndGet();
+            if (send(subscriber, delivery.event()) && delivery.last()) {
+                subscriber.closed = true;
+                subscriber.emitter.complete();
+            }
+        }
+        subscriber.draining.set(false);
+        // An event queued after the last poll found the flag still set
+        if (!subscriber.closed && !subscriber.outbox.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Sends an event, dropping the subscriber if the connection is gone.
+     *
+     * @return true if the event was sent
+     */
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        try {
+            subscriber.emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Dropping counter stream of browser {}: {}", subscriber.browserId, e.getMessage());
+            close(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void drop(Subscriber subscriber, String reason) {
+        logger.warn("Dropping counter stream of browser {}: {}", subscriber.browserId, reason);
+        close(subscriber);
+        subscriber.emitter.complete();
+    }
+
+    private void close(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscriber.outbox.clear();
+        remove(subscriber);
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribersBySession.remove(subscriber.session, subscriber);
+        unindex(subscribersByEmail, subscriber.email, subscriber);
+        unindex(subscribersByBrowser, subscriber.browserId, subscriber);
+    }
+
+    private static void unindex(Map<String, Set<Subscriber>> index, String key, Subscriber subscriber) {
+        index.computeIfPresent(key, (k, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+}
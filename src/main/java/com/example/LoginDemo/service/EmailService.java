@@ -1,40 +1,65 @@
 package com.example.LoginDemo.service;
 
+import com.example.LoginDemo.exception.DependencyUnavailableException;
+import com.example.LoginDemo.monitoring.Trace;
+import com.example.LoginDemo.resilience.GuardedDependency;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.mail.MailException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 /**
- * Service for sending emails, such as magic login links.
+ * Service for sending emails, such as magic login links. Sends go through the SMTP bulkhead and
+ * circuit breaker, so a hanging mail server cannot hold the request threads.
  */
 @Service
 public class EmailService {
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
 
+    // Resolved on first send so mail infrastructure stays out of the startup path
+    @Lazy
     @Autowired
     private JavaMailSender mailSender;
 
+    @Autowired
+    @Qualifier("smtpDependency")
+    private GuardedDependency smtp;
+
     /**
      * Sends a magic login link to the given email.
      *
      * @param email the recipient's email address
-     * @param token the authentication token to be included in the link
+     * @param code the one-time code to be included in the link
+     * @throws DependencyUnavailableException if the mail server is considered down, or the send
+     *                                        does not complete within the SMTP timeout
      */
-    public void sendMagicLink(String email, String token) {
+    public void sendMagicLink(String email, String code) {
         try {
             SimpleMailMessage message = new SimpleMailMessage();
             message.setTo(email);
             message.setSubject("Your Login Link");
-            // Constructing the login link with the token
-            String loginUrl = "http://localhost:8083/index.html?token=" + token + "&email=" + email;
+            // Constructing the login link with the one-time code
+            String loginUrl = "http://localhost:8083/index.html?code=" + code;
             message.setText("Click here to login: " + loginUrl);
 
-            mailSender.send(message);
+            long start = System.nanoTime();
+            try {
+                smtp.call(() -> {
+                    mailSender.send(message);
+                    return null;
+                });
+            } finally {
+                Trace.record(Trace.Phase.SMTP, "send", start);
+            }
             logger.info("Magic link sent successfully to {}", email);
+        } catch (DependencyUnavailableException e) {
+            logger.warn("Magic link to {} not sent: {}", email, e.getMessage());
+            throw e;
         } catch (MailException e) {
             logger.error("Failed to send magic link to {}: {}", email, e.getMessage(), e);
             throw new RuntimeException("Email sending failed. Please try again later.");
@@ -0,0 +1,120 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.event.InvalidationEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.UUID;
+
+/**
+ * Cross-node cache invalidation over Postgres LISTEN/NOTIFY.
+ * <p>
+ * Local {@link InvalidationEvent}s are sent with {@code pg_notify} inside the writing
+ * transaction, so other nodes only hear about changes that were committed. Notifications from
+ * other nodes are republished locally as remote events; after a reconnect an ALL event is
+ * published because notifications sent in the meantime are lost.
+ * <p>
+ * Wire format: {@code <nodeId><topic code><key>}, e.g. {@code 3f9a1c2dualice@example.com}
+ * for a USER change from node {@code 3f9a1c2d}.
+ * <p>
+ * Only runs with JDBC storage: the embedded stores belong to a single node, which has no
+ * peers to notify.
+ */
+@Service
+@Lazy(false)
+@ConditionalOnExpression("${app.invalidation.enabled:true} and '${app.storage.type:jdbc}' == 'jdbc'")
+public class InvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationBus.class);
+    private static final int NODE_ID_LENGTH = 8;
+
+    private final String nodeId = UUID.randomUUID().toString().substring(0, NODE_ID_LENGTH);
+    private final ResultSetExtractor<Void> ignoreResult = rs -> null;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Value("${app.invalidation.channel:auth_invalidation}")
+    private String channel;
+
+    private PgNotificationListener listener;
+
+    /**
+     * Opens the listening connection.
+     */
+    @PostConstruct
+    public void start() {
+        listener = new PgNotificationListener(
+                dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword(),
+                channel,
+                this::onNotification,
+                () -> eventPublisher.publishEvent(new InvalidationEvent(InvalidationEvent.Topic.ALL, "*", true)));
+        listener.start();
+        logger.info("Invalidation bus started on channel {} as node {}", channel, nodeId);
+    }
+
+    /**
+     * Closes the listening connection.
+     */
+    @PreDestroy
+    public void stop() {
+        if (listener != null) {
+            listener.stop();
+        }
+    }
+
+    /**
+     * Forwards a local invalidation to the other nodes. Runs just before the writing
+     * transaction commits, so the notification is delivered together with the commit.
+     *
+     * @param event the invalidation event
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void publish(InvalidationEvent event) {
+        if (event.remote()) {
+            return;
+        }
+        String payload = nodeId + event.topic().code() + (event.key() != null ? event.key() : "*");
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", ignoreResult, channel, payload);
+    }
+
+    /**
+     * Applies a notification received from the channel.
+     *
+     * @param payload the notification payload
+     */
+    void onNotification(String payload) {
+        if (payload == null || payload.length() <= NODE_ID_LENGTH || payload.startsWith(nodeId)) {
+            return;
+        }
+        InvalidationEvent.Topic topic = InvalidationEvent.Topic.fromCode(payload.charAt(NODE_ID_LENGTH));
+        if (topic == null) {
+            logger.warn("Ignoring invalidation with unknown topic: {}", payload);
+            return;
+        }
+        String key = payload.substring(NODE_ID_LENGTH + 1);
+        logger.debug("Remote invalidation {} {}", topic, key);
+        eventPublisher.publishEvent(new InvalidationEvent(topic, key, true));
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.dao.UserStore;
+import com.example.LoginDemo.event.CounterChangedEvent;
+import com.example.LoginDemo.event.InvalidationEvent;
+import com.example.LoginDemo.exception.DependencyUnavailableException;
+import com.example.LoginDemo.model.User;
+import com.example.LoginDemo.model.UserDirectoryEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the counter leaderboard from memory.
+ * <p>
+ * The board is loaded from the store's counter index at startup and then follows committed
+ * counter changes: local increments and resets arrive with their value, changes made on other
+ * nodes as COUNTER and TOKEN invalidations, which cost one read of that user. Reads never touch
+ * the store. Resets let users go from the board, so a board that shrank below
+ * {@code app.leaderboard.max-size} is refilled in the background.
+ */
+@Service
+@Lazy(false)
+@Profile("!reactive")
+public class LeaderboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+
+    @Autowired
+    private UserStore userDAO;
+
+    private final TopCounters board;
+    private final int maxSize;
+    private final int capacity;
+
+    // Guards rebuilding and pending: changes seen while the store is read are replayed after it
+    private final Object stateLock = new Object();
+    private boolean rebuilding;
+    private final List<UserDirectoryEntry> pending = new ArrayList<>();
+    private volatile boolean loaded;
+
+    /**
+     * Creates the service. The board holds twice the largest page, so resets can let users go
+     * for a while before it needs a refill.
+     *
+     * @param maxSize the largest leaderboard that can be requested
+     */
+    public LeaderboardService(@Value("${app.leaderboard.max-size:100}") int maxSize) {
+        this.maxSize = maxSize;
+        this.capacity = 2 * maxSize;
+        this.board = new TopCounters(capacity);
+    }
+
+    /**
+     * Returns the users with the highest counters, without touching the store.
+     *
+     * @param limit the number of users wanted, at most {@code app.leaderboard.max-size}
+     * @return up to {@code limit} users, highest counter first, ties by email
+     */
+    public List<UserDirectoryEntry> getTop(int limit) {
+        return board.top(Math.min(limit, maxSize));
+    }
+
+    /**
+     * Loads the board once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            rebuild();
+        } catch (DataAccessException | DependencyUnavailableException e) {
+            logger.warn("Could not load the leaderboard, retrying with the next refill: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Applies a committed local counter change.
+     *
+     * @param event the counter change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCounterChanged(CounterChangedEvent event) {
+        apply(new UserDirectoryEntry(event.email(), event.username(), event.role(), event.counter()));
+    }
+
+    /**
+     * Applies counter changes made on other nodes, and reloads the board when notifications
+     * were missed.
+     *
+     * @param event the invalidation event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInvalidation(InvalidationEvent event) {
+        if (event.topic() == InvalidationEvent.Topic.ALL) {
+            rebuild();
+            return;
+        }
+        if (!event.remote()
+                || event.topic() != InvalidationEvent.Topic.COUNTER && event.topic() != InvalidationEvent.Topic.TOKEN) {
+            return;
+        }
+        Optional<User> user = userDAO.findByEmail(event.key());
+        if (user.isPresent()) {
+            User u = user.get();
+            apply(new UserDirectoryEntry(u.getEmail(), u.getUsername(), u.getRole(),
+                    u.getCounter() != null ? u.getCounter() : 0));
+        }
+    }
+
+    /**
+     * Refills the board from the store once resets have shrunk it below the largest page.
+     */
+    @Scheduled(fixedDelayString = "${app.leaderboard.refill-interval:5s}")
+    public void refillIfNeeded() {
+        if (!loaded || board.size() < maxSize && !board.isComplete()) {
+            try {
+                rebuild();
+            } catch (DataAccessException | DependencyUnavailableException e) {
+                logger.warn("Could not refill the leaderboard, retrying with the next run: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void apply(UserDirectoryEntry entry) {
+        synchronized (stateLock) {
+            if (rebuilding) {
+                pending.add(entry);
+            }
+            board.update(entry);
+        }
+    }
+
+    private synchronized void rebuild() {
+        synchronized (stateLock) {
+            rebuilding = true;
+            pending.clear();
+        }
+        long start = System.nanoTime();
+        try {
+            List<UserDirectoryEntry> top = userDAO.findTopByCounter(capacity + 1);
+            synchronized (stateLock) {
+                board.reset(top);
+                pending.forEach(board::update);
+            }
+            loaded = true;
+            logger.info("Leaderboard loaded with {} user(s) in {} ms", board.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            synchronized (stateLock) {
+                rebuilding = false;
+                pending.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.dao.MagicLinkCodeDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Issues and redeems the short one-time codes sent in magic links.
+ * <p>
+ * Codes are persisted (hashed) in {@code magic_link_codes} so links survive a restart and can
+ * be redeemed on any node. The table row is the authority for one-time use: a code is redeemed
+ * by whoever deletes its row, and redemption is a single {@code DELETE ... RETURNING} that also
+ * checks the expiry. An in-memory index could not skip that round trip without giving up
+ * one-time use across nodes, so there is none.
+ */
+@Service
+@Lazy(false)
+@Profile("!reactive")
+public class MagicLinkCodeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MagicLinkCodeService.class);
+
+    // 128 random bits, base64url without padding
+    private static final int CODE_BYTES = 16;
+    private static final Pattern CODE_FORMAT = Pattern.compile("[A-Za-z0-9_-]{22}");
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    private MagicLinkCodeDAO codeDAO;
+
+    @Value("${app.magic-link.code-ttl:15m}")
+    private Duration codeTtl;
+
+    /**
+     * Issues a new code for a user.
+     *
+     * @param email the user's email
+     * @return the code to put in the magic link
+     */
+    public String issue(String email) {
+        String code = newCode();
+        codeDAO.insert(hash(code), email, codeTtl);
+        logger.info("Issued magic-link code for {}", email);
+        return code;
+    }
+
+    /**
+     * Redeems a code. A code can be redeemed once, before it expires.
+     *
+     * @param code the code from the magic link
+     * @return the email the code signs in, empty if the code is unknown, redeemed or expired
+     */
+    public Optional<String> redeem(String code) {
+        if (!isWellFormed(code)) {
+            return Optional.empty();
+        }
+        return codeDAO.consume(hash(code));
+    }
+
+    /**
+     * Deletes expired codes that were never redeemed.
+     */
+    @Scheduled(fixedDelayString = "${app.magic-link.purge-interval:10m}")
+    public void purge() {
+        try {
+            codeDAO.deleteExpired();
+        } catch (RuntimeException e) {
+            logger.warn("Could not purge expired magic-link codes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Generates a random code.
+     *
+     * @return a new code
+     */
+    static String newCode() {
+        byte[] bytes = new byte[CODE_BYTES];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Tells whether a string can be a code, so malformed input never reaches the table.
+     *
+     * @param code the candidate code
+     * @return true if it has the format of a code
+     */
+    static boolean isWellFormed(String code) {
+        return code != null && CODE_FORMAT.matcher(code).matches();
+    }
+
+    /**
+     * Hashes a code for storage.
+     *
+     * @param code the code
+     * @return the SHA-256 hash of the code
+     */
+    static byte[] hash(String code) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(code.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
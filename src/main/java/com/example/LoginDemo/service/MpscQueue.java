@@ -0,0 +1,70 @@
+package com.example.LoginDemo.service;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unbounded lock-free multi-producer single-consumer queue (Vyukov's linked queue).
+ * <p>
+ * A producer swaps its node into the tail and then links it from the previous tail, one atomic
+ * exchange and one volatile write per offer, with no retry loop. Only one thread may poll.
+ * Between the exchange and the link a just-offered element is not yet visible to the consumer,
+ * so {@link #poll()} may briefly return null although an offer has started.
+ *
+ * @param <E> the element type
+ */
+final class MpscQueue<E> {
+
+    private static final class Node<E> {
+        E value;
+        volatile Node<E> next;
+
+        Node(E value) {
+            this.value = value;
+        }
+    }
+
+    private final AtomicReference<Node<E>> tail;
+    // Consumer-owned; always a node whose value was already taken
+    private Node<E> head;
+
+    MpscQueue() {
+        Node<E> stub = new Node<>(null);
+        head = stub;
+        tail = new AtomicReference<>(stub);
+    }
+
+    /**
+     * Adds an element; safe from any thread.
+     *
+     * @param value the element, not null
+     */
+    void offer(E value) {
+        Node<E> node = new Node<>(value);
+        tail.getAndSet(node).next = node;
+    }
+
+    /**
+     * Removes the oldest element; consumer thread only.
+     *
+     * @return the element, or null if none is visible
+     */
+    E poll() {
+        Node<E> next = head.next;
+        if (next == null) {
+            return null;
+        }
+        E value = next.value;
+        next.value = null;
+        head = next;
+        return value;
+    }
+
+    /**
+     * Checks for visible elements; consumer thread only.
+     *
+     * @return true if {@link #poll()} would return null
+     */
+    boolean isEmpty() {
+        return head.next == null;
+    }
+}
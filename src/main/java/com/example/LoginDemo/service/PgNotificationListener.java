@@ -0,0 +1,138 @@
+package com.example.LoginDemo.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Listens on a Postgres NOTIFY channel over a dedicated connection, outside the pool.
+ * Reconnects with exponential backoff. Once listening again after any failed or dropped
+ * connection, including failed attempts before the first connect, the {@code onReconnect}
+ * callback runs, because notifications sent while not listening are lost.
+ */
+public class PgNotificationListener implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PgNotificationListener.class);
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final int POLL_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String channel;
+    private final Consumer<String> onNotification;
+    private final Runnable onReconnect;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * Creates a listener; call {@link #start()} to begin listening.
+     *
+     * @param url the JDBC URL of the Postgres server
+     * @param username the database user
+     * @param password the database password
+     * @param channel the channel name (lower-case identifier)
+     * @param onNotification receives the payload of every notification
+     * @param onReconnect runs once listening again after notifications may have been missed
+     */
+    public PgNotificationListener(String url, String username, String password, String channel,
+                                  Consumer<String> onNotification, Runnable onReconnect) {
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid notification channel name: " + channel);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.channel = channel;
+        this.onNotification = onNotification;
+        this.onReconnect = onReconnect;
+    }
+
+    /**
+     * Starts the listener thread.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "pg-listen-" + channel);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the listener thread and waits for it to close its connection.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join(POLL_MILLIS * 4L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        long backoff = POLL_MILLIS;
+        // Set by every failed attempt or dropped connection, so the gap is reconciled once listening
+        boolean missedNotifications = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                logger.info("Listening for notifications on channel {}", channel);
+                if (missedNotifications) {
+                    onReconnect.run();
+                    missedNotifications = false;
+                }
+                backoff = POLL_MILLIS;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        try {
+                            onNotification.accept(notification.getParameter());
+                        } catch (RuntimeException e) {
+                            logger.error("Error handling notification on channel {}: {}", channel, e.getMessage(), e);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                missedNotifications = true;
+                logger.warn("Notification listener on channel {} disconnected, retrying in {} ms: {}",
+                        channel, backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+        logger.info("Stopped listening on channel {}", channel);
+    }
+}
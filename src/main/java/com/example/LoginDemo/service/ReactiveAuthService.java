@@ -0,0 +1,160 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.config.TokenDigests;
+import com.example.LoginDemo.dao.ReactiveUserDAO;
+import com.example.LoginDemo.dao.ReactiveUserSessionDAO;
+import com.example.LoginDemo.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link AuthService} used by the "reactive" profile.
+ * The reactive profile has no transaction manager, so instead of locking the user like
+ * {@link AuthService} each transition that changes a user is a single conditional statement.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveAuthService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveAuthService.class);
+
+    @Autowired
+    private ReactiveUserDAO userDAO;
+
+    @Autowired
+    private ReactiveUserSessionDAO sessionDAO;
+
+    /**
+     * Checks if an email exists in the database.
+     *
+     * @param email the email to check
+     * @return a Mono emitting true if the email exists
+     */
+    public Mono<Boolean> isValidEmail(String email) {
+        logger.info("Checking if email exists: {}", email);
+        return userDAO.existsByEmail(email);
+    }
+
+    /**
+     * Retrieves a user by email.
+     *
+     * @param email the email to search for
+     * @return a Mono emitting the User, or an error if not found
+     */
+    public Mono<User> getUserByEmail(String email) {
+        logger.info("Fetching user by email: {}", email);
+        return userDAO.findByEmail(email)
+                .switchIfEmpty(Mono.defer(() -> notFound(email)));
+    }
+
+    /**
+     * Updates the authentication token of a user.
+     *
+     * @param email the user's email
+     * @param token the new token
+     * @return a Mono completing when the token has been stored
+     */
+    public Mono<Void> updateUserToken(String email, String token) {
+        logger.info("Updating user token for email: {}", email);
+        return userDAO.updateToken(email, TokenDigests.of(token))
+                .flatMap(updated -> updated ? Mono.<Void>empty() : notFound(email));
+    }
+
+    /**
+     * Registers a session for the browser unless it already has an active one.
+     * A single upsert, so concurrent validations from the same browser create one session.
+     *
+     * @param email the user's email
+     * @param browserId the browser identifier
+     * @return a Mono completing when the session has been registered
+     */
+    public Mono<Void> addUserSession(String email, String browserId) {
+        logger.info("Adding user session for email: {}, browserId: {}", email, browserId);
+        return sessionDAO.registerActiveSession(email, browserId)
+                .doOnNext(created -> {
+                    if (!created) {
+                        logger.debug("Browser {} already has an active session", browserId);
+                    }
+                })
+                .then();
+    }
+
+    /**
+     * Logs out a user session, either a specific session or all sessions.
+     *
+     * @param email the user's email
+     * @param browserId the browser identifier
+     * @param logoutAll flag to determine if all sessions should be logged out
+     * @return a Mono completing when the logout has been applied
+     */
+    public Mono<Void> logout(String email, String browserId, boolean logoutAll) {
+        logger.info("Logging out user: {}, logoutAll: {}", email, logoutAll);
+        return sessionDAO.deactivateSessions(email, logoutAll ? null : browserId)
+                .then(userDAO.endLoginIfNoActiveSession(email))
+                .doOnNext(ended -> {
+                    if (ended) {
+                        logger.debug("Login of {} ended with its last session", email);
+                    }
+                })
+                .then();
+    }
+
+    /**
+     * Increments the counter for a user.
+     *
+     * @param email the user's email
+     * @return a Mono emitting the updated counter value
+     */
+    public Mono<Integer> incrementCounter(String email) {
+        logger.info("Incrementing counter for user: {}", email);
+        return userDAO.incrementCounter(email)
+                .switchIfEmpty(Mono.defer(() -> notFound(email)));
+    }
+
+    /**
+     * Retrieves all users from the database.
+     *
+     * @return a Flux of all users
+     */
+    public Flux<User> getAllUsers() {
+        logger.info("Fetching all users");
+        return userDAO.findAll();
+    }
+
+    /**
+     * Adds a new user to the database.
+     *
+     * @param email user's email
+     * @param username user's name
+     * @param role user's role
+     * @return a Mono completing when the user has been stored, or an error if the email is taken
+     */
+    public Mono<Void> addUser(String email, String username, String role) {
+        logger.info("Adding new user: email={}, username={}, role={}", email, username, role);
+        return userDAO.existsByEmail(email)
+                .flatMap(exists -> {
+                    if (exists) {
+                        logger.warn("User already exists with email: {}", email);
+                        return Mono.<Void>error(new ResponseStatusException(HttpStatus.CONFLICT, "User already exists"));
+                    }
+                    User newUser = new User();
+                    newUser.setEmail(email);
+                    newUser.setUsername(username);
+                    newUser.setRole(role);
+                    newUser.setCounter(0);
+                    return userDAO.save(newUser);
+                });
+    }
+
+    private static <T> Mono<T> notFound(String email) {
+        logger.error("User not found with email: {}", email);
+        return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+    }
+}
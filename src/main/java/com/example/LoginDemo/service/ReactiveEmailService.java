@@ -0,0 +1,45 @@
+package com.example.LoginDemo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking facade over {@link EmailService} for the "reactive" profile.
+ * JavaMail has no asynchronous transport, so SMTP calls are shifted to a bounded
+ * elastic scheduler and never run on an event-loop thread.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveEmailService {
+
+    private final Scheduler mailScheduler = Schedulers.newBoundedElastic(8, 1000, "mail");
+
+    @Autowired
+    private EmailService emailService;
+
+    /**
+     * Sends a magic login link without blocking the calling thread.
+     *
+     * @param email the recipient's email address
+     * @param code the one-time code to be included in the link
+     * @return a Mono completing once the message has been handed to the mail server
+     */
+    public Mono<Void> sendMagicLink(String email, String code) {
+        return Mono.fromRunnable(() -> emailService.sendMagicLink(email, code))
+                .subscribeOn(mailScheduler)
+                .then();
+    }
+
+    /**
+     * Releases the mail scheduler threads on shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        mailScheduler.dispose();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.dao.ReactiveMagicLinkCodeDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Issues and redeems magic-link codes for the "reactive" profile. Codes are the same as those of
+ * {@link MagicLinkCodeService} and live in the same table, which is the only index here: a code
+ * is redeemed by whoever deletes its unexpired row.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveMagicLinkCodeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveMagicLinkCodeService.class);
+
+    @Autowired
+    private ReactiveMagicLinkCodeDAO codeDAO;
+
+    @Value("${app.magic-link.code-ttl:15m}")
+    private Duration codeTtl;
+
+    /**
+     * Issues a new code for a user.
+     *
+     * @param email the user's email
+     * @return a Mono emitting the code to put in the magic link once it is stored
+     */
+    public Mono<String> issue(String email) {
+        String code = MagicLinkCodeService.newCode();
+        return codeDAO.insert(MagicLinkCodeService.hash(code), email, codeTtl)
+                .doOnSuccess(stored -> logger.info("Issued magic-link code for {}", email))
+                .thenReturn(code);
+    }
+
+    /**
+     * Redeems a code. A code can be redeemed once, before it expires.
+     *
+     * @param code the code from the magic link
+     * @return a Mono emitting the email the code signs in, empty if the code is unknown,
+     *         redeemed or expired
+     */
+    public Mono<String> redeem(String code) {
+        if (!MagicLinkCodeService.isWellFormed(code)) {
+            return Mono.empty();
+        }
+        return codeDAO.consume(MagicLinkCodeService.hash(code));
+    }
+
+    /**
+     * Deletes expired codes from the table.
+     */
+    @Scheduled(fixedDelayString = "${app.magic-link.purge-interval:10m}")
+    public void purge() {
+        codeDAO.deleteExpired()
+                .doOnError(e -> logger.warn("Could not purge expired magic-link codes: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .subscribe();
+    }
+}
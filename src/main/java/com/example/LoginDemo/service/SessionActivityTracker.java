@@ -0,0 +1,83 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.dao.UserSessionStore;
+import com.example.LoginDemo.model.BrowserSessionKey;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks when each browser session was last active without writing on every request.
+ * <p>
+ * Activity is coalesced in memory, keeping only the latest time per user and browser, and flushed
+ * to {@code user_sessions.last_seen_at} in one batch update on a fixed delay and at shutdown.
+ * A browser session that is active many times between flushes costs a single row update.
+ * Callers record activity only once the user is authenticated and the browser session verified.
+ */
+@Service
+@Lazy(false)
+@Profile("!reactive")
+public class SessionActivityTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionActivityTracker.class);
+
+    private final Map<BrowserSessionKey, Instant> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    private UserSessionStore sessionDAO;
+
+    /**
+     * Records activity of a user's browser session.
+     *
+     * @param email the authenticated user's email
+     * @param browserId the browser identifier
+     */
+    public void touch(String email, String browserId) {
+        if (browserId != null && !browserId.isBlank()) {
+            pending.merge(new BrowserSessionKey(email, browserId), Instant.now(), (previous, now) -> now.isAfter(previous) ? now : previous);
+        }
+    }
+
+    /**
+     * Writes the coalesced activity to the database.
+     */
+    @Scheduled(fixedDelayString = "${app.sessions.last-seen-flush-interval:30s}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<BrowserSessionKey, Instant> batch = new HashMap<>();
+        pending.forEach((key, seenAt) -> {
+            // Only drain the value that was read; a newer touch stays pending for the next flush
+            if (pending.remove(key, seenAt)) {
+                batch.put(key, seenAt);
+            }
+        });
+        try {
+            sessionDAO.updateLastSeen(batch);
+            logger.debug("Flushed last-seen times of {} browser session(s)", batch.size());
+        } catch (RuntimeException e) {
+            logger.warn("Could not flush last-seen times, retrying with the next flush: {}", e.getMessage());
+            batch.forEach((key, seenAt) ->
+                    pending.merge(key, seenAt, (newer, older) -> newer.isAfter(older) ? newer : older));
+        }
+    }
+
+    /**
+     * Flushes pending activity before shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
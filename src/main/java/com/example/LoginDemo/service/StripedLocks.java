@@ -0,0 +1,39 @@
+package com.example.LoginDemo.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared by hashing keys onto them. Memory stays constant however many
+ * keys there are; two keys on the same stripe merely serialize with each other.
+ */
+public final class StripedLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * Creates the locks.
+     *
+     * @param stripes the number of locks, rounded up to a power of two
+     */
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the lock of a key.
+     *
+     * @param key the key
+     * @return the lock
+     */
+    public ReentrantLock get(Object key) {
+        int hash = key.hashCode();
+        // Spread the high bits, as HashMap does, so similar keys land on different stripes
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.config.JwtUtil;
+import com.example.LoginDemo.config.TokenVerification;
+import com.example.LoginDemo.model.TokenIntrospection;
+import com.example.LoginDemo.model.UserAuthView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Introspects batches of tokens for internal services in one round trip.
+ * <p>
+ * Signature checks are CPU-bound, so a large batch is split into chunks that are verified in
+ * parallel on the application task executor, with the caller taking the first chunk. The users
+ * behind all valid tokens are then loaded with a single query. A token is active if it verifies
+ * and is still its user's current token.
+ */
+@Service
+@Profile("!reactive")
+public class TokenIntrospectionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenIntrospectionService.class);
+
+    // Below this, handing work to other threads costs more than the checks themselves
+    private static final int CHUNK_SIZE = 32;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor taskExecutor;
+
+    /**
+     * Introspects a batch of tokens.
+     *
+     * @param tokens the tokens
+     * @return one result per token, in the same order
+     */
+    public List<TokenIntrospection> introspect(List<String> tokens) {
+        TokenVerification[] verifications = verifyAll(tokens);
+
+        Set<String> emails = new HashSet<>();
+        for (TokenVerification verification : verifications) {
+            if (verification.isValid()) {
+                emails.add(verification.subject());
+            }
+        }
+        Map<String, UserAuthView> users = emails.isEmpty() ? Map.of() : authService.getAuthViews(emails);
+
+        List<TokenIntrospection> results = new ArrayList<>(tokens.size());
+        int active = 0;
+        for (int i = 0; i < verifications.length; i++) {
+            TokenIntrospection result = result(tokens.get(i), verifications[i], users);
+            if (result.active()) {
+                active++;
+            }
+            results.add(result);
+        }
+        logger.info("Introspected {} token(s) of {} user(s), {} active", tokens.size(), users.size(), active);
+        return results;
+    }
+
+    private TokenVerification[] verifyAll(List<String> tokens) {
+        TokenVerification[] verifications = new TokenVerification[tokens.size()];
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int start = CHUNK_SIZE; start < tokens.size(); start += CHUNK_SIZE) {
+            int from = start;
+            int to = Math.min(start + CHUNK_SIZE, tokens.size());
+            chunks.add(CompletableFuture.runAsync(() -> verifyRange(tokens, verifications, from, to), taskExecutor));
+        }
+        verifyRange(tokens, verifications, 0, Math.min(CHUNK_SIZE, tokens.size()));
+        CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+        return verifications;
+    }
+
+    private void verifyRange(List<String> tokens, TokenVerification[] verifications, int from, int to) {
+        for (int i = from; i < to; i++) {
+            String token = tokens.get(i);
+            verifications[i] = token != null
+                    ? jwtUtil.verify(token)
+                    : TokenVerification.rejected(TokenVerification.Status.MALFORMED);
+        }
+    }
+
+    private static TokenIntrospection result(String token, TokenVerification verification,
+                                             Map<String, UserAuthView> users) {
+        if (!verification.isValid()) {
+            return TokenIntrospection.inactive(verification.status().name());
+        }
+        UserAuthView user = users.get(verification.subject());
+        if (user == null) {
+            return TokenIntrospection.inactive("UNKNOWN_USER");
+        }
+        if (!user.isCurrentToken(token)) {
+            return TokenIntrospection.inactive("NOT_CURRENT");
+        }
+        return new TokenIntrospection(true, null, user.email(), verification.role(), verification.issuedAt());
+    }
+}
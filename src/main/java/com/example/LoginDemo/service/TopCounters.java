@@ -0,0 +1,130 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.model.UserDirectoryEntry;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The users with the highest positive counters, maintained incrementally from counter changes.
+ * <p>
+ * Holds up to {@code capacity} entries ordered by counter (highest first, ties by email). The
+ * invariant is that every user left out ranks below the last entry held, unless the board is
+ * known to hold every user with a positive counter. An increment therefore only needs the new
+ * value: a held user stays held, and an outsider enters once it ranks above the last entry,
+ * evicting the last one if the board is full. A held user whose counter drops to zero or below
+ * the last entry is let go, as outsiders might now outrank it; the board shrinks until it is
+ * {@link #reset refilled} from the store.
+ * <p>
+ * Writers synchronize on the board; each change publishes an immutable ranking that
+ * {@link #top} reads without locking.
+ */
+final class TopCounters {
+
+    static final Comparator<UserDirectoryEntry> RANKING =
+            Comparator.comparingInt(UserDirectoryEntry::counter).reversed().thenComparing(UserDirectoryEntry::email);
+
+    private final int capacity;
+    private final TreeSet<UserDirectoryEntry> ranked = new TreeSet<>(RANKING);
+    private final Map<String, UserDirectoryEntry> byEmail = new HashMap<>();
+    // Whether every user with a positive counter is held
+    private boolean complete = true;
+    private volatile UserDirectoryEntry[] ranking = new UserDirectoryEntry[0];
+
+    /**
+     * Creates an empty, complete board.
+     *
+     * @param capacity the maximum number of entries held
+     */
+    TopCounters(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Replaces the entries with the top of the store.
+     *
+     * @param top the users with the highest positive counters, highest first, read with a
+     *            limit of {@code capacity + 1} so a full board can be told from a complete one
+     */
+    synchronized void reset(List<UserDirectoryEntry> top) {
+        ranked.clear();
+        byEmail.clear();
+        for (UserDirectoryEntry entry : top.subList(0, Math.min(top.size(), capacity))) {
+            ranked.add(entry);
+            byEmail.put(entry.email(), entry);
+        }
+        complete = top.size() <= capacity;
+        publish();
+    }
+
+    /**
+     * Applies a user's new counter value.
+     *
+     * @param entry the user with the new value
+     * @return true if the ranking changed
+     */
+    synchronized boolean update(UserDirectoryEntry entry) {
+        UserDirectoryEntry previous = byEmail.remove(entry.email());
+        if (previous != null) {
+            ranked.remove(previous);
+        }
+        // A held user that ranks at least as high as before still outranks every outsider; one
+        // that dropped below the last entry is now an outsider itself
+        boolean admit = entry.counter() > 0 && (complete
+                || previous != null && RANKING.compare(entry, previous) <= 0
+                || !ranked.isEmpty() && RANKING.compare(entry, ranked.last()) < 0);
+        if (admit) {
+            ranked.add(entry);
+            byEmail.put(entry.email(), entry);
+            if (ranked.size() > capacity) {
+                byEmail.remove(ranked.pollLast().email());
+                complete = false;
+            }
+        }
+        if (admit || previous != null) {
+            publish();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the highest entries, in O(n) and without locking.
+     *
+     * @param n the number of entries wanted
+     * @return up to {@code n} entries, highest counter first
+     */
+    List<UserDirectoryEntry> top(int n) {
+        UserDirectoryEntry[] current = ranking;
+        return List.of(Arrays.copyOf(current, Math.min(n, current.length)));
+    }
+
+    /**
+     * Returns the number of entries held.
+     *
+     * @return the number of entries
+     */
+    int size() {
+        return ranking.length;
+    }
+
+    /**
+     * Tells whether the board holds every user with a positive counter.
+     *
+     * @return true if no user is left out
+     */
+    synchronized boolean isComplete() {
+        return complete;
+    }
+
+    private void publish() {
+        ranking = ranked.toArray(new UserDirectoryEntry[0]);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.dao.UserStore;
+import com.example.LoginDemo.event.InvalidationEvent;
+import com.example.LoginDemo.model.UserDirectoryEntry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Serves the admin user directory from a pre-serialized snapshot.
+ * The snapshot is rebuilt from the database only after a write to the users table has been
+ * committed, so repeated polls between changes never reach the database.
+ */
+@Service
+public class UserDirectoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDirectoryService.class);
+
+    @Autowired
+    private UserStore userDAO;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Incremented on every committed change; a rebuild is only published if no change raced it
+    private long invalidations;
+
+    private volatile Snapshot snapshot;
+    private volatile Instant lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    /**
+     * Pre-serialized directory of non-admin users.
+     * <p>
+     * The ETag is a digest of the body rather than the change version: the version sequence
+     * advances before the writing transaction commits, so a snapshot read in between could
+     * carry the next version with the old rows. The body is serialized in email order, so equal
+     * directories get equal ETags on every node and across restarts.
+     *
+     * @param version the users change version read before the rows, for logging only
+     * @param lastModified the time of the last observed change, truncated to seconds
+     * @param body the JSON body, keyed by email
+     * @param etag the quoted ETag value
+     */
+    public record Snapshot(long version, Instant lastModified, byte[] body, String etag) {
+
+        /**
+         * Creates a snapshot, deriving its ETag from the body.
+         *
+         * @param version the users change version read before the rows
+         * @param lastModified the time of the last observed change
+         * @param body the JSON body
+         * @return the snapshot
+         */
+        static Snapshot of(long version, Instant lastModified, byte[] body) {
+            byte[] digest = sha256(body);
+            return new Snapshot(version, lastModified, body,
+                    "\"users-" + HexFormat.of().formatHex(digest, 0, 16) + "\"");
+        }
+    }
+
+    /**
+     * Returns the current directory snapshot, rebuilding it only if the users table changed.
+     *
+     * @return the directory snapshot
+     */
+    public Snapshot getDirectory() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+
+        long seen;
+        synchronized (this) {
+            seen = invalidations;
+        }
+        long version = userDAO.currentChangeVersion();
+        List<UserDirectoryEntry> users = userDAO.findDirectoryEntries();
+        Snapshot rebuilt = Snapshot.of(version, lastModified, serialize(users));
+        logger.info("User directory rebuilt at version {} ({} bytes)", version, rebuilt.body().length);
+
+        synchronized (this) {
+            if (invalidations == seen) {
+                snapshot = rebuilt;
+            }
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Drops the snapshot once a write to the users table has been committed, locally or on
+     * another node.
+     *
+     * @param event the invalidation event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInvalidation(InvalidationEvent event) {
+        if (event.topic() != InvalidationEvent.Topic.USER && event.topic() != InvalidationEvent.Topic.ALL) {
+            return;
+        }
+        logger.debug("Users changed ({}, remote={}), invalidating directory", event.key(), event.remote());
+        synchronized (this) {
+            invalidations++;
+            lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+            snapshot = null;
+        }
+    }
+
+    private byte[] serialize(List<UserDirectoryEntry> users) {
+        Map<String, Map<String, Object>> userDetails = new TreeMap<>();
+        users.forEach(user -> {
+            if (!"ADMIN".equalsIgnoreCase(user.role())) {
+                Map<String, Object> details = new HashMap<>();
+                details.put("username", user.username());
+                details.put("role", user.role());
+                details.put("counter", user.counter());
+                userDetails.put(user.email(), details);
+            }
+        });
+        try {
+            return objectMapper.writeValueAsBytes(userDetails);
+        } catch (JsonProcessingException e) {
+            logger.error("Error serializing user directory: {}", e.getMessage());
+            throw new IllegalStateException("Error serializing user directory", e);
+        }
+    }
+
+    private static byte[] sha256(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.dao.UserStore;
+import com.example.LoginDemo.exception.UserBusyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the state transitions of a user (token rewrite, counter increment, logout) so
+ * concurrent read-modify-writes of the same users row cannot lose updates.
+ * <p>
+ * Within a node, callers queue on a striped lock keyed by email. The lock is held until the
+ * transaction has committed, so waiting requests do not hold pool connections. Across nodes,
+ * the transaction takes the user's Postgres advisory lock first.
+ */
+@Service
+public class UserLockManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserLockManager.class);
+
+    private final StripedLocks locks;
+    private final Duration waitTimeout;
+
+    @Autowired
+    private UserStore userDAO;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Creates the lock manager.
+     *
+     * @param stripes number of in-process locks
+     * @param waitTimeout how long a transition waits for the in-process lock
+     */
+    public UserLockManager(@Value("${app.locks.stripes:256}") int stripes,
+                           @Value("${app.locks.wait-timeout:5s}") Duration waitTimeout) {
+        this.locks = new StripedLocks(stripes);
+        this.waitTimeout = waitTimeout;
+    }
+
+    /**
+     * Runs a transition of a user in its own transaction, exclusively for that user across all nodes.
+     * Transitions of the same user may nest; the inner one joins the outer transaction.
+     *
+     * @param email the user's email
+     * @param transition the work, reading and writing the user's rows
+     * @param <T> the result type
+     * @return the transition's result
+     * @throws UserBusyException if the user stays locked longer than the wait timeout
+     */
+    public <T> T inUserTransaction(String email, Supplier<T> transition) {
+        ReentrantLock lock = locks.get(email);
+        try {
+            if (!lock.tryLock(waitTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("Timed out waiting for the lock of user: {}", email);
+                // Retrying after another wait timeout gives the queue ahead a chance to drain
+                throw new UserBusyException(email, waitTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the lock of user " + email, e);
+        }
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                userDAO.lockUser(email);
+                return transition.get();
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.dao.FuzzyPrefixIndex;
+import com.example.LoginDemo.dao.UserStore;
+import com.example.LoginDemo.event.InvalidationEvent;
+import com.example.LoginDemo.event.UserChangedEvent;
+import com.example.LoginDemo.model.User;
+import com.example.LoginDemo.model.UserDirectoryEntry;
+import com.example.LoginDemo.model.UserSearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches the user directory by email and username prefix, tolerating typos.
+ * <p>
+ * By default searches run against the store (trigram and prefix indexes in Postgres). With
+ * {@code app.search.in-memory-index=true} they are served from a {@link FuzzyPrefixIndex} warmed
+ * from the store at startup and kept current by local {@link UserChangedEvent}s, which carry the
+ * changed fields, and by the USER invalidations of other nodes, which cost one read of that user.
+ * While it warms, searches still go to the store.
+ * <p>
+ * Both put prefix matches first, then the closest fuzzy matches, but they measure closeness
+ * differently: Postgres ranks by trigram word similarity, the index by edit distance. Fuzzy
+ * matches can therefore come in a different order, and a typo one finds the other may miss.
+ */
+@Service
+public class UserSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchService.class);
+
+    @Autowired
+    private UserStore userDAO;
+
+    @Value("${app.search.in-memory-index:false}")
+    private boolean inMemoryIndex;
+
+    /**
+     * One page of search results.
+     *
+     * @param hits the hits on this page, best first
+     * @param hasMore whether there are hits after this page
+     */
+    public record Page(List<UserSearchHit> hits, boolean hasMore) {
+    }
+
+    private final FuzzyPrefixIndex index = new FuzzyPrefixIndex();
+    private final Map<String, UserDirectoryEntry> entries = new ConcurrentHashMap<>();
+
+    // Serializes rebuilds of the index
+    private final Object rebuildLock = new Object();
+    // Guards ready and pendingEmails: changes seen during a rebuild are applied after it
+    private final Object stateLock = new Object();
+    private volatile boolean ready;
+    private final Set<String> pendingEmails = new HashSet<>();
+
+    /**
+     * Searches the non-admin users.
+     *
+     * @param query the query; matched case-insensitively, at most
+     *              {@value FuzzyPrefixIndex#MAX_QUERY_LENGTH} characters are used
+     * @param limit the maximum number of hits on the page
+     * @param offset the number of best hits to skip
+     * @return the page of hits
+     */
+    @Transactional(readOnly = true)
+    public Page search(String query, int limit, int offset) {
+        String normalized = query.strip().toLowerCase(Locale.ROOT);
+        if (normalized.length() > FuzzyPrefixIndex.MAX_QUERY_LENGTH) {
+            normalized = normalized.substring(0, FuzzyPrefixIndex.MAX_QUERY_LENGTH);
+        }
+        long start = System.nanoTime();
+        boolean fromIndex = ready;
+        // One more than asked for tells whether another page follows
+        List<UserSearchHit> hits = fromIndex
+                ? searchIndex(normalized, limit + 1, offset)
+                : userDAO.searchDirectory(normalized, limit + 1, offset);
+        logger.debug("Searched users for '{}' in {} us ({}), {} hit(s)", normalized,
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), fromIndex ? "index" : "store", hits.size());
+        boolean hasMore = hits.size() > limit;
+        return new Page(hasMore ? hits.subList(0, limit) : hits, hasMore);
+    }
+
+    /**
+     * Warms the in-memory index once the application is ready, if enabled.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (inMemoryIndex) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Keeps the in-memory index current with committed local user changes, without reading
+     * them back.
+     *
+     * @param event the user change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!inMemoryIndex) {
+            return;
+        }
+        synchronized (stateLock) {
+            if (!ready) {
+                pendingEmails.add(event.email());
+                return;
+            }
+        }
+        put(new UserDirectoryEntry(event.email(), event.username(), event.role(), event.counter()));
+    }
+
+    /**
+     * Keeps the in-memory index current with committed user changes made on other nodes, and
+     * rebuilds it when notifications were missed. Local USER invalidations are covered by
+     * {@link #onUserChanged}.
+     *
+     * @param event the invalidation event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInvalidation(InvalidationEvent event) {
+        if (!inMemoryIndex) {
+            return;
+        }
+        if (event.topic() == InvalidationEvent.Topic.ALL) {
+            rebuild();
+            return;
+        }
+        if (event.topic() != InvalidationEvent.Topic.USER || !event.remote()) {
+            return;
+        }
+        synchronized (stateLock) {
+            if (!ready) {
+                pendingEmails.add(event.key());
+                return;
+            }
+        }
+        refresh(event.key());
+    }
+
+    /**
+     * Collects hits in rank order. Each pass allows one more edit and only takes the matches at
+     * exactly that distance, which arrive in term order; earlier passes found the closer ones.
+     * A pass ends as soon as the page is full, so broad queries do not walk all their matches.
+     */
+    private List<UserSearchHit> searchIndex(String query, int limit, int offset) {
+        int wanted = offset + limit;
+        Map<String, Integer> distances = new LinkedHashMap<>();
+        for (int edits = 0; edits <= FuzzyPrefixIndex.maxEdits(query.length()) && distances.size() < wanted; edits++) {
+            int pass = edits;
+            index.search(query, pass, (email, distance) -> {
+                if (distance == pass) {
+                    distances.putIfAbsent(email, distance);
+                }
+                return distances.size() < wanted;
+            });
+        }
+
+        List<UserSearchHit> hits = new ArrayList<>(limit);
+        int skipped = 0;
+        for (Map.Entry<String, Integer> match : distances.entrySet()) {
+            UserDirectoryEntry entry = entries.get(match.getKey());
+            if (entry == null) {
+                continue;
+            }
+            if (skipped++ < offset) {
+                continue;
+            }
+            hits.add(new UserSearchHit(entry.email(), entry.username(), entry.role(), entry.counter(),
+                    FuzzyPrefixIndex.score(query.length(), match.getValue())));
+            if (hits.size() == limit) {
+                break;
+            }
+        }
+        return hits;
+    }
+
+    private void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (stateLock) {
+                ready = false;
+                pendingEmails.clear();
+            }
+            long start = System.nanoTime();
+            index.clear();
+            entries.clear();
+            for (UserDirectoryEntry entry : userDAO.findDirectoryEntries()) {
+                put(entry);
+            }
+            Set<String> changed;
+            synchronized (stateLock) {
+                ready = true;
+                changed = new HashSet<>(pendingEmails);
+                pendingEmails.clear();
+            }
+            changed.forEach(this::refresh);
+            logger.info("User search index built with {} user(s) in {} ms", entries.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private void refresh(String email) {
+        Optional<User> user = userDAO.findByEmail(email);
+        if (user.isPresent()) {
+            User u = user.get();
+            put(new UserDirectoryEntry(u.getEmail(), u.getUsername(), u.getRole(),
+                    u.getCounter() != null ? u.getCounter() : 0));
+        } else {
+            remove(email);
+        }
+    }
+
+    private synchronized void put(UserDirectoryEntry entry) {
+        if ("ADMIN".equalsIgnoreCase(entry.role())) {
+            remove(entry.email());
+            return;
+        }
+        UserDirectoryEntry previous = entries.put(entry.email(), entry);
+        if (previous != null) {
+            // Counter and token changes leave the terms as they are
+            if (Objects.equals(previous.username(), entry.username())) {
+                return;
+            }
+            removeTerms(previous);
+        }
+        index.add(entry.email().toLowerCase(Locale.ROOT), entry.email());
+        if (entry.username() != null) {
+            index.add(entry.username().toLowerCase(Locale.ROOT), entry.email());
+        }
+    }
+
+    private synchronized void remove(String email) {
+        UserDirectoryEntry previous = entries.remove(email);
+        if (previous != null) {
+            removeTerms(previous);
+        }
+    }
+
+    private void removeTerms(UserDirectoryEntry entry) {
+        index.remove(entry.email().toLowerCase(Locale.ROOT), entry.email());
+        if (entry.username() != null) {
+            index.remove(entry.username().toLowerCase(Locale.ROOT), entry.email());
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package com.example.LoginDemo.tools;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Command-line analyzer for the application logs: {@code logs/app.log} and its gzip-rolled
+ * predecessors such as {@code app.log.2025-02-04.0.gz}.
+ * <p>
+ * Gzipped files are decompressed as a stream and plain files are read through memory-mapped
+ * windows, so nothing is written to disk and memory stays constant regardless of log size.
+ * Files are analyzed in parallel and merged. The JSON report contains per-logger and
+ * per-endpoint rates, error breakdowns (levels per logger, exception types, HTTP statuses) and
+ * the login/redeem/validate/logout funnel per time bucket.
+ * <p>
+ * Run from the packaged jar:
+ * <pre>
+ * java -cp target/LoginDemo-0.0.1-SNAPSHOT.jar -Dloader.main=com.example.LoginDemo.tools.LogAnalyzer \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher [options] logs/
+ * </pre>
+ * Options: {@code --bucket minute|hour|day}, {@code --pattern <logback pattern>},
+ * {@code --config <application.properties>}, {@code --threads <n>}, {@code --out <file>}.
+ */
+public final class LogAnalyzer {
+
+    /**
+     * The file/console pattern configured in application.properties. The file appender falls
+     * back to Spring Boot's default layout unless logging.pattern.file is set, so both are tried.
+     */
+    static final String CONFIGURED_PATTERN = "%d{yyyy-MM-dd HH:mm:ss} [%t] [%X{correlationId:-}] %-5level %logger{36} - %msg%n";
+
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+
+    /**
+     * Longest line kept, in bytes. Longer lines (a runaway message, a binary file picked up by
+     * mistake) are cut here and the rest of the line is skipped, so one line cannot exhaust the heap.
+     */
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private LogAnalyzer() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int bucketLength = 13;
+        String bucketName = "hour";
+        List<String> patterns = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path out = null;
+        List<Path> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--bucket" -> {
+                    bucketName = args[++i];
+                    bucketLength = switch (bucketName) {
+                        case "minute" -> 16;
+                        case "hour" -> 13;
+                        case "day" -> 10;
+                        default -> throw new IllegalArgumentException("Unknown bucket: " + bucketName);
+                    };
+                }
+                case "--pattern" -> patterns.add(args[++i]);
+                case "--config" -> patterns.addAll(configuredPatterns(Path.of(args[++i])));
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--out" -> out = Path.of(args[++i]);
+                case "-h", "--help" -> {
+                    usage();
+                    return;
+                }
+                default -> inputs.add(Path.of(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            inputs.add(Path.of("logs"));
+        }
+
+        List<LogFormat> formats = new ArrayList<>();
+        patterns.forEach(pattern -> formats.add(LogFormat.fromLogbackPattern(pattern)));
+        formats.add(LogFormat.springBootDefault());
+        formats.add(LogFormat.fromLogbackPattern(CONFIGURED_PATTERN));
+
+        List<Path> files = logFiles(inputs);
+        if (files.isEmpty()) {
+            System.err.println("No log files found in " + inputs);
+            System.exit(1);
+        }
+
+        LogStats total = analyze(files, formats, bucketLength, Math.max(1, Math.min(threads, files.size())));
+        String report = toJson(total, files.size(), bucketName);
+        if (out != null) {
+            Files.writeString(out, report);
+            System.err.println("Report written to " + out);
+        } else {
+            System.out.println(report);
+        }
+    }
+
+    /**
+     * Analyzes the files in parallel, one task per file, and merges the results.
+     *
+     * @param files the log files
+     * @param formats the layouts to try, in order
+     * @param bucketLength the time bucket length
+     * @param threads the number of worker threads
+     * @return the merged stats
+     */
+    static LogStats analyze(List<Path> files, List<LogFormat> formats, int bucketLength, int threads)
+            throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<LogStats>> results = new ArrayList<>();
+            for (Path file : files) {
+                results.add(executor.submit(() -> analyzeFile(file, formats, bucketLength)));
+            }
+            LogStats total = new LogStats(bucketLength);
+            for (Future<LogStats> result : results) {
+                total.merge(result.get());
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Analyzes a single file.
+     *
+     * @param file the file, gzipped or plain
+     * @param formats the layouts to try, in order
+     * @param bucketLength the time bucket length
+     * @return the stats of the file
+     */
+    static LogStats analyzeFile(Path file, List<LogFormat> formats, int bucketLength) throws IOException {
+        long start = System.nanoTime();
+        LogStats stats = new LogStats(bucketLength);
+        LogFormat[] order = formats.toArray(new LogFormat[0]);
+        LineSplitter lines = new LineSplitter(line -> stats.add(line, parse(line, order)));
+        if (file.getFileName().toString().endsWith(".gz")) {
+            readGzip(file, lines);
+        } else {
+            readMapped(file, MAP_WINDOW, lines);
+        }
+        System.err.printf("%s: %d lines (%d cut at %d bytes) in %d ms%n", file, stats.lines, lines.cut,
+                MAX_LINE_LENGTH, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return stats;
+    }
+
+    /**
+     * Parses a line with the first matching layout and moves that layout to the front, so a file
+     * written in one layout costs one match per line.
+     */
+    private static LogFormat.Entry parse(String line, LogFormat[] order) {
+        for (int i = 0; i < order.length; i++) {
+            LogFormat.Entry entry = order[i].parse(line);
+            if (entry != null) {
+                if (i > 0) {
+                    LogFormat matched = order[i];
+                    System.arraycopy(order, 0, order, 1, i);
+                    order[0] = matched;
+                }
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static void readGzip(Path file, LineSplitter lines) throws IOException {
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16), 1 << 16)) {
+            byte[] chunk = new byte[1 << 16];
+            int read;
+            while ((read = in.read(chunk)) >= 0) {
+                for (int i = 0; i < read; i++) {
+                    lines.accept(chunk[i]);
+                }
+            }
+        }
+        lines.finish();
+    }
+
+    /**
+     * Reads a plain file through memory-mapped windows. The size is taken when the file is
+     * opened, so a live log that keeps growing is read up to that point. Lines may cross from
+     * one window into the next.
+     */
+    static void readMapped(Path file, long mapWindow, LineSplitter lines) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += mapWindow) {
+                int window = (int) Math.min(mapWindow, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+                for (int i = 0; i < window; i++) {
+                    lines.accept(buffer.get(i));
+                }
+            }
+        }
+        lines.finish();
+    }
+
+    /**
+     * Splits bytes into UTF-8 lines, dropping a trailing CR and cutting lines at
+     * {@link #MAX_LINE_LENGTH}. The buffer grows with the longest line kept.
+     */
+    static final class LineSplitter {
+        private final Consumer<String> handler;
+        private byte[] line = new byte[1024];
+        private int length;
+        private boolean overLong;
+        long cut;
+
+        LineSplitter(Consumer<String> handler) {
+            this.handler = handler;
+        }
+
+        void accept(byte b) {
+            if (b == '\n') {
+                emit();
+            } else if (length < MAX_LINE_LENGTH) {
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_LINE_LENGTH));
+                }
+                line[length++] = b;
+            } else {
+                overLong = true;
+            }
+        }
+
+        void finish() {
+            if (length > 0 || overLong) {
+                emit();
+            }
+        }
+
+        private void emit() {
+            int end = length;
+            if (overLong) {
+                cut++;
+            } else if (end > 0 && line[end - 1] == '\r') {
+                end--;
+            }
+            handler.accept(new String(line, 0, end, StandardCharsets.UTF_8));
+            length = 0;
+            overLong = false;
+        }
+    }
+
+    private static List<Path> logFiles(List<Path> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> entries = Files.list(input)) {
+                    entries.filter(Files::isRegularFile)
+                            .filter(path -> path.getFileName().toString().contains(".log"))
+                            .sorted()
+                            .forEach(files::add);
+                }
+            } else if (Files.isRegularFile(input)) {
+                files.add(input);
+            }
+        }
+        // Largest first, so the longest task does not start last
+        files.sort(Comparator.comparingLong(LogAnalyzer::sizeOf).reversed());
+        return files;
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the logging patterns from an application.properties file, including the misspelled
+     * logging.patter.file key some of our configs carry.
+     */
+    private static List<String> configuredPatterns(Path properties) throws IOException {
+        Properties config = new Properties();
+        try (InputStream in = Files.newInputStream(properties)) {
+            config.load(in);
+        }
+        List<String> patterns = new ArrayList<>();
+        for (String key : List.of("logging.pattern.file", "logging.patter.file", "logging.pattern.console")) {
+            String pattern = config.getProperty(key);
+            if (pattern != null && !pattern.isBlank() && !patterns.contains(pattern.trim())) {
+                patterns.add(pattern.trim());
+            }
+        }
+        return patterns;
+    }
+
+    private static void usage() {
+        PrintStream err = System.err;
+        err.println("Usage: LogAnalyzer [--bucket minute|hour|day] [--pattern <logback pattern>]");
+        err.println("                   [--config <application.properties>] [--threads <n>] [--out <file>]");
+        err.println("                   [<file or directory>...]   (default: logs)");
+    }
+
+    private static String toJson(LogStats stats, int fileCount, String bucketName) {
+        double minutes = spanMinutes(stats.firstTimestamp, stats.lastTimestamp);
+        StringBuilder json = new StringBuilder(8192);
+        json.append("{\n");
+        json.append("  \"files\": ").append(fileCount).append(",\n");
+        json.append("  \"lines\": ").append(stats.lines).append(",\n");
+        json.append("  \"entries\": ").append(stats.entries).append(",\n");
+        json.append("  \"unparsedLines\": ").append(stats.unparsed).append(",\n");
+        json.append("  \"from\": ").append(quote(stats.firstTimestamp)).append(",\n");
+        json.append("  \"to\": ").append(quote(stats.lastTimestamp)).append(",\n");
+        json.append("  \"spanMinutes\": ").append(round(minutes)).append(",\n");
+        json.append("  \"bucket\": ").append(quote(bucketName)).append(",\n");
+
+        json.append("  \"loggers\": [");
+        List<Map.Entry<String, long[]>> loggers = new ArrayList<>(stats.loggers.entrySet());
+        loggers.sort(Comparator.comparingLong((Map.Entry<String, long[]> e) -> sum(e.getValue())).reversed());
+        String separator = "\n";
+        for (Map.Entry<String, long[]> logger : loggers) {
+            long count = sum(logger.getValue());
+            json.append(separator).append("    {\"logger\": ").append(quote(logger.getKey()))
+                    .append(", \"count\": ").append(count)
+                    .append(", \"perMinute\": ").append(round(count / minutes))
+                    .append(", \"levels\": ").append(levels(logger.getValue())).append('}');
+            separator = ",\n";
+        }
+        json.append("\n  ],\n");
+
+        json.append("  \"endpoints\": [");
+        List<Map.Entry<String, LogStats.EndpointStats>> endpoints = new ArrayList<>(stats.endpoints.entrySet());
+        endpoints.sort(Comparator.comparingLong((Map.Entry<String, LogStats.EndpointStats> e) -> e.getValue().requests).reversed());
+        separator = "\n";
+        for (Map.Entry<String, LogStats.EndpointStats> endpoint : endpoints) {
+            LogStats.EndpointStats value = endpoint.getValue();
+            long failed = value.statuses.entrySet().stream()
+                    .filter(status -> status.getKey() >= 400).mapToLong(Map.Entry::getValue).sum();
+            long completed = value.statuses.values().stream().mapToLong(Long::longValue).sum();
+            json.append(separator).append("    {\"endpoint\": ").append(quote(endpoint.getKey()))
+                    .append(", \"requests\": ").append(value.requests)
+                    .append(", \"perMinute\": ").append(round(value.requests / minutes))
+                    .append(", \"errorRate\": ").append(completed > 0 ? round((double) failed / completed) : 0)
+                    .append(", \"statuses\": ").append(counts(value.statuses))
+                    .append(", \"byBucket\": ").append(counts(value.requestsByBucket)).append('}');
+            separator = ",\n";
+        }
+        json.append("\n  ],\n");
+
+        json.append("  \"errors\": {\n    \"byLogger\": [");
+        separator = "\n";
+        for (Map.Entry<String, long[]> logger : loggers) {
+            long warn = logger.getValue()[3];
+            long error = logger.getValue()[4];
+            if (warn + error > 0) {
+                json.append(separator).append("      {\"logger\": ").append(quote(logger.getKey()))
+                        .append(", \"WARN\": ").append(warn).append(", \"ERROR\": ").append(error).append('}');
+                separator = ",\n";
+            }
+        }
+        json.append("\n    ],\n    \"byException\": ");
+        List<Map.Entry<String, Long>> exceptions = new ArrayList<>(stats.exceptions.entrySet());
+        exceptions.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        json.append(counts(exceptions));
+        json.append(",\n    \"byStatus\": ");
+        Map<Integer, Long> statuses = new TreeMap<>();
+        stats.endpoints.values().forEach(endpoint -> endpoint.statuses.forEach((status, count) -> {
+            if (status >= 400) {
+                statuses.merge(status, count, Long::sum);
+            }
+        }));
+        json.append(counts(statuses)).append("\n  },\n");
+
+        json.append("  \"funnel\": [");
+        separator = "\n";
+        for (Map.Entry<String, long[]> bucket : stats.funnel.entrySet()) {
+            json.append(separator).append("    {\"bucket\": ").append(quote(bucket.getKey()));
+            for (int i = 0; i < LogStats.FUNNEL_STAGES.length; i++) {
+                json.append(", ").append(quote(LogStats.FUNNEL_STAGES[i])).append(": ").append(bucket.getValue()[i]);
+            }
+            json.append('}');
+            separator = ",\n";
+        }
+        json.append("\n  ]\n}");
+        return json.toString();
+    }
+
+    private static double spanMinutes(String from, String to) {
+        Temporal start = parseTimestamp(from);
+        Temporal end = parseTimestamp(to);
+        if (start == null || end == null) {
+            return 1;
+        }
+        return Math.max(1, Duration.between(start, end).toMillis() / 60000.0);
+    }
+
+    private static Temporal parseTimestamp(String timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+        String iso = timestamp.replace(',', '.');
+        try {
+            return OffsetDateTime.parse(iso);
+        } catch (RuntimeException e) {
+            try {
+                return LocalDateTime.parse(iso);
+            } catch (RuntimeException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static String levels(long[] counts) {
+        StringBuilder json = new StringBuilder("{");
+        String separator = "";
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                json.append(separator).append(quote(LogStats.LEVELS[i])).append(": ").append(counts[i]);
+                separator = ", ";
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    private static String counts(Map<?, Long> counts) {
+        return counts(new ArrayList<>(counts.entrySet()));
+    }
+
+    private static String counts(List<? extends Map.Entry<?, Long>> counts) {
+        StringBuilder json = new StringBuilder("{");
+        String separator = "";
+        for (Map.Entry<?, Long> count : counts) {
+            json.append(separator).append(quote(String.valueOf(count.getKey()))).append(": ").append(count.getValue());
+            separator = ", ";
+        }
+        return json.append('}').toString();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
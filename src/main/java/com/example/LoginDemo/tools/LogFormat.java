@@ -0,0 +1,175 @@
+package com.example.LoginDemo.tools;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the first line of a log entry in one of the layouts the service writes.
+ * <p>
+ * Two layouts are supported: Spring Boot's default file layout
+ * ({@code 2025-02-05T11:17:15.941+05:30  INFO 2090 --- [LoginDemo] [main] c.e.L.Foo : msg}) and
+ * layouts given as a logback pattern, such as the configured
+ * {@code %d{yyyy-MM-dd HH:mm:ss} [%t] [%X{correlationId:-}] %-5level %logger{36} - %msg%n}.
+ * Lines that match neither are continuation lines (stack traces, multi-line messages).
+ */
+final class LogFormat {
+
+    /**
+     * The parsed first line of a log entry.
+     *
+     * @param timestamp the timestamp as written
+     * @param level the level, upper case
+     * @param thread the thread name, or null if the layout has none
+     * @param logger the logger name as written (possibly abbreviated)
+     * @param message the message
+     */
+    record Entry(String timestamp, String level, String thread, String logger, String message) {
+    }
+
+    private static final Pattern SPRING_BOOT_DEFAULT = Pattern.compile(
+            "^(?<ts>\\d{4}-\\d{2}-\\d{2}T\\S+) +(?<level>[A-Z]+) +\\d+ +--- +(?:\\[[^\\]]*\\] +)?" +
+                    "\\[(?<thread>[^\\]]*)\\] +(?:\\[[^\\]]*\\] +)?(?<logger>\\S+) +: (?<msg>.*)$");
+
+    private static final Pattern CONVERSION = Pattern.compile(
+            "%(-?\\d+)?(?:\\.(-?\\d+))?([a-zA-Z]+)(?:\\{([^}]*)\\})?");
+
+    private final String name;
+    private final Pattern pattern;
+    private final boolean hasThread;
+
+    private LogFormat(String name, Pattern pattern, boolean hasThread) {
+        this.name = name;
+        this.pattern = pattern;
+        this.hasThread = hasThread;
+    }
+
+    /**
+     * Returns the layout Spring Boot writes to the log file when no file pattern is configured.
+     *
+     * @return the format
+     */
+    static LogFormat springBootDefault() {
+        return new LogFormat("spring-boot-default", SPRING_BOOT_DEFAULT, true);
+    }
+
+    /**
+     * Compiles a logback layout pattern. Supports the date, level, thread, logger, message and
+     * newline conversions; other conversions (MDC, application name, ...) match any text.
+     *
+     * @param logbackPattern the pattern, e.g. the value of logging.pattern.file
+     * @return the format
+     * @throws IllegalArgumentException if the pattern has no timestamp, level or message
+     */
+    static LogFormat fromLogbackPattern(String logbackPattern) {
+        StringBuilder regex = new StringBuilder("^");
+        boolean hasThread = false;
+        Matcher conversion = CONVERSION.matcher(logbackPattern);
+        int last = 0;
+        while (conversion.find()) {
+            appendLiteral(regex, logbackPattern.substring(last, conversion.start()));
+            last = conversion.end();
+            boolean leftPadded = conversion.group(1) != null && !conversion.group(1).startsWith("-");
+            switch (conversion.group(3)) {
+                case "d", "date" -> regex.append("(?<ts>").append(dateRegex(conversion.group(4))).append(')');
+                case "p", "le", "level" -> regex.append(leftPadded ? " *" : "").append("(?<level>[A-Z]+) *");
+                case "t", "thread" -> {
+                    regex.append("(?<thread>.*?)");
+                    hasThread = true;
+                }
+                case "c", "lo", "logger" -> regex.append(leftPadded ? " *" : "").append("(?<logger>\\S+) *");
+                case "m", "msg", "message" -> regex.append("(?<msg>.*)");
+                case "n", "ex", "wEx", "xEx", "throwable", "nopex" -> {
+                    // Line end and exception conversions never appear on the first line
+                }
+                default -> regex.append(".*?");
+            }
+        }
+        appendLiteral(regex, logbackPattern.substring(last));
+        regex.append('$');
+
+        String compiled = regex.toString();
+        if (!compiled.contains("(?<ts>") || !compiled.contains("(?<level>") || !compiled.contains("(?<msg>")) {
+            throw new IllegalArgumentException("Log pattern needs %d, %level and %msg: " + logbackPattern);
+        }
+        if (!compiled.contains("(?<logger>")) {
+            compiled = "^(?<logger>)" + compiled.substring(1);
+        }
+        return new LogFormat(logbackPattern, Pattern.compile(compiled), hasThread);
+    }
+
+    /**
+     * Parses a line.
+     *
+     * @param line the line
+     * @return the entry, or null if the line is not the first line of an entry in this layout
+     */
+    Entry parse(String line) {
+        if (line.isEmpty() || !Character.isDigit(line.charAt(0))) {
+            return null;
+        }
+        Matcher matcher = pattern.matcher(line);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new Entry(matcher.group("ts"), matcher.group("level"),
+                hasThread ? matcher.group("thread") : null, matcher.group("logger"), matcher.group("msg"));
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Appends literal layout text; a run of spaces matches one or more spaces, as padding of the
+     * neighbouring conversion may widen it.
+     */
+    private static void appendLiteral(StringBuilder regex, String literal) {
+        int i = 0;
+        while (i < literal.length()) {
+            if (literal.charAt(i) == ' ') {
+                while (i < literal.length() && literal.charAt(i) == ' ') {
+                    i++;
+                }
+                regex.append(" +");
+            } else {
+                int end = literal.indexOf(' ', i);
+                end = end < 0 ? literal.length() : end;
+                regex.append(Pattern.quote(literal.substring(i, end)));
+                i = end;
+            }
+        }
+    }
+
+    /**
+     * Turns a SimpleDateFormat-style pattern into a regex for the text it produces.
+     */
+    private static String dateRegex(String datePattern) {
+        if (datePattern == null || datePattern.isEmpty() || "ISO8601".equals(datePattern)) {
+            return "\\d{4}-\\d{2}-\\d{2}[ T]\\d{2}:\\d{2}:\\d{2}(?:[.,]\\d+)?";
+        }
+        String format = datePattern.split(",")[0];
+        StringBuilder regex = new StringBuilder();
+        int i = 0;
+        while (i < format.length()) {
+            char c = format.charAt(i);
+            if (c == '\'') {
+                int end = format.indexOf('\'', i + 1);
+                end = end < 0 ? format.length() : end;
+                regex.append(Pattern.quote(format.substring(i + 1, end)));
+                i = end + 1;
+            } else if (Character.isLetter(c)) {
+                int end = i;
+                while (end < format.length() && format.charAt(end) == c) {
+                    end++;
+                }
+                regex.append(c == 'X' || c == 'Z' || c == 'x' ? "(?:Z|[+-]\\d{2}(?::?\\d{2})?)" : "\\w+");
+                i = end;
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+                i++;
+            }
+        }
+        return regex.toString();
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.LoginDemo.tools;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Aggregates of one or more log files. Memory is bounded by the number of distinct loggers,
+ * endpoints, exception types and time buckets, never by the number of lines, so a stats
+ * object per file can be filled in parallel and merged afterwards.
+ */
+final class LogStats {
+
+    static final String[] LEVELS = {"TRACE", "DEBUG", "INFO", "WARN", "ERROR"};
+    static final String[] FUNNEL_STAGES = {"login", "magicLinkSent", "redeem", "redeemed", "validate", "validated",
+            "logout", "serverErrors"};
+
+    private static final int LOGIN = 0;
+    private static final int MAGIC_LINK_SENT = 1;
+    private static final int REDEEM = 2;
+    private static final int REDEEMED = 3;
+    private static final int VALIDATE = 4;
+    private static final int VALIDATED = 5;
+    private static final int LOGOUT = 6;
+    private static final int SERVER_ERRORS = 7;
+
+    private static final Pattern REQUEST = Pattern.compile("^(GET|POST|PUT|DELETE|PATCH|HEAD|OPTIONS) \"([^\"?]*)");
+    private static final Pattern COMPLETED = Pattern.compile("^Completed (\\d{3})");
+    private static final Pattern EXCEPTION = Pattern.compile(
+            "^\\s*(?:Caused by: )?((?:[a-zA-Z_$][\\w$]*\\.)+[\\w$]*(?:Exception|Error))(?::.*)?$");
+    private static final Pattern ID_SEGMENT = Pattern.compile("/(?:\\d+|[0-9a-fA-F-]{16,})(?=/|$)");
+
+    /**
+     * Counters of one endpoint.
+     */
+    static final class EndpointStats {
+        long requests;
+        final Map<Integer, Long> statuses = new TreeMap<>();
+        final Map<String, Long> requestsByBucket = new TreeMap<>();
+
+        void merge(EndpointStats other) {
+            requests += other.requests;
+            other.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+            other.requestsByBucket.forEach((bucket, count) -> requestsByBucket.merge(bucket, count, Long::sum));
+        }
+    }
+
+    private final int bucketLength;
+
+    long lines;
+    long entries;
+    long unparsed;
+    String firstTimestamp;
+    String lastTimestamp;
+    final Map<String, long[]> loggers = new HashMap<>();
+    final Map<String, EndpointStats> endpoints = new HashMap<>();
+    final Map<String, Long> exceptions = new HashMap<>();
+    final Map<String, long[]> funnel = new TreeMap<>();
+
+    // Request in flight per thread, so "Completed <status>" can be attributed; per file only
+    private final Map<String, String> pendingByThread = new HashMap<>();
+    private boolean inEntry;
+
+    /**
+     * Creates empty stats.
+     *
+     * @param bucketLength number of leading timestamp characters forming the time bucket
+     *                     (10 = day, 13 = hour, 16 = minute)
+     */
+    LogStats(int bucketLength) {
+        this.bucketLength = bucketLength;
+    }
+
+    /**
+     * Adds one line.
+     *
+     * @param line the line
+     * @param entry the parsed entry, or null for a continuation line
+     */
+    void add(String line, LogFormat.Entry entry) {
+        lines++;
+        if (entry == null) {
+            addContinuation(line);
+            return;
+        }
+        entries++;
+        inEntry = true;
+
+        String timestamp = normalize(entry.timestamp());
+        if (firstTimestamp == null || timestamp.compareTo(firstTimestamp) < 0) {
+            firstTimestamp = timestamp;
+        }
+        if (lastTimestamp == null || timestamp.compareTo(lastTimestamp) > 0) {
+            lastTimestamp = timestamp;
+        }
+        String bucket = timestamp.substring(0, Math.min(bucketLength, timestamp.length()));
+
+        long[] levels = loggers.computeIfAbsent(entry.logger(), logger -> new long[LEVELS.length]);
+        int level = levelIndex(entry.level());
+        if (level >= 0) {
+            levels[level]++;
+        }
+
+        String logger = entry.logger();
+        String message = entry.message();
+        if (logger.endsWith("DispatcherServlet")) {
+            addDispatcherLine(bucket, entry.thread(), message);
+        } else if (logger.endsWith("AuthController") && message.startsWith("Magic-link code redeemed")) {
+            funnel(bucket)[REDEEMED]++;
+        } else if (logger.endsWith("AuthController") && message.startsWith("Token validation successful")) {
+            funnel(bucket)[VALIDATED]++;
+        } else if (logger.endsWith("EmailService") && message.startsWith("Magic link sent")) {
+            funnel(bucket)[MAGIC_LINK_SENT]++;
+        }
+    }
+
+    /**
+     * Adds the counters of another stats object.
+     *
+     * @param other the stats to merge in
+     */
+    void merge(LogStats other) {
+        lines += other.lines;
+        entries += other.entries;
+        unparsed += other.unparsed;
+        if (other.firstTimestamp != null && (firstTimestamp == null || other.firstTimestamp.compareTo(firstTimestamp) < 0)) {
+            firstTimestamp = other.firstTimestamp;
+        }
+        if (other.lastTimestamp != null && (lastTimestamp == null || other.lastTimestamp.compareTo(lastTimestamp) > 0)) {
+            lastTimestamp = other.lastTimestamp;
+        }
+        other.loggers.forEach((logger, counts) -> {
+            long[] mine = loggers.computeIfAbsent(logger, l -> new long[LEVELS.length]);
+            for (int i = 0; i < counts.length; i++) {
+                mine[i] += counts[i];
+            }
+        });
+        other.endpoints.forEach((endpoint, stats) ->
+                endpoints.computeIfAbsent(endpoint, e -> new EndpointStats()).merge(stats));
+        other.exceptions.forEach((type, count) -> exceptions.merge(type, count, Long::sum));
+        other.funnel.forEach((bucket, counts) -> {
+            long[] mine = funnel(bucket);
+            for (int i = 0; i < counts.length; i++) {
+                mine[i] += counts[i];
+            }
+        });
+    }
+
+    private void addContinuation(String line) {
+        if (!inEntry) {
+            unparsed++;
+            return;
+        }
+        Matcher exception = EXCEPTION.matcher(line);
+        if (exception.matches()) {
+            exceptions.merge(exception.group(1), 1L, Long::sum);
+        }
+    }
+
+    private void addDispatcherLine(String bucket, String thread, String message) {
+        Matcher request = REQUEST.matcher(message);
+        if (request.find()) {
+            String endpoint = request.group(1) + " " + ID_SEGMENT.matcher(request.group(2)).replaceAll("/{id}");
+            EndpointStats stats = endpoints.computeIfAbsent(endpoint, e -> new EndpointStats());
+            stats.requests++;
+            stats.requestsByBucket.merge(bucket, 1L, Long::sum);
+            if (thread != null) {
+                pendingByThread.put(thread, endpoint);
+            }
+            switch (endpoint) {
+                case "POST /v1/auth/login" -> funnel(bucket)[LOGIN]++;
+                case "POST /v1/auth/redeem" -> funnel(bucket)[REDEEM]++;
+                case "GET /v1/auth/validate" -> funnel(bucket)[VALIDATE]++;
+                case "POST /v1/auth/logout" -> funnel(bucket)[LOGOUT]++;
+                default -> {
+                }
+            }
+            return;
+        }
+        Matcher completed = COMPLETED.matcher(message);
+        if (completed.find() && thread != null) {
+            String endpoint = pendingByThread.remove(thread);
+            int status = Integer.parseInt(completed.group(1));
+            if (endpoint != null) {
+                endpoints.get(endpoint).statuses.merge(status, 1L, Long::sum);
+            }
+            if (status >= 500) {
+                funnel(bucket)[SERVER_ERRORS]++;
+            }
+        }
+    }
+
+    private long[] funnel(String bucket) {
+        return funnel.computeIfAbsent(bucket, b -> new long[FUNNEL_STAGES.length]);
+    }
+
+    private static int levelIndex(String level) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].equals(level)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Brings both layouts' timestamps to the ISO form so buckets and ordering line up.
+     */
+    private static String normalize(String timestamp) {
+        if (timestamp.length() > 10 && timestamp.charAt(10) == ' ') {
+            return timestamp.substring(0, 10) + 'T' + timestamp.substring(11);
+        }
+        return timestamp;
+    }
+}
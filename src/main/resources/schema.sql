@@ -0,0 +1,93 @@
+-- Schema for the auth tables. Applied on every startup (spring.sql.init.mode=always),
+-- so every statement must be idempotent.
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGSERIAL PRIMARY KEY,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    username VARCHAR(255),
+    role VARCHAR(50),
+    counter INTEGER NOT NULL DEFAULT 0,
+    current_token_hash BYTEA
+);
+
+-- Only the SHA-256 digest of the current token is stored. Databases created before that still have
+-- the raw token in current_token: hash it into the new column and drop the old one. The DO body is
+-- single-quoted (not dollar-quoted) so the script splitter keeps it in one statement.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS current_token_hash BYTEA;
+
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = ''users'' AND column_name = ''current_token'') THEN
+        UPDATE users SET current_token_hash = sha256(convert_to(current_token, ''UTF8''))
+        WHERE current_token IS NOT NULL;
+        ALTER TABLE users DROP COLUMN current_token;
+    END IF;
+END';
+
+CREATE TABLE IF NOT EXISTS user_sessions (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users (id),
+    browser_id VARCHAR(255) NOT NULL,
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP
+);
+
+-- Change version of the users table; advanced by every write to users.
+-- A sequence instead of a counter row so concurrent writers never queue on a single row lock.
+CREATE SEQUENCE IF NOT EXISTS users_change_seq;
+
+-- At most one active session per user and browser; different users may share a browser.
+-- Deactivate duplicates left by the old check-then-insert registration (keeping the newest) so
+-- the unique index can be built; a no-op once it exists.
+UPDATE user_sessions s SET active = FALSE, updated_at = CURRENT_TIMESTAMP
+WHERE s.active AND EXISTS (
+    SELECT 1 FROM user_sessions d
+    WHERE d.user_id = s.user_id AND d.browser_id = s.browser_id AND d.active AND d.id > s.id
+);
+
+-- Replaced by the per-user index below
+DROP INDEX IF EXISTS ux_user_sessions_active_browser;
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_user_sessions_active_user_browser ON user_sessions (user_id, browser_id)
+    WHERE active;
+
+-- Last activity of a session; written in coalesced batches, not on every request.
+ALTER TABLE user_sessions ADD COLUMN IF NOT EXISTS last_seen_at TIMESTAMP;
+
+-- Covers the per-user active session listing with an index-only scan.
+CREATE INDEX IF NOT EXISTS ix_user_sessions_user_active ON user_sessions (user_id, active)
+    INCLUDE (id, browser_id, created_at, last_seen_at);
+
+-- One-time magic-link codes, stored as SHA-256 hashes. Redeeming a code deletes its row.
+CREATE TABLE IF NOT EXISTS magic_link_codes (
+    code_hash BYTEA PRIMARY KEY,
+    email VARCHAR(255) NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS ix_magic_link_codes_expires_at ON magic_link_codes (expires_at);
+
+-- User search. Prefix matches use the text_pattern_ops indexes; typo-tolerant matches use pg_trgm
+-- trigram indexes when the extension can be installed. Without it (no privilege to create it),
+-- search falls back to prefix matching only.
+CREATE INDEX IF NOT EXISTS ix_users_email_prefix ON users (lower(email) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS ix_users_username_prefix ON users (lower(username) text_pattern_ops);
+
+DO '
+BEGIN
+    BEGIN
+        CREATE EXTENSION IF NOT EXISTS pg_trgm;
+    EXCEPTION WHEN insufficient_privilege OR undefined_file THEN
+        RAISE NOTICE ''pg_trgm unavailable, user search matches prefixes only'';
+    END;
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = ''pg_trgm'') THEN
+        CREATE INDEX IF NOT EXISTS ix_users_email_trgm ON users USING gin (lower(email) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS ix_users_username_trgm ON users USING gin (lower(username) gin_trgm_ops);
+    END IF;
+END';
+
+-- Counter leaderboard: the top rows by counter are read straight off this index. Zero counters,
+-- the common case, are left out to keep it small. Ties are ordered by code point, as in memory.
+CREATE INDEX IF NOT EXISTS ix_users_counter_top ON users (counter DESC, email COLLATE "C") WHERE counter > 0;
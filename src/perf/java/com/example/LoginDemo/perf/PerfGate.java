@@ -0,0 +1,168 @@
+package com.example.LoginDemo.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH result file against the checked-in baseline and fails when a benchmark lost
+ * more throughput or allocates more bytes per operation than the configured tolerance allows.
+ * <p>
+ * Usage: {@code PerfGate <jmh-result.json> <baseline.json> <report.json>}. Tolerances are read
+ * from the system properties {@code perf.gate.throughput-tolerance} and
+ * {@code perf.gate.allocation-tolerance} (fractions, e.g. 0.10). With
+ * {@code -Dperf.gate.update=true} the baseline is rewritten from the results instead.
+ * <p>
+ * Benchmarks without a baseline entry are recorded into the baseline and reported as RECORDED
+ * without failing the gate, so the first run on a new benchmark (or an empty baseline) sets its
+ * reference. Entries already in the baseline are never changed except by an update; commit the
+ * baseline after a run that recorded new entries.
+ */
+public final class PerfGate {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    // Allocation differences below this are JIT noise (e.g. a scalar-replaced object that was not)
+    private static final double ALLOCATION_SLACK_BYTES = 16;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private PerfGate() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: PerfGate <jmh-result.json> <baseline.json> <report.json>");
+            System.exit(2);
+        }
+        File resultFile = new File(args[0]);
+        File baselineFile = new File(args[1]);
+        File reportFile = new File(args[2]);
+        double throughputTolerance = Double.parseDouble(System.getProperty("perf.gate.throughput-tolerance", "0.10"));
+        double allocationTolerance = Double.parseDouble(System.getProperty("perf.gate.allocation-tolerance", "0.10"));
+        boolean update = Boolean.parseBoolean(System.getProperty("perf.gate.update", "false"));
+
+        JsonNode results = MAPPER.readTree(resultFile);
+        JsonNode baseline = baselineFile.exists()
+                ? MAPPER.readTree(baselineFile).path("benchmarks")
+                : MAPPER.createObjectNode();
+
+        ObjectNode report = MAPPER.createObjectNode();
+        report.put("generatedAt", Instant.now().toString());
+        report.put("throughputTolerance", throughputTolerance);
+        report.put("allocationTolerance", allocationTolerance);
+        ArrayNode entries = report.putArray("benchmarks");
+        ObjectNode newBaseline = MAPPER.createObjectNode();
+
+        int regressions = 0;
+        int recorded = 0;
+        for (JsonNode result : results) {
+            String name = result.path("benchmark").asText();
+            double throughput = result.path("primaryMetric").path("score").asDouble();
+            String unit = result.path("primaryMetric").path("scoreUnit").asText();
+            JsonNode allocationNode = result.path("secondaryMetrics").path(ALLOCATION_METRIC).path("score");
+            double allocation = allocationNode.isMissingNode() ? Double.NaN : allocationNode.asDouble();
+
+            ObjectNode current = newBaseline.putObject(name);
+            current.put("throughput", throughput);
+            current.put("throughputUnit", unit);
+            if (!Double.isNaN(allocation)) {
+                current.put("allocBytesPerOp", allocation);
+            }
+
+            ObjectNode entry = entries.addObject();
+            entry.put("benchmark", name);
+            entry.put("throughput", throughput);
+            entry.put("throughputUnit", unit);
+            if (!Double.isNaN(allocation)) {
+                entry.put("allocBytesPerOp", allocation);
+            }
+
+            JsonNode expected = baseline.path(name);
+            if (expected.isMissingNode()) {
+                entry.put("status", "RECORDED");
+                recorded++;
+                System.out.printf("RECORDED %s: no baseline entry, this run becomes the baseline%n", name);
+                continue;
+            }
+
+            double baselineThroughput = expected.path("throughput").asDouble();
+            double throughputChange = baselineThroughput > 0 ? throughput / baselineThroughput - 1 : 0;
+            entry.put("baselineThroughput", baselineThroughput);
+            entry.put("throughputChange", throughputChange);
+            boolean regressed = throughputChange < -throughputTolerance;
+
+            if (!Double.isNaN(allocation) && expected.has("allocBytesPerOp")) {
+                double baselineAllocation = expected.path("allocBytesPerOp").asDouble();
+                entry.put("baselineAllocBytesPerOp", baselineAllocation);
+                entry.put("allocationChange", baselineAllocation > 0 ? allocation / baselineAllocation - 1 : 0);
+                double limit = Math.max(baselineAllocation * (1 + allocationTolerance),
+                        baselineAllocation + ALLOCATION_SLACK_BYTES);
+                regressed |= allocation > limit;
+            }
+
+            entry.put("status", regressed ? "REGRESSION" : "PASS");
+            if (regressed) {
+                regressions++;
+                System.err.printf("REGRESSION %s: %.1f %s (baseline %.1f), %.1f B/op (baseline %s)%n",
+                        name, throughput, unit, baselineThroughput, allocation,
+                        expected.path("allocBytesPerOp").asText("n/a"));
+            }
+        }
+
+        report.put("regressions", regressions);
+        report.put("recorded", recorded);
+        report.put("passed", update || regressions == 0);
+        reportFile.getParentFile().mkdirs();
+        MAPPER.writeValue(reportFile, report);
+        System.out.println("Performance gate report written to " + reportFile);
+
+        if (update) {
+            ObjectNode baselineDocument = MAPPER.createObjectNode();
+            baselineDocument.put("updatedAt", Instant.now().toString());
+            baselineDocument.set("benchmarks", sorted(newBaseline));
+            MAPPER.writeValue(baselineFile, baselineDocument);
+            System.out.println("Baseline updated: " + baselineFile);
+            return;
+        }
+        if (recorded > 0) {
+            // Keep the existing entries and add only the new ones
+            ObjectNode merged = baseline.isObject() ? ((ObjectNode) baseline).deepCopy() : MAPPER.createObjectNode();
+            newBaseline.fields().forEachRemaining(field -> {
+                if (!merged.has(field.getKey())) {
+                    merged.set(field.getKey(), field.getValue());
+                }
+            });
+            ObjectNode baselineDocument = MAPPER.createObjectNode();
+            baselineDocument.put("updatedAt", Instant.now().toString());
+            baselineDocument.set("benchmarks", sorted(merged));
+            MAPPER.writeValue(baselineFile, baselineDocument);
+            System.out.println(recorded + " benchmark(s) recorded into " + baselineFile + "; commit it to keep them");
+        }
+        if (regressions > 0) {
+            System.err.println(regressions + " benchmark(s) regressed beyond tolerance, see " + reportFile);
+        }
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static ObjectNode sorted(ObjectNode node) {
+        ObjectNode sorted = MAPPER.createObjectNode();
+        TreeMap<String, JsonNode> fields = new TreeMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = it.next();
+            fields.put(field.getKey(), field.getValue());
+        }
+        fields.forEach(sorted::set);
+        return sorted;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.LoginDemo.perf;
+
+import com.example.LoginDemo.dao.UserDAO;
+import com.example.LoginDemo.dao.UserSessionDAO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks of the DAO row mappers over an in-memory row. A mapper that starts issuing a
+ * query per row or reading columns it does not need shows up as lost throughput and additional
+ * bytes per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    private ResultSet row;
+    private RowMapper<?> userRowMapper;
+    private RowMapper<?> identityRowMapper;
+    private RowMapper<?> directoryRowMapper;
+    private RowMapper<?> authRowMapper;
+    private RowMapper<?> sessionRowMapper;
+    private RowMapper<?> activeSessionRowMapper;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("id", 42L);
+        columns.put("email", "bench@example.com");
+        columns.put("username", "bench");
+        columns.put("role", "USER");
+        columns.put("counter", 7);
+        // The stored digest of the current token
+        columns.put("current_token_hash", new byte[32]);
+        columns.put("browser_id", "browser_1700000000000_abcdefghi");
+        columns.put("active", true);
+        columns.put("created_at", now);
+        columns.put("updated_at", now);
+        columns.put("last_seen_at", now);
+        columns.put("user_id", 42L);
+        columns.put("user_email", "bench@example.com");
+        columns.put("user_role", "USER");
+        row = resultSet(columns);
+
+        UserDAO userDAO = new UserDAO();
+        userRowMapper = mapper(userDAO, "userRowMapper");
+        identityRowMapper = mapper(userDAO, "identityRowMapper");
+        directoryRowMapper = mapper(userDAO, "directoryRowMapper");
+        authRowMapper = mapper(userDAO, "authRowMapper");
+        UserSessionDAO sessionDAO = new UserSessionDAO();
+        sessionRowMapper = mapper(sessionDAO, "sessionRowMapper");
+        activeSessionRowMapper = mapper(sessionDAO, "activeSessionRowMapper");
+    }
+
+    @Benchmark
+    public Object user() throws Exception {
+        return userRowMapper.mapRow(row, 0);
+    }
+
+    @Benchmark
+    public Object identity() throws Exception {
+        return identityRowMapper.mapRow(row, 0);
+    }
+
+    @Benchmark
+    public Object directory() throws Exception {
+        return directoryRowMapper.mapRow(row, 0);
+    }
+
+    @Benchmark
+    public Object auth() throws Exception {
+        return authRowMapper.mapRow(row, 0);
+    }
+
+    @Benchmark
+    public Object session() throws Exception {
+        return sessionRowMapper.mapRow(row, 0);
+    }
+
+    @Benchmark
+    public Object activeSession() throws Exception {
+        return activeSessionRowMapper.mapRow(row, 0);
+    }
+
+    private static RowMapper<?> mapper(Object dao, String field) throws ReflectiveOperationException {
+        Field mapperField = dao.getClass().getDeclaredField(field);
+        mapperField.setAccessible(true);
+        return (RowMapper<?>) mapperField.get(dao);
+    }
+
+    /**
+     * Builds a single-row ResultSet answering the getters by column label.
+     */
+    private static ResultSet resultSet(Map<String, Object> columns) {
+        return (ResultSet) Proxy.newProxyInstance(RowMapperBenchmark.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                    if (args == null || args.length != 1 || !(args[0] instanceof String label)) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    if (!columns.containsKey(label)) {
+                        throw new IllegalArgumentException("Column not in benchmark row: " + label);
+                    }
+                    return columns.get(label);
+                });
+    }
+}
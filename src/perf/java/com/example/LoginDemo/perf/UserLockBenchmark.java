@@ -0,0 +1,117 @@
+package com.example.LoginDemo.perf;
+
+import com.example.LoginDemo.service.StripedLocks;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-modify-write of a user's counter under contention, with an in-memory row standing in for
+ * the users table and a CPU burn standing in for the work between read and write.
+ * <ul>
+ *   <li>{@link #lastWriterWins}: the old transitions, which lose concurrent updates</li>
+ *   <li>{@link #optimisticRetry}: compare-and-set on a row version, retrying on conflict</li>
+ *   <li>{@link #stripedLock}: the {@link StripedLocks} used by UserLockManager</li>
+ * </ul>
+ * {@code users=1} is every thread hitting one user; {@code users=64} is spread traffic. Lost
+ * updates and optimistic retries per operation are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class UserLockBenchmark {
+
+    private record Row(long version, int counter) {
+    }
+
+    @Param({"1", "64"})
+    public int users;
+
+    // Work between reading and writing the row, in JMH CPU tokens
+    @Param({"200"})
+    public long work;
+
+    private String[] emails;
+    private AtomicReference<Row>[] rows;
+    private StripedLocks locks;
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        emails = new String[users];
+        rows = new AtomicReference[users];
+        for (int i = 0; i < users; i++) {
+            emails[i] = "user" + i + "@example.com";
+            rows[i] = new AtomicReference<>(new Row(0, 0));
+        }
+        locks = new StripedLocks(256);
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        long counted = 0;
+        for (AtomicReference<Row> row : rows) {
+            counted += row.get().counter();
+        }
+        long ops = operations.sum();
+        System.out.printf("%n%d operations, %d lost updates (%.2f%%), %.3f retries per operation%n",
+                ops, ops - counted, ops > 0 ? 100.0 * (ops - counted) / ops : 0, ops > 0 ? (double) retries.sum() / ops : 0);
+    }
+
+    @Benchmark
+    public int lastWriterWins() {
+        int user = ThreadLocalRandom.current().nextInt(users);
+        AtomicReference<Row> row = rows[user];
+        Row read = row.get();
+        Blackhole.consumeCPU(work);
+        Row written = new Row(read.version() + 1, read.counter() + 1);
+        row.set(written);
+        operations.increment();
+        return written.counter();
+    }
+
+    @Benchmark
+    public int optimisticRetry() {
+        int user = ThreadLocalRandom.current().nextInt(users);
+        AtomicReference<Row> row = rows[user];
+        while (true) {
+            Row read = row.get();
+            Blackhole.consumeCPU(work);
+            Row written = new Row(read.version() + 1, read.counter() + 1);
+            if (row.compareAndSet(read, written)) {
+                operations.increment();
+                return written.counter();
+            }
+            retries.increment();
+        }
+    }
+
+    @Benchmark
+    public int stripedLock() {
+        int user = ThreadLocalRandom.current().nextInt(users);
+        AtomicReference<Row> row = rows[user];
+        ReentrantLock lock = locks.get(emails[user]);
+        lock.lock();
+        try {
+            Row read = row.get();
+            Blackhole.consumeCPU(work);
+            Row written = new Row(read.version() + 1, read.counter() + 1);
+            row.set(written);
+            operations.increment();
+            return written.counter();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.LoginDemo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilTests {
+
+	private final JwtUtil jwtUtil = new JwtUtil();
+
+	@Test
+	void acceptsItsOwnTokens() {
+		TokenVerification verification = jwtUtil.verify(jwtUtil.generateToken("jwt@example.com", "ADMIN"));
+		assertTrue(verification.isValid());
+		assertEquals("jwt@example.com", verification.subject());
+		assertEquals("ADMIN", verification.role());
+	}
+
+	@Test
+	void rejectsMalformedTokensBeforeParsing() {
+		String token = jwtUtil.generateToken("jwt@example.com", "USER");
+		for (String malformed : new String[] {null, "", "not-a-token", token.substring(token.indexOf('.') + 1),
+				token.substring(0, token.lastIndexOf('.')), token + ".", token.replace('-', '+').replace('_', '/') + "+",
+				"eyJ" + "a".repeat(5000) + ".b.c"}) {
+			assertFalse(JwtUtil.isWellFormed(malformed));
+			assertEquals(TokenVerification.Status.MALFORMED, jwtUtil.verify(malformed).status());
+		}
+		// Never parsed, so never remembered
+		assertEquals(0, rejectedTokens().size());
+	}
+
+	@Test
+	void rejectsTokensSignedWithAnotherKey() {
+		String token = jwtUtil.generateToken("jwt@example.com", "USER");
+		int signature = token.lastIndexOf('.') + 1;
+		char first = token.charAt(signature) == 'A' ? 'B' : 'A';
+		String forged = token.substring(0, signature) + first + token.substring(signature + 1);
+
+		assertEquals(TokenVerification.Status.BAD_SIGNATURE, jwtUtil.verify(forged).status());
+	}
+
+	@Test
+	void rejectsExpiredTokens() {
+		String token = jwtUtil.generateToken("jwt@example.com", "USER");
+		JwtUtil later = new JwtUtil(() -> new Date(System.currentTimeMillis() + Duration.ofHours(11).toMillis()));
+
+		assertEquals(TokenVerification.Status.EXPIRED, later.verify(token).status());
+		assertTrue(jwtUtil.verify(token).isValid());
+	}
+
+	@Test
+	void answersRepeatedRejectionsFromTheCache() {
+		String token = jwtUtil.generateToken("jwt@example.com", "USER");
+		String forged = token.substring(0, token.lastIndexOf('.') + 1) + "c2lnbmF0dXJl";
+
+		assertEquals(TokenVerification.Status.BAD_SIGNATURE, jwtUtil.verify(forged).status());
+		assertEquals(TokenVerification.Status.BAD_SIGNATURE, jwtUtil.verify(forged).status());
+		assertEquals(1, ((LongAdder) ReflectionTestUtils.getField(jwtUtil, "cachedRejections")).sum());
+		assertEquals(1, rejectedTokens().size());
+	}
+
+	@Test
+	void boundsTheRejectionCache() {
+		// Well-formed, so each one is parsed and remembered
+		for (int i = 0; i < 5000; i++) {
+			assertFalse(jwtUtil.verify("eyJhbGci" + i + ".eyJzdWIi.c2ln").isValid());
+		}
+		assertEquals(4096, rejectedTokens().size());
+	}
+
+	private Map<?, ?> rejectedTokens() {
+		return (Map<?, ?>) ReflectionTestUtils.getField(jwtUtil, "rejectedTokens");
+	}
+}
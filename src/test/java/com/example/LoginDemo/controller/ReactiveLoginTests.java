@@ -0,0 +1,114 @@
+package com.example.LoginDemo.controller;
+
+import com.example.LoginDemo.config.JwtUtil;
+import com.example.LoginDemo.config.ReactiveWebConfig;
+import com.example.LoginDemo.dao.ReactiveMagicLinkCodeDAO;
+import com.example.LoginDemo.dao.ReactiveUserDAO;
+import com.example.LoginDemo.dao.ReactiveUserSessionDAO;
+import com.example.LoginDemo.service.ReactiveAuthService;
+import com.example.LoginDemo.service.ReactiveEmailService;
+import com.example.LoginDemo.service.ReactiveMagicLinkCodeService;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Runs the magic-link login of the "reactive" profile against a local Postgres, from login to
+ * validation, with the same PG_TEST_* variables as {@code JdbcStoreTests}.
+ */
+@EnabledIfEnvironmentVariable(named = "PG_TEST_URL", matches = ".+")
+class ReactiveLoginTests {
+
+	private static final String URL = System.getenv("PG_TEST_URL");
+	private static final String USER = System.getenv().getOrDefault("PG_TEST_USER", "postgres");
+	private static final String PASSWORD = System.getenv().getOrDefault("PG_TEST_PASSWORD", "");
+
+	private final Map<String, String> sentCodes = new ConcurrentHashMap<>();
+	private ReactiveAuthService authService;
+	private ReactiveUserSessionDAO sessionDAO;
+	private WebTestClient client;
+
+	@BeforeEach
+	void connect() {
+		new ResourceDatabasePopulator(new ClassPathResource("schema.sql"))
+				.execute(new DriverManagerDataSource(URL, USER, PASSWORD));
+		DatabaseClient databaseClient = DatabaseClient.create(ConnectionFactories.get(
+				ConnectionFactoryOptions.parse(URL.replaceFirst("^jdbc:", "r2dbc:")).mutate()
+						.option(ConnectionFactoryOptions.USER, USER)
+						.option(ConnectionFactoryOptions.PASSWORD, PASSWORD)
+						.build()));
+
+		ReactiveUserDAO userDAO = new ReactiveUserDAO();
+		ReflectionTestUtils.setField(userDAO, "databaseClient", databaseClient);
+		sessionDAO = new ReactiveUserSessionDAO();
+		ReflectionTestUtils.setField(sessionDAO, "databaseClient", databaseClient);
+		authService = new ReactiveAuthService();
+		ReflectionTestUtils.setField(authService, "userDAO", userDAO);
+		ReflectionTestUtils.setField(authService, "sessionDAO", sessionDAO);
+
+		ReactiveMagicLinkCodeDAO codeDAO = new ReactiveMagicLinkCodeDAO();
+		ReflectionTestUtils.setField(codeDAO, "databaseClient", databaseClient);
+		ReactiveMagicLinkCodeService codeService = new ReactiveMagicLinkCodeService();
+		ReflectionTestUtils.setField(codeService, "codeDAO", codeDAO);
+		ReflectionTestUtils.setField(codeService, "codeTtl", Duration.ofMinutes(15));
+
+		ReactiveEmailService emailService = new ReactiveEmailService() {
+			@Override
+			public Mono<Void> sendMagicLink(String email, String code) {
+				sentCodes.put(email, code);
+				return Mono.empty();
+			}
+		};
+
+		AuthHandler handler = new AuthHandler();
+		ReflectionTestUtils.setField(handler, "jwtUtil", new JwtUtil());
+		ReflectionTestUtils.setField(handler, "authService", authService);
+		ReflectionTestUtils.setField(handler, "emailService", emailService);
+		ReflectionTestUtils.setField(handler, "magicLinkCodeService", codeService);
+		client = WebTestClient.bindToRouterFunction(new ReactiveWebConfig().authRoutes(handler)).build();
+	}
+
+	@Test
+	void signsInWithAMagicLinkCode() {
+		String email = "reactive-" + UUID.randomUUID() + "@example.com";
+		String browserId = "browser_" + UUID.randomUUID();
+		authService.addUser(email, "reactive", "USER").block();
+
+		client.post().uri("/v1/auth/login").bodyValue(Map.of("email", email))
+				.exchange().expectStatus().isOk();
+		String code = sentCodes.get(email);
+		assertNotNull(code);
+
+		Map<?, ?> login = client.post().uri("/v1/auth/redeem").bodyValue(Map.of("code", code, "browserId", browserId))
+				.exchange().expectStatus().isOk()
+				.expectBody(Map.class).returnResult().getResponseBody();
+		assertEquals(email, login.get("username"));
+		String token = (String) login.get("token");
+
+		client.get().uri(uri -> uri.path("/v1/auth/validate").queryParam("token", token)
+						.queryParam("browserId", browserId).build())
+				.exchange().expectStatus().isOk();
+		assertEquals(1, sessionDAO.findByUserEmailAndBrowserIdAndActive(email, browserId, true).count().block().longValue());
+
+		// A code signs in once
+		client.post().uri("/v1/auth/redeem").bodyValue(Map.of("code", code, "browserId", browserId))
+				.exchange().expectStatus().is5xxServerError();
+	}
+}
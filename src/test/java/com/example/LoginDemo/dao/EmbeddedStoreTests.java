@@ -0,0 +1,131 @@
+package com.example.LoginDemo.dao;
+
+import com.example.LoginDemo.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedStoreTests extends StoreContractTests {
+
+	@TempDir
+	Path directory;
+
+	private EmbeddedUserStore users;
+	private EmbeddedUserSessionStore sessions;
+
+	@BeforeEach
+	void open() throws IOException {
+		users = new EmbeddedUserStore(directory, false, events::add);
+		sessions = new EmbeddedUserSessionStore(directory, false, users, events::add);
+	}
+
+	@AfterEach
+	void close() throws IOException {
+		sessions.close();
+		users.close();
+	}
+
+	@Override
+	protected UserStore users() {
+		return users;
+	}
+
+	@Override
+	protected UserSessionStore sessions() {
+		return sessions;
+	}
+
+	@Test
+	void reloadsUsersAndSessionsAfterReopen() throws IOException {
+		String email = uniqueEmail();
+		User user = new User();
+		user.setEmail(email);
+		user.setRole("USER");
+		user.setCounter(3);
+		users.save(user);
+		sessions.registerActiveSession(email, "browser_reopen");
+
+		close();
+		open();
+
+		assertEquals(3, users.findByEmail(email).orElseThrow().getCounter());
+		assertEquals(1, sessions.findByUserEmailAndBrowserIdAndActive(email, "browser_reopen", true).size());
+	}
+
+	@Test
+	void changeVersionSurvivesReopen() throws IOException {
+		User user = new User();
+		user.setEmail(uniqueEmail());
+		user.setRole("USER");
+		users.save(user);
+		long version = users.currentChangeVersion();
+
+		close();
+		open();
+
+		assertEquals(version, users.currentChangeVersion());
+		user.setEmail(uniqueEmail());
+		users.save(user);
+		assertTrue(users.currentChangeVersion() > version);
+	}
+
+	@Test
+	void discardsTornTailAndKeepsAppending() throws IOException {
+		Path file = directory.resolve("test.log");
+		try (AppendOnlyLog log = new AppendOnlyLog(file, false)) {
+			log.put("a", bytes("first"));
+			log.put("b", bytes("second"));
+		}
+		// Damage the body of the last record, as a write cut short by a crash would
+		int lastRecord = 8 + 3 + 1 + 5;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{42}), lastRecord + 8 + 4);
+		}
+
+		try (AppendOnlyLog log = new AppendOnlyLog(file, false)) {
+			assertArrayEquals(bytes("first"), log.get("a"));
+			assertNull(log.get("b"));
+			log.put("c", bytes("third"));
+		}
+		try (AppendOnlyLog log = new AppendOnlyLog(file, false)) {
+			assertEquals(2, log.size());
+			assertArrayEquals(bytes("third"), log.get("c"));
+		}
+	}
+
+	@Test
+	void compactionKeepsOnlyLiveRecords() throws IOException {
+		Path file = directory.resolve("compact.log");
+		try (AppendOnlyLog log = new AppendOnlyLog(file, false)) {
+			for (int i = 0; i < 1000; i++) {
+				log.put("key" + i % 10, bytes("value" + i));
+			}
+			log.delete("key0");
+			assertTrue(log.deadBytes() > 0);
+			log.compact();
+			assertEquals(0, log.deadBytes());
+		}
+		try (AppendOnlyLog log = new AppendOnlyLog(file, false)) {
+			assertEquals(9, log.size());
+			assertNull(log.get("key0"));
+			assertArrayEquals(bytes("value999"), log.get("key9"));
+		}
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,99 @@
+package com.example.LoginDemo.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FuzzyPrefixIndexTests {
+
+	@Test
+	void matchesPrefixesWithinTheAllowedEdits() {
+		FuzzyPrefixIndex index = new FuzzyPrefixIndex();
+		index.add("john.smith@example.com", "1");
+		index.add("johnny", "1");
+		index.add("joan@example.com", "2");
+		index.add("mary@example.com", "3");
+
+		assertEquals(Map.of("1", 0), search(index, "john", 0));
+		assertEquals(Map.of("1", 1), search(index, "jhon", 1));
+		assertEquals(Map.of("1", 0, "2", 1), search(index, "joh", 1));
+		assertEquals(Map.of("3", 1), search(index, "mery@", 1));
+		assertEquals(Map.of(), search(index, "bob", 1));
+
+		index.remove("johnny", "1");
+		index.remove("john.smith@example.com", "1");
+		assertEquals(Map.of(), search(index, "jhon", 1));
+		assertEquals(Map.of("2", 1), search(index, "joh", 1));
+	}
+
+	@Test
+	void agreesWithAFullDistanceComputation() {
+		Random random = new Random(42);
+		FuzzyPrefixIndex index = new FuzzyPrefixIndex();
+		List<String> terms = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			String term = randomWord(random, 3 + random.nextInt(10));
+			terms.add(term);
+			index.add(term, Integer.toString(i));
+		}
+		for (int q = 0; q < 200; q++) {
+			String query = randomWord(random, 1 + random.nextInt(7));
+			int maxEdits = FuzzyPrefixIndex.maxEdits(query.length());
+			Map<String, Integer> expected = new HashMap<>();
+			for (int i = 0; i < terms.size(); i++) {
+				int distance = closestPrefixDistance(query, terms.get(i));
+				if (distance <= maxEdits) {
+					expected.put(Integer.toString(i), distance);
+					assertEquals(distance, FuzzyPrefixIndex.prefixDistance(query, terms.get(i), maxEdits));
+				} else {
+					assertEquals(-1, FuzzyPrefixIndex.prefixDistance(query, terms.get(i), maxEdits));
+				}
+			}
+			assertEquals(expected, search(index, query, maxEdits), "query " + query);
+		}
+	}
+
+	private static Map<String, Integer> search(FuzzyPrefixIndex index, String query, int maxEdits) {
+		Map<String, Integer> matches = new HashMap<>();
+		index.search(query, maxEdits, (id, distance) -> {
+			matches.merge(id, distance, Math::min);
+			return true;
+		});
+		return matches;
+	}
+
+	// Optimal string alignment distance to every prefix of the term, without pruning
+	private static int closestPrefixDistance(String query, String term) {
+		int[][] d = new int[term.length() + 1][query.length() + 1];
+		int best = query.length();
+		for (int i = 0; i <= term.length(); i++) {
+			for (int j = 0; j <= query.length(); j++) {
+				if (i == 0 || j == 0) {
+					d[i][j] = i + j;
+					continue;
+				}
+				int cost = term.charAt(i - 1) == query.charAt(j - 1) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+				if (i > 1 && j > 1 && term.charAt(i - 1) == query.charAt(j - 2) && term.charAt(i - 2) == query.charAt(j - 1)) {
+					d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+				}
+			}
+			best = Math.min(best, d[i][query.length()]);
+		}
+		return best;
+	}
+
+	private static String randomWord(Random random, int length) {
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			word.append((char) ('a' + random.nextInt(5)));
+		}
+		return word.toString();
+	}
+}
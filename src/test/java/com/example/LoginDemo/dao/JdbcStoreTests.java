@@ -0,0 +1,50 @@
+package com.example.LoginDemo.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Runs the store contract against a local Postgres, e.g.
+ * PG_TEST_URL=jdbc:postgresql://localhost:5430/login_demo PG_TEST_USER=postgres PG_TEST_PASSWORD=... mvn test
+ */
+@EnabledIfEnvironmentVariable(named = "PG_TEST_URL", matches = ".+")
+class JdbcStoreTests extends StoreContractTests {
+
+	private static final String URL = System.getenv("PG_TEST_URL");
+	private static final String USER = System.getenv().getOrDefault("PG_TEST_USER", "postgres");
+	private static final String PASSWORD = System.getenv().getOrDefault("PG_TEST_PASSWORD", "");
+
+	private UserDAO users;
+	private UserSessionDAO sessions;
+
+	@BeforeEach
+	void connect() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, USER, PASSWORD);
+		new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		ApplicationEventPublisher eventPublisher = events::add;
+
+		users = new UserDAO();
+		ReflectionTestUtils.setField(users, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(users, "eventPublisher", eventPublisher);
+		sessions = new UserSessionDAO();
+		ReflectionTestUtils.setField(sessions, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(sessions, "eventPublisher", eventPublisher);
+	}
+
+	@Override
+	protected UserStore users() {
+		return users;
+	}
+
+	@Override
+	protected UserSessionStore sessions() {
+		return sessions;
+	}
+}
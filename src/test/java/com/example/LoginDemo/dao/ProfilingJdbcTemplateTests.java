@@ -0,0 +1,62 @@
+package com.example.LoginDemo.dao;
+
+import com.example.LoginDemo.exception.DependencyUnavailableException;
+import com.example.LoginDemo.monitoring.QueryProfiler;
+import com.example.LoginDemo.resilience.CircuitBreaker;
+import com.example.LoginDemo.resilience.GuardedDependency;
+import com.example.LoginDemo.resilience.SemaphoreBulkhead;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProfilingJdbcTemplateTests {
+
+	@Test
+	void openBreakerRefusesStatementsWithoutParameters() {
+		AtomicInteger connections = new AtomicInteger();
+		DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] {DataSource.class}, (proxy, method, args) -> switch (method.getName()) {
+					case "hashCode" -> System.identityHashCode(proxy);
+					case "equals" -> proxy == args[0];
+					case "toString" -> "unreachable database";
+					default -> {
+						connections.incrementAndGet();
+						throw new IllegalStateException("database is down");
+					}
+				});
+		CircuitBreaker breaker = new CircuitBreaker("database", 10, 5, 50, Duration.ofMinutes(1), 1, System::nanoTime);
+		GuardedDependency database = new GuardedDependency("database", breaker,
+				new SemaphoreBulkhead("database", 4, Duration.ofMillis(10)), e -> true);
+		QueryProfiler profiler = new QueryProfiler();
+		ReflectionTestUtils.setField(profiler, "slowThreshold", Duration.ofHours(1));
+		ReflectionTestUtils.setField(profiler, "planCaptureInterval", Duration.ofHours(1));
+		ProfilingJdbcTemplate jdbcTemplate = new ProfilingJdbcTemplate(dataSource, profiler, database);
+
+		for (int i = 0; i < 5; i++) {
+			assertThrows(RuntimeException.class,
+					() -> jdbcTemplate.queryForObject("SELECT last_value FROM users_change_seq", Long.class));
+		}
+		assertEquals(CircuitBreaker.State.OPEN, database.getState());
+		int attempts = connections.get();
+
+		DependencyUnavailableException refused = assertThrows(DependencyUnavailableException.class,
+				() -> jdbcTemplate.queryForObject("SELECT last_value FROM users_change_seq", Long.class));
+		assertEquals(DependencyUnavailableException.Reason.CIRCUIT_OPEN, refused.getReason());
+		assertThrows(DependencyUnavailableException.class,
+				() -> jdbcTemplate.update("DELETE FROM magic_link_codes WHERE expires_at < now()"));
+		assertEquals(attempts, connections.get());
+		assertEquals(2, database.count(GuardedDependency.Outcome.CIRCUIT_OPEN));
+
+		// Each statement is profiled once, refused or not
+		assertTrue(profiler.getStats().stream()
+				.anyMatch(stats -> stats.getSql().startsWith("SELECT last_value") && stats.getLatency().count() == 6));
+	}
+}
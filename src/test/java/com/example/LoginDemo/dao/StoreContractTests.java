@@ -0,0 +1,264 @@
+package com.example.LoginDemo.dao;
+
+import com.example.LoginDemo.event.InvalidationEvent;
+import com.example.LoginDemo.model.ActiveSession;
+import com.example.LoginDemo.model.BrowserSessionKey;
+import com.example.LoginDemo.model.User;
+import com.example.LoginDemo.model.UserDirectoryEntry;
+import com.example.LoginDemo.model.UserSearchHit;
+import com.example.LoginDemo.model.UserSession;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Behavior every {@link UserStore} and {@link UserSessionStore} implementation must share.
+ * Subclasses provide the stores; emails and browser IDs are unique per test, so a shared
+ * database needs no cleanup.
+ */
+abstract class StoreContractTests {
+
+	protected final List<Object> events = new ArrayList<>();
+
+	protected abstract UserStore users();
+
+	protected abstract UserSessionStore sessions();
+
+	@Test
+	void savesAndUpdatesUsers() {
+		String email = uniqueEmail();
+		long version = users().currentChangeVersion();
+		users().save(newUser(email));
+
+		User user = users().findByEmail(email).orElseThrow();
+		assertEquals("USER", user.getRole());
+		assertEquals(0, user.getCounter());
+		assertTrue(users().existsByEmail(email));
+		assertTrue(users().currentChangeVersion() > version);
+		assertTrue(events.contains(InvalidationEvent.local(InvalidationEvent.Topic.USER, email)));
+
+		byte[] tokenHash = new byte[32];
+		tokenHash[0] = 1;
+		user.setCounter(5);
+		user.setCurrentTokenHash(tokenHash);
+		users().save(user);
+
+		assertEquals(5, users().findAuthViewByEmail(email).orElseThrow().counter());
+		assertArrayEquals(tokenHash, users().findAuthViewByEmail(email).orElseThrow().currentTokenHash());
+		assertEquals(user.getId(), users().findIdentityByEmail(email).orElseThrow().id());
+		assertTrue(users().findDirectoryEntries().stream().anyMatch(entry -> entry.email().equals(email)));
+	}
+
+	@Test
+	void rejectsDuplicateEmails() {
+		String email = uniqueEmail();
+		users().save(newUser(email));
+		assertThrows(DuplicateKeyException.class, () -> users().save(newUser(email)));
+	}
+
+	@Test
+	void unknownUsersAreEmpty() {
+		String email = uniqueEmail();
+		assertFalse(users().existsByEmail(email));
+		assertTrue(users().findByEmail(email).isEmpty());
+		assertTrue(sessions().findByUserEmailAndActive(email, true).isEmpty());
+		assertFalse(sessions().registerActiveSession(email, uniqueBrowser()));
+	}
+
+	@Test
+	void registersOneActiveSessionPerBrowser() {
+		String email = uniqueEmail();
+		String browserId = uniqueBrowser();
+		users().save(newUser(email));
+
+		assertTrue(sessions().registerActiveSession(email, browserId));
+		assertFalse(sessions().registerActiveSession(email, browserId));
+
+		List<UserSession> active = sessions().findByUserEmailAndBrowserIdAndActive(email, browserId, true);
+		assertEquals(1, active.size());
+		assertEquals(email, active.get(0).getUser().email());
+		assertTrue(events.contains(InvalidationEvent.local(InvalidationEvent.Topic.SESSION, browserId)));
+	}
+
+	@Test
+	void letsUsersShareABrowser() {
+		String email = uniqueEmail();
+		String other = uniqueEmail();
+		String browserId = uniqueBrowser();
+		users().save(newUser(email));
+		users().save(newUser(other));
+
+		assertTrue(sessions().registerActiveSession(email, browserId));
+		assertTrue(sessions().registerActiveSession(other, browserId));
+		assertEquals(1, sessions().findActiveSessions(email).size());
+		assertEquals(1, sessions().findActiveSessions(other).size());
+	}
+
+	@Test
+	void deactivatedSessionsFreeTheBrowser() {
+		String email = uniqueEmail();
+		String browserId = uniqueBrowser();
+		users().save(newUser(email));
+		sessions().registerActiveSession(email, browserId);
+
+		List<UserSession> active = sessions().findByUserEmailAndActive(email, true);
+		active.forEach(session -> session.setActive(false));
+		sessions().saveAll(active);
+
+		assertTrue(sessions().findByUserEmailAndActive(email, true).isEmpty());
+		assertEquals(1, sessions().findByUserEmailAndActive(email, false).size());
+		assertTrue(sessions().registerActiveSession(email, browserId));
+	}
+
+	@Test
+	void revokesOnlyOwnActiveSessions() {
+		String email = uniqueEmail();
+		String other = uniqueEmail();
+		String browserId = uniqueBrowser();
+		users().save(newUser(email));
+		users().save(newUser(other));
+		Instant before = Instant.now().minusSeconds(1);
+		sessions().registerActiveSession(email, browserId);
+		long sessionId = sessions().findActiveSessions(email).get(0).id();
+
+		assertTrue(sessions().revokeSession(other, sessionId).isEmpty());
+		assertEquals(browserId, sessions().revokeSession(email, sessionId).orElseThrow());
+		assertTrue(sessions().revokeSession(email, sessionId).isEmpty());
+		assertTrue(sessions().signedOutSince(email, browserId, before));
+		assertFalse(sessions().signedOutSince(email, browserId, Instant.now().plusSeconds(60)));
+	}
+
+	@Test
+	void revokesOneBrowserOfAUser() {
+		String email = uniqueEmail();
+		String revoked = uniqueBrowser();
+		String kept = uniqueBrowser();
+		users().save(newUser(email));
+		sessions().registerActiveSession(email, revoked);
+		sessions().registerActiveSession(email, kept);
+		long sessionId = sessions().findByUserEmailAndBrowserIdAndActive(email, revoked, true).get(0).getId();
+
+		assertEquals(revoked, sessions().revokeSession(email, sessionId).orElseThrow());
+		assertTrue(sessions().findByUserEmailAndBrowserIdAndActive(email, revoked, true).isEmpty());
+		assertEquals(1, sessions().findByUserEmailAndBrowserIdAndActive(email, kept, true).size());
+		assertEquals(List.of(kept), sessions().findActiveSessions(email).stream().map(ActiveSession::browserId).toList());
+	}
+
+	@Test
+	void signsInAgainWithinTheSecondOfASignOut() {
+		String email = uniqueEmail();
+		String browserId = uniqueBrowser();
+		users().save(newUser(email));
+		sessions().registerActiveSession(email, browserId);
+		// Token issue times have whole seconds, so a new token may predate the sign-out
+		Instant issuedAt = Instant.now().minusSeconds(1);
+		long sessionId = sessions().findActiveSessions(email).get(0).id();
+		sessions().revokeSession(email, sessionId);
+		assertTrue(sessions().signedOutSince(email, browserId, issuedAt));
+
+		assertTrue(sessions().registerActiveSession(email, browserId));
+		assertFalse(sessions().signedOutSince(email, browserId, issuedAt));
+	}
+
+	@Test
+	void listsActiveSessionsMostRecentlySeenFirst() {
+		String email = uniqueEmail();
+		String first = uniqueBrowser();
+		String second = uniqueBrowser();
+		users().save(newUser(email));
+		sessions().registerActiveSession(email, first);
+		sessions().registerActiveSession(email, second);
+
+		Instant now = Instant.now();
+		sessions().updateLastSeen(Map.of(new BrowserSessionKey(email, first), now.plusSeconds(60),
+				new BrowserSessionKey(email, second), now.plusSeconds(30)));
+		// an older time never overwrites a newer one
+		sessions().updateLastSeen(Map.of(new BrowserSessionKey(email, first), now));
+
+		List<ActiveSession> active = sessions().findActiveSessions(email);
+		assertEquals(List.of(first, second), active.stream().map(ActiveSession::browserId).toList());
+		assertTrue(active.get(0).lastSeenAt().isAfter(active.get(1).lastSeenAt()));
+	}
+
+	@Test
+	void recordsLastSeenOnlyForTheGivenUser() {
+		String email = uniqueEmail();
+		String other = uniqueEmail();
+		String browserId = uniqueBrowser();
+		users().save(newUser(email));
+		users().save(newUser(other));
+		sessions().registerActiveSession(email, browserId);
+		sessions().registerActiveSession(other, browserId);
+
+		sessions().updateLastSeen(Map.of(new BrowserSessionKey(other, browserId), Instant.now()));
+
+		assertNull(sessions().findActiveSessions(email).get(0).lastSeenAt());
+		assertNotNull(sessions().findActiveSessions(other).get(0).lastSeenAt());
+	}
+
+	@Test
+	void searchesNonAdminUsersByPrefix() {
+		String email = uniqueEmail();
+		String admin = uniqueEmail();
+		users().save(newUser(email));
+		User adminUser = newUser(admin);
+		adminUser.setRole("ADMIN");
+		users().save(adminUser);
+
+		List<UserSearchHit> hits = users().searchDirectory(email.substring(0, 30), 10, 0);
+		assertEquals(email, hits.get(0).email());
+		assertEquals(1.0, hits.get(0).score());
+		assertTrue(users().searchDirectory(admin.substring(0, 30), 10, 0).stream()
+				.noneMatch(hit -> hit.email().equals(admin)));
+	}
+
+	@Test
+	void listsTheHighestCountersFirst() {
+		String email = uniqueEmail();
+		User user = newUser(email);
+		user.setCounter(Integer.MAX_VALUE);
+		users().save(user);
+
+		List<UserDirectoryEntry> top = users().findTopByCounter(5);
+		assertEquals(Integer.MAX_VALUE, top.get(0).counter());
+		for (int i = 1; i < top.size(); i++) {
+			assertTrue(top.get(i - 1).counter() >= top.get(i).counter());
+		}
+		assertTrue(users().findTopByCounter(100).stream().anyMatch(entry -> entry.email().equals(email)));
+
+		// zero counters are never listed
+		user.setCounter(0);
+		users().save(user);
+		assertTrue(users().findTopByCounter(100).stream().noneMatch(entry -> entry.email().equals(email)));
+	}
+
+	protected static String uniqueEmail() {
+		return "contract-" + UUID.randomUUID() + "@example.com";
+	}
+
+	private static String uniqueBrowser() {
+		return "browser_" + UUID.randomUUID();
+	}
+
+	private static User newUser(String email) {
+		User user = new User();
+		user.setEmail(email);
+		user.setUsername("contract");
+		user.setRole("USER");
+		user.setCounter(0);
+		return user;
+	}
+}
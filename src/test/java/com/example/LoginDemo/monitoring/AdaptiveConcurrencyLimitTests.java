@@ -0,0 +1,67 @@
+package com.example.LoginDemo.monitoring;
+
+import com.example.LoginDemo.monitoring.AdaptiveConcurrencyLimit.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTests {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+
+	@Test
+	void growsWhileSaturatedAndFastThenShrinksWhenSlow() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 200);
+		runSaturated(limit, FAST, 200);
+		int grown = limit.getLimit();
+		assertTrue(grown > 20, "limit should grow, was " + grown);
+
+		runSaturated(limit, SLOW, 5);
+		assertTrue(limit.getLimit() < grown / 2, "limit should shrink, was " + limit.getLimit());
+		assertTrue(limit.getLimit() >= 4);
+	}
+
+	@Test
+	void doesNotGrowWhileMostlyIdle() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 200);
+		for (int i = 0; i < 500; i++) {
+			assertTrue(limit.tryAcquire(Priority.NORMAL));
+			limit.release(FAST);
+		}
+		assertEquals(20, limit.getLimit());
+	}
+
+	@Test
+	void shedsSheddableRequestsBeforeCriticalOnes() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 4, 200);
+		for (int i = 0; i < 5; i++) {
+			assertTrue(limit.tryAcquire(Priority.SHEDDABLE));
+		}
+		assertFalse(limit.tryAcquire(Priority.SHEDDABLE));
+		for (int i = 0; i < 3; i++) {
+			assertTrue(limit.tryAcquire(Priority.NORMAL));
+		}
+		assertFalse(limit.tryAcquire(Priority.NORMAL));
+		assertTrue(limit.tryAcquire(Priority.CRITICAL));
+		assertTrue(limit.tryAcquire(Priority.CRITICAL));
+		assertFalse(limit.tryAcquire(Priority.CRITICAL));
+		assertEquals(10, limit.getInFlight());
+	}
+
+	private static void runSaturated(AdaptiveConcurrencyLimit limit, long rttNanos, int rounds) {
+		for (int round = 0; round < rounds; round++) {
+			int admitted = 0;
+			while (limit.tryAcquire(Priority.CRITICAL)) {
+				admitted++;
+			}
+			for (int i = 0; i < admitted; i++) {
+				limit.release(rttNanos);
+			}
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package com.example.LoginDemo.resilience;
+
+import com.example.LoginDemo.exception.DependencyUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GuardedDependencyTests {
+
+	/**
+	 * Local stand-in for a downstream dependency whose faults can be switched on and off.
+	 */
+	static class FaultInjectingDependency {
+		enum Mode { HEALTHY, FAILING, HANGING, REJECTING }
+
+		volatile Mode mode = Mode.HEALTHY;
+		final CountDownLatch release = new CountDownLatch(1);
+
+		String call() throws InterruptedException {
+			switch (mode) {
+				case FAILING -> throw new IllegalStateException("connection refused");
+				case HANGING -> release.await();
+				case REJECTING -> throw new IllegalArgumentException("bad request");
+				default -> {
+				}
+			}
+			return "ok";
+		}
+	}
+
+	private final AtomicLong clock = new AtomicLong();
+	private final FaultInjectingDependency downstream = new FaultInjectingDependency();
+
+	@Test
+	void opensOnFailuresThenClosesAfterSuccessfulProbes() throws Exception {
+		GuardedDependency dependency = guarded(new SemaphoreBulkhead("test", 4, Duration.ofMillis(10)));
+
+		downstream.mode = FaultInjectingDependency.Mode.FAILING;
+		for (int i = 0; i < 5; i++) {
+			assertThrows(IllegalStateException.class, () -> dependency.call(downstream::call));
+		}
+		assertEquals(CircuitBreaker.State.OPEN, dependency.getState());
+		downstream.mode = FaultInjectingDependency.Mode.HEALTHY;
+		assertUnavailable(DependencyUnavailableException.Reason.CIRCUIT_OPEN, dependency);
+
+		clock.addAndGet(Duration.ofSeconds(1).toNanos());
+		assertEquals(CircuitBreaker.State.HALF_OPEN, dependency.getState());
+		assertEquals("ok", dependency.call(downstream::call));
+		assertEquals("ok", dependency.call(downstream::call));
+		assertEquals(CircuitBreaker.State.CLOSED, dependency.getState());
+		assertEquals(5, dependency.count(GuardedDependency.Outcome.FAILURE));
+		assertEquals(1, dependency.count(GuardedDependency.Outcome.CIRCUIT_OPEN));
+	}
+
+	@Test
+	void failedProbeReopensAndRejectedCallsDoNotCount() throws Exception {
+		GuardedDependency dependency = guarded(new SemaphoreBulkhead("test", 4, Duration.ofMillis(10)));
+
+		// The dependency answers, so client errors are no reason to stop calling it
+		downstream.mode = FaultInjectingDependency.Mode.REJECTING;
+		for (int i = 0; i < 10; i++) {
+			assertThrows(IllegalArgumentException.class, () -> dependency.call(downstream::call));
+		}
+		assertEquals(CircuitBreaker.State.CLOSED, dependency.getState());
+
+		downstream.mode = FaultInjectingDependency.Mode.FAILING;
+		for (int i = 0; i < 5; i++) {
+			assertThrows(IllegalStateException.class, () -> dependency.call(downstream::call));
+		}
+		assertEquals(CircuitBreaker.State.OPEN, dependency.getState());
+		clock.addAndGet(Duration.ofSeconds(1).toNanos());
+		assertThrows(IllegalStateException.class, () -> dependency.call(downstream::call));
+		assertEquals(CircuitBreaker.State.OPEN, dependency.getState());
+	}
+
+	@Test
+	void refusalsTellHowLongTheBreakerStaysOpen() throws Exception {
+		GuardedDependency dependency = guarded(new SemaphoreBulkhead("test", 4, Duration.ofMillis(10)));
+		downstream.mode = FaultInjectingDependency.Mode.FAILING;
+		for (int i = 0; i < 5; i++) {
+			assertThrows(IllegalStateException.class, () -> dependency.call(downstream::call));
+		}
+
+		clock.addAndGet(Duration.ofMillis(400).toNanos());
+		DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class,
+				() -> dependency.call(downstream::call));
+		assertEquals(Duration.ofMillis(600), e.getRetryAfter());
+	}
+
+	@Test
+	void hangingDependencyTimesOutWithoutHoldingTheCaller() throws Exception {
+		ThreadPoolBulkhead bulkhead = new ThreadPoolBulkhead("test", 2, 1, Duration.ofMillis(100), UnaryOperator.identity());
+		try (GuardedDependency dependency = guarded(bulkhead)) {
+			downstream.mode = FaultInjectingDependency.Mode.HANGING;
+			long start = System.nanoTime();
+			for (int i = 0; i < 5; i++) {
+				assertUnavailable(DependencyUnavailableException.Reason.TIMEOUT, dependency);
+			}
+			assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+			assertEquals(CircuitBreaker.State.OPEN, dependency.getState());
+			assertUnavailable(DependencyUnavailableException.Reason.CIRCUIT_OPEN, dependency);
+		} finally {
+			downstream.release.countDown();
+		}
+	}
+
+	@Test
+	void fullBulkheadRefusesCallsAndKeepsTheProbe() throws Exception {
+		SemaphoreBulkhead bulkhead = new SemaphoreBulkhead("test", 1, Duration.ofMillis(10));
+		GuardedDependency dependency = guarded(bulkhead);
+		downstream.mode = FaultInjectingDependency.Mode.FAILING;
+		for (int i = 0; i < 5; i++) {
+			assertThrows(IllegalStateException.class, () -> dependency.call(downstream::call));
+		}
+		clock.addAndGet(Duration.ofSeconds(1).toNanos());
+		downstream.mode = FaultInjectingDependency.Mode.HEALTHY;
+
+		// The only slot is taken while the breaker is half-open
+		CountDownLatch inside = new CountDownLatch(1);
+		CountDownLatch leave = new CountDownLatch(1);
+		Thread holder = new Thread(() -> {
+			try {
+				bulkhead.execute(() -> {
+					inside.countDown();
+					return leave.await(1, TimeUnit.SECONDS);
+				});
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		holder.start();
+		assertTrue(inside.await(1, TimeUnit.SECONDS));
+		assertUnavailable(DependencyUnavailableException.Reason.BULKHEAD_FULL, dependency);
+		leave.countDown();
+		holder.join();
+
+		assertEquals("ok", dependency.call(downstream::call));
+		assertEquals("ok", dependency.call(downstream::call));
+		assertEquals(CircuitBreaker.State.CLOSED, dependency.getState());
+		assertEquals(1, dependency.count(GuardedDependency.Outcome.BULKHEAD_FULL));
+	}
+
+	private GuardedDependency guarded(Bulkhead bulkhead) {
+		CircuitBreaker breaker = new CircuitBreaker("test", 10, 5, 50, Duration.ofSeconds(1), 2, clock::get);
+		return new GuardedDependency("test", breaker, bulkhead, e -> !(e instanceof IllegalArgumentException));
+	}
+
+	private void assertUnavailable(DependencyUnavailableException.Reason reason, GuardedDependency dependency) {
+		DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class,
+				() -> dependency.call(downstream::call));
+		assertEquals(reason, e.getReason());
+	}
+}
@@ -0,0 +1,100 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.event.AuthEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthEventJournalTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void journalsConcurrentEventsAcrossSegmentsAndReopens() throws Exception {
+		// Small segments, so the events span many rollovers
+		AuthEventJournal journal = journal();
+		journal.start();
+		ExecutorService producers = Executors.newFixedThreadPool(4);
+		for (int p = 0; p < 4; p++) {
+			String email = "user" + p + "@example.com";
+			producers.execute(() -> {
+				for (int i = 1; i <= 500; i++) {
+					journal.append(AuthEvent.of(AuthEvent.Type.INCREMENT, email, null, i));
+				}
+			});
+		}
+		producers.shutdown();
+		assertTrue(producers.awaitTermination(10, TimeUnit.SECONDS));
+		journal.stop();
+
+		AuthEventJournal reopened = journal();
+		reopened.start();
+		try {
+			assertEquals(2001, reopened.nextSequence());
+			List<AuthEvent> events = new ArrayList<>();
+			reopened.replay(0, events::add);
+			assertEquals(2000, events.size());
+			for (int i = 0; i < events.size(); i++) {
+				assertEquals(i + 1, events.get(i).sequence());
+			}
+
+			// Each producer's events keep their order
+			List<AuthEvent> user = reopened.find("user2@example.com", AuthEvent.Type.INCREMENT, Instant.EPOCH, 1000);
+			assertEquals(500, user.size());
+			for (int i = 0; i < user.size(); i++) {
+				assertEquals(i + 1, user.get(i).value());
+			}
+
+			List<AuthEvent> tail = new ArrayList<>();
+			reopened.replay(1990, tail::add);
+			assertEquals(11, tail.size());
+		} finally {
+			reopened.stop();
+		}
+	}
+
+	@Test
+	void findsEventsSinceATimeAcrossSegments() throws Exception {
+		AuthEventJournal journal = journal();
+		journal.start();
+		// Whole seconds, as the journal keeps microseconds
+		Instant since = Instant.now().minusSeconds(3600).truncatedTo(ChronoUnit.SECONDS);
+		for (int i = 1; i <= 600; i++) {
+			// The first 400 events fill several segments before since
+			Instant time = i <= 400 ? since.minusSeconds(401 - i) : since.plusSeconds(i - 401);
+			journal.append(new AuthEvent(0, time, AuthEvent.Type.INCREMENT, "since@example.com", null, i, null));
+		}
+		journal.stop();
+
+		AuthEventJournal reopened = journal();
+		reopened.start();
+		try {
+			List<AuthEvent> events = reopened.find("since@example.com", null, since, 1000);
+			assertEquals(200, events.size());
+			assertEquals(401, events.get(0).value());
+			assertEquals(600, events.get(199).value());
+			assertEquals(600, reopened.find(null, AuthEvent.Type.INCREMENT, Instant.EPOCH, 1000).size());
+			assertTrue(reopened.find(null, null, since.plusSeconds(3600), 1000).isEmpty());
+		} finally {
+			reopened.stop();
+		}
+	}
+
+	private AuthEventJournal journal() {
+		return new AuthEventJournal(directory, DataSize.ofKilobytes(8), 10_000, Duration.ofDays(1), Duration.ZERO);
+	}
+}
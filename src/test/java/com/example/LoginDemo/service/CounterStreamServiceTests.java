@@ -0,0 +1,214 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.dao.EmbeddedUserSessionStore;
+import com.example.LoginDemo.dao.EmbeddedUserStore;
+import com.example.LoginDemo.event.InvalidationEvent;
+import com.example.LoginDemo.model.BrowserSessionKey;
+import com.example.LoginDemo.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CounterStreamServiceTests {
+
+	/**
+	 * Records what is sent instead of writing to a response.
+	 */
+	static class RecordingEmitter extends SseEmitter {
+		final List<String> events = new CopyOnWriteArrayList<>();
+		volatile boolean completed;
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			StringBuilder event = new StringBuilder();
+			builder.build().forEach(data -> event.append(data.getData()));
+			events.add(event.toString());
+		}
+
+		@Override
+		public void complete() {
+			completed = true;
+		}
+	}
+
+	@TempDir
+	Path directory;
+
+	private final ExecutorService sendExecutor = Executors.newSingleThreadExecutor();
+	private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+	private EmbeddedUserStore users;
+	private EmbeddedUserSessionStore sessions;
+	private CounterStreamService streams;
+
+	@BeforeEach
+	void open() throws IOException {
+		users = new EmbeddedUserStore(directory, false, event -> { });
+		sessions = new EmbeddedUserSessionStore(directory, false, users, event -> { });
+		streams = new CounterStreamService(sendExecutor) {
+			@Override
+			SseEmitter newEmitter() {
+				RecordingEmitter emitter = new RecordingEmitter();
+				emitters.add(emitter);
+				return emitter;
+			}
+		};
+		ReflectionTestUtils.setField(streams, "userDAO", users);
+		ReflectionTestUtils.setField(streams, "sessionDAO", sessions);
+		ReflectionTestUtils.setField(streams, "ticketTtl", Duration.ofSeconds(30));
+	}
+
+	@AfterEach
+	void close() throws IOException {
+		sendExecutor.shutdownNow();
+		sessions.close();
+		users.close();
+	}
+
+	@Test
+	void sendsTheCounterThenEveryChange() throws Exception {
+		User user = newUser("stream@example.com");
+		streams.subscribe("stream@example.com", "browser_a", 0);
+
+		user.setCounter(5);
+		users.save(user);
+		streams.onInvalidation(InvalidationEvent.local(InvalidationEvent.Topic.COUNTER, "stream@example.com"));
+		streams.onInvalidation(InvalidationEvent.local(InvalidationEvent.Topic.COUNTER, "other@example.com"));
+		awaitSends();
+
+		List<String> events = emitters.get(0).events;
+		assertEquals(2, events.size());
+		assertTrue(events.get(0).contains("event:counter") && events.get(0).contains("{count=0}"));
+		assertTrue(events.get(1).contains("{count=5}"));
+	}
+
+	@Test
+	void replacesTheStreamOfABrowserAndClosesSignedOutOnes() throws Exception {
+		newUser("stream@example.com");
+		sessions.registerActiveSession("stream@example.com", "browser_a");
+		streams.subscribe("stream@example.com", "browser_a", 0);
+		streams.subscribe("stream@example.com", "browser_a", 0);
+		streams.subscribe("stream@example.com", "browser_b", 0);
+		assertTrue(emitters.get(0).completed);
+		assertEquals(2, streams.getSubscriberCount());
+
+		// browser_a is still signed in, browser_b never was
+		streams.onInvalidation(InvalidationEvent.local(InvalidationEvent.Topic.SESSION, "browser_a"));
+		streams.onInvalidation(InvalidationEvent.local(InvalidationEvent.Topic.SESSION, "browser_b"));
+		awaitSends();
+
+		assertEquals(1, streams.getSubscriberCount());
+		assertFalse(emitters.get(1).completed);
+		assertTrue(emitters.get(2).completed);
+		assertTrue(emitters.get(2).events.get(1).contains("event:signedOut"));
+	}
+
+	@Test
+	void dropsSubscribersThatFallBehind() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		sendExecutor.execute(() -> {
+			try {
+				blocked.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		newUser("stream@example.com");
+		streams.subscribe("stream@example.com", "browser_a", 0);
+		for (int i = 0; i < CounterStreamService.MAX_QUEUED_EVENTS; i++) {
+			streams.onInvalidation(InvalidationEvent.local(InvalidationEvent.Topic.COUNTER, "stream@example.com"));
+		}
+		blocked.countDown();
+		awaitSends();
+
+		assertTrue(emitters.get(0).completed);
+		assertEquals(0, streams.getSubscriberCount());
+	}
+
+	@Test
+	void keepsOneStreamPerUserOfASharedBrowser() throws Exception {
+		newUser("stream@example.com");
+		newUser("other@example.com");
+		sessions.registerActiveSession("stream@example.com", "browser_a");
+		streams.subscribe("stream@example.com", "browser_a", 0);
+		streams.subscribe("other@example.com", "browser_a", 0);
+		assertFalse(emitters.get(0).completed);
+		assertEquals(2, streams.getSubscriberCount());
+
+		// Only the user without an active session in the browser is signed out
+		streams.onInvalidation(InvalidationEvent.local(InvalidationEvent.Topic.SESSION, "browser_a"));
+		awaitSends();
+
+		assertFalse(emitters.get(0).completed);
+		assertTrue(emitters.get(1).completed);
+		assertEquals(1, streams.getSubscriberCount());
+	}
+
+	@Test
+	void heartbeatsSkipBusyStreamsAndNeverDropThem() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		sendExecutor.execute(() -> {
+			try {
+				blocked.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		streams.subscribe("stream@example.com", "browser_a", 0);
+		for (int i = 0; i <= CounterStreamService.MAX_QUEUED_EVENTS; i++) {
+			streams.heartbeat();
+		}
+		blocked.countDown();
+		awaitSends();
+		assertEquals(1, emitters.get(0).events.size());
+
+		// A full send pool skips the beat instead of dropping the stream
+		sendExecutor.shutdown();
+		streams.heartbeat();
+		assertFalse(emitters.get(0).completed);
+		assertEquals(1, streams.getSubscriberCount());
+	}
+
+	@Test
+	void ticketsOpenOneStreamBeforeTheyExpire() {
+		String ticket = streams.issueTicket("stream@example.com", "browser_a");
+		assertEquals(Optional.of(new BrowserSessionKey("stream@example.com", "browser_a")), streams.redeemTicket(ticket));
+		assertTrue(streams.redeemTicket(ticket).isEmpty());
+		assertTrue(streams.redeemTicket("unknown").isEmpty());
+
+		ReflectionTestUtils.setField(streams, "ticketTtl", Duration.ZERO);
+		assertTrue(streams.redeemTicket(streams.issueTicket("stream@example.com", "browser_a")).isEmpty());
+	}
+
+	private User newUser(String email) {
+		User user = new User();
+		user.setEmail(email);
+		user.setUsername("stream");
+		user.setRole("USER");
+		user.setCounter(0);
+		users.save(user);
+		return users.findByEmail(email).orElseThrow();
+	}
+
+	private void awaitSends() throws Exception {
+		// The pool has one thread, so earlier drains have run once this one has
+		sendExecutor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+	}
+}
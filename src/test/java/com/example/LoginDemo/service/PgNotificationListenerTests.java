@@ -0,0 +1,56 @@
+package com.example.LoginDemo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs against a local Postgres, e.g.
+ * PG_TEST_URL=jdbc:postgresql://localhost:5430/login_demo PG_TEST_USER=postgres PG_TEST_PASSWORD=... mvn test
+ */
+@EnabledIfEnvironmentVariable(named = "PG_TEST_URL", matches = ".+")
+class PgNotificationListenerTests {
+
+	private static final String URL = System.getenv("PG_TEST_URL");
+	private static final String USER = System.getenv().getOrDefault("PG_TEST_USER", "postgres");
+	private static final String PASSWORD = System.getenv().getOrDefault("PG_TEST_PASSWORD", "");
+
+	@Test
+	void deliversCommittedNotifications() throws Exception {
+		BlockingQueue<String> received = new LinkedBlockingQueue<>();
+		PgNotificationListener listener = new PgNotificationListener(URL, USER, PASSWORD, "auth_invalidation_test",
+				received::add, () -> { });
+		listener.start();
+		try {
+			try (Connection connection = DriverManager.getConnection(URL, USER, PASSWORD)) {
+				// give the listener time to issue LISTEN before notifying
+				Thread.sleep(1000);
+				connection.setAutoCommit(false);
+				try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+					statement.setString(1, "auth_invalidation_test");
+					statement.setString(2, "node0001ualice@example.com");
+					statement.executeQuery().close();
+				}
+				connection.commit();
+			}
+			assertEquals("node0001ualice@example.com", received.poll(2, TimeUnit.SECONDS));
+		} finally {
+			listener.stop();
+		}
+	}
+
+	@Test
+	void rejectsUnsafeChannelNames() {
+		assertThrows(IllegalArgumentException.class, () -> new PgNotificationListener(URL, USER, PASSWORD,
+				"x; DROP TABLE users", payload -> { }, () -> { }));
+	}
+}
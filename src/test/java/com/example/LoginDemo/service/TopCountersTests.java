@@ -0,0 +1,70 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.model.UserDirectoryEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopCountersTests {
+
+	@Test
+	void ranksByCounterThenEmail() {
+		TopCounters board = new TopCounters(2);
+		board.update(entry("b@example.com", 1));
+		board.update(entry("a@example.com", 1));
+		assertEquals(List.of(entry("a@example.com", 1), entry("b@example.com", 1)), board.top(10));
+
+		// Full board: c enters, b is evicted and no longer known
+		board.update(entry("c@example.com", 2));
+		assertEquals(List.of(entry("c@example.com", 2), entry("a@example.com", 1)), board.top(10));
+		assertFalse(board.isComplete());
+
+		// A reset lets a go; d cannot enter, as b might outrank it
+		board.update(entry("a@example.com", 0));
+		board.update(entry("d@example.com", 1));
+		assertEquals(List.of(entry("c@example.com", 2)), board.top(10));
+		assertTrue(board.top(0).isEmpty());
+	}
+
+	@Test
+	void alwaysHoldsATrueTopOfTheStore() {
+		Random random = new Random(7);
+		Map<String, Integer> counters = new HashMap<>();
+		TopCounters board = new TopCounters(20);
+		for (int i = 0; i < 20_000; i++) {
+			String email = "user" + random.nextInt(100) + "@example.com";
+			int counter = random.nextInt(10) == 0 ? 0 : counters.getOrDefault(email, 0) + 1;
+			counters.put(email, counter);
+			board.update(entry(email, counter));
+
+			List<UserDirectoryEntry> expected = top(counters, 21);
+			assertEquals(expected.subList(0, board.size()), board.top(board.size()));
+			if (board.isComplete()) {
+				assertEquals(expected.size(), board.size());
+			}
+			if (board.size() < 10) {
+				board.reset(expected);
+			}
+		}
+	}
+
+	private static List<UserDirectoryEntry> top(Map<String, Integer> counters, int limit) {
+		return counters.entrySet().stream()
+				.filter(counter -> counter.getValue() > 0)
+				.map(counter -> entry(counter.getKey(), counter.getValue()))
+				.sorted(TopCounters.RANKING)
+				.limit(limit)
+				.toList();
+	}
+
+	private static UserDirectoryEntry entry(String email, int counter) {
+		return new UserDirectoryEntry(email, "user", "USER", counter);
+	}
+}
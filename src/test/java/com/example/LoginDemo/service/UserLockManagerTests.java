@@ -0,0 +1,136 @@
+package com.example.LoginDemo.service;
+
+import com.example.LoginDemo.dao.EmbeddedUserSessionStore;
+import com.example.LoginDemo.dao.EmbeddedUserStore;
+import com.example.LoginDemo.exception.UserBusyException;
+import com.example.LoginDemo.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserLockManagerTests {
+
+	/**
+	 * The embedded stores write immediately, so transactions have nothing to do.
+	 */
+	static class NoTransactionManager implements PlatformTransactionManager {
+		@Override
+		public TransactionStatus getTransaction(TransactionDefinition definition) {
+			return new SimpleTransactionStatus();
+		}
+
+		@Override
+		public void commit(TransactionStatus status) {
+		}
+
+		@Override
+		public void rollback(TransactionStatus status) {
+		}
+	}
+
+	@TempDir
+	Path directory;
+
+	private EmbeddedUserStore users;
+	private EmbeddedUserSessionStore sessions;
+	private UserLockManager locks;
+	private AuthService authService;
+
+	@BeforeEach
+	void open() throws IOException {
+		users = new EmbeddedUserStore(directory, false, event -> { });
+		sessions = new EmbeddedUserSessionStore(directory, false, users, event -> { });
+		locks = new UserLockManager(16, Duration.ofMillis(200));
+		ReflectionTestUtils.setField(locks, "userDAO", users);
+		ReflectionTestUtils.setField(locks, "transactionManager", new NoTransactionManager());
+		authService = new AuthService();
+		ReflectionTestUtils.setField(authService, "userDAO", users);
+		ReflectionTestUtils.setField(authService, "sessionDAO", sessions);
+		ReflectionTestUtils.setField(authService, "userLocks", locks);
+		ReflectionTestUtils.setField(authService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+	}
+
+	@AfterEach
+	void close() throws IOException {
+		sessions.close();
+		users.close();
+	}
+
+	@Test
+	void concurrentIncrementsAreNotLost() throws Exception {
+		User user = new User();
+		user.setEmail("locks@example.com");
+		user.setUsername("locks");
+		user.setRole("USER");
+		user.setCounter(0);
+		users.save(user);
+
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			Future<?>[] workers = new Future<?>[8];
+			for (int w = 0; w < workers.length; w++) {
+				workers[w] = pool.submit(() -> {
+					start.await();
+					for (int i = 0; i < 250; i++) {
+						authService.incrementCounter("locks@example.com");
+					}
+					return null;
+				});
+			}
+			start.countDown();
+			for (Future<?> worker : workers) {
+				worker.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(2000, users.findByEmail("locks@example.com").orElseThrow().getCounter());
+	}
+
+	@Test
+	void refusesTransitionsThatWaitTooLong() throws Exception {
+		CountDownLatch locked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread holder = new Thread(() -> locks.inUserTransaction("busy@example.com", () -> {
+			locked.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		}));
+		holder.start();
+		try {
+			assertTrue(locked.await(5, TimeUnit.SECONDS));
+			UserBusyException busy = assertThrows(UserBusyException.class,
+					() -> locks.inUserTransaction("busy@example.com", () -> null));
+			assertEquals(Duration.ofMillis(200), busy.getRetryAfter());
+		} finally {
+			release.countDown();
+			holder.join();
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.example.LoginDemo.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogAnalyzerTests {
+
+	private static final List<LogFormat> FORMATS = List.of(LogFormat.springBootDefault(),
+			LogFormat.fromLogbackPattern(LogAnalyzer.CONFIGURED_PATTERN));
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void analyzesTheSpringBootDefaultLayout() throws Exception {
+		assertFixtureStats(LogAnalyzer.analyzeFile(fixture("spring-boot-default.log"), FORMATS, 13));
+	}
+
+	@Test
+	void analyzesTheConfiguredLayout() throws Exception {
+		assertFixtureStats(LogAnalyzer.analyzeFile(fixture("configured-pattern.log"), FORMATS, 13));
+	}
+
+	@Test
+	void streamsGzippedFiles() throws Exception {
+		Path gzipped = directory.resolve("app.log.2025-02-05.0.gz");
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipped))) {
+			Files.copy(fixture("configured-pattern.log"), out);
+		}
+		assertFixtureStats(LogAnalyzer.analyzeFile(gzipped, FORMATS, 13));
+	}
+
+	@Test
+	void joinsLinesAcrossMapWindows() throws Exception {
+		Path file = directory.resolve("app.log");
+		Files.writeString(file, "first line\r\nsecond, longer line\n\nlast line without newline");
+		List<String> lines = new ArrayList<>();
+		// Seven bytes per window, so most lines span two or three windows
+		LogAnalyzer.readMapped(file, 7, new LogAnalyzer.LineSplitter(lines::add));
+
+		assertEquals(List.of("first line", "second, longer line", "", "last line without newline"), lines);
+	}
+
+	@Test
+	void cutsOverLongLines() throws Exception {
+		Path file = directory.resolve("app.log");
+		String longLine = "x".repeat(LogAnalyzer.MAX_LINE_LENGTH * 3);
+		Files.writeString(file, "before\n" + longLine + "\nafter\n");
+		List<String> lines = new ArrayList<>();
+		LogAnalyzer.LineSplitter splitter = new LogAnalyzer.LineSplitter(lines::add);
+		LogAnalyzer.readMapped(file, 4096, splitter);
+
+		assertEquals(3, lines.size());
+		assertEquals("before", lines.get(0));
+		assertEquals(longLine.substring(0, LogAnalyzer.MAX_LINE_LENGTH), lines.get(1));
+		assertEquals("after", lines.get(2));
+		assertEquals(1, splitter.cut);
+	}
+
+	private static void assertFixtureStats(LogStats stats) {
+		assertEquals(11, stats.lines);
+		assertEquals(9, stats.entries);
+		assertEquals(0, stats.unparsed);
+
+		LogStats.EndpointStats login = stats.endpoints.get("POST /v1/auth/login");
+		assertEquals(1, login.requests);
+		assertEquals(Map.of(200, 1L), login.statuses);
+		assertEquals(Map.of("2025-02-05T11", 1L), login.requestsByBucket);
+		assertEquals(Map.of(200, 1L), stats.endpoints.get("POST /v1/auth/redeem").statuses);
+		assertEquals(Map.of(500, 1L), stats.endpoints.get("GET /v1/auth/validate").statuses);
+		assertEquals(Map.of("org.springframework.dao.DataAccessResourceFailureException", 1L), stats.exceptions);
+
+		// login, magicLinkSent, redeem, redeemed, validate, validated, logout, serverErrors
+		assertArrayEquals(new long[] {1, 1, 1, 1, 0, 0, 0, 0}, stats.funnel.get("2025-02-05T11"));
+		assertArrayEquals(new long[] {0, 0, 0, 0, 1, 0, 0, 1}, stats.funnel.get("2025-02-05T12"));
+	}
+
+	private static Path fixture(String name) throws URISyntaxException {
+		return Path.of(LogAnalyzerTests.class.getResource("/logs/" + name).toURI());
+	}
+}